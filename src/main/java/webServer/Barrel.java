@@ -7,11 +7,25 @@ import java.rmi.server.UnicastRemoteObject;
 import java.util.*;
 import java.io.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
-
-import com.google.common.hash.BloomFilter;
-import com.google.common.hash.Funnels;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import com.google.common.util.concurrent.Striped;
 import org.mapdb.*;
 
 /**
@@ -25,7 +39,7 @@ import org.mapdb.*;
  */
 public class Barrel extends UnicastRemoteObject implements BarrelIndex {
 
-    //Bloom filter parameters
+    //Bloom filter parameters: capacity of the first stage and bound on the compound false-positive rate
     int expectedInsertionsBloomFilter = 100000;
     double fpp = 0.01;
 
@@ -34,21 +48,61 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
     private SystemStats stats;
     private List<Long> responseTimes;
 
-    Queue<String> urlQueue;
+    CrawlFrontier frontier;
     ConcurrentMap<String, Set<String>> adjacencyList;
-    ConcurrentMap<String, PageInfo> pagesInfo;
-    BloomFilter<String> filter;
-    private ConcurrentMap<String, Integer> expectedSeqNumbers;
-    private ConcurrentMap<String, Set<Integer>> receivedSeqNumbers;
-    private ConcurrentMap<String, Set<String>> invertedIndex;
+    ConcurrentMap<String, StoredDocument> pagesInfo;
+    ScalableBloomFilter filter;
+    // Received sequence numbers per sender (Downloader or Gateway), guarded by messageLock
+    private ConcurrentMap<String, SequenceWindow> sequenceWindows;
+    private InvertedIndex index;
+    private ConcurrentMap<String, Integer> inlinkCounts;
+    // SimHash fingerprints of the stored pages, and pages collapsed into a near-duplicate stored page
+    private NearDuplicateIndex nearDuplicates;
+    private ConcurrentMap<String, String> duplicates;
+    private ChangeLog changeLog;
+    // Last change log position of each peer Barrel that this Barrel has applied
+    private ConcurrentMap<String, Long> peerPositions;
+    private String peerName;
+    private BarrelIndex peer;
+    // Shard this Barrel serves: it stores, indexes and queues only the documents of that shard
+    private ShardMap shardMap;
+    private int shard;
+    private volatile SnapshotServer snapshotServer;
+    // Number of stored documents, counted here because the size of a MapDB map is computed by visiting every entry
+    private final AtomicInteger documentCount = new AtomicInteger();
+    // Pages stored since startup, and the ingest rate last measured from it (guarded by ingestRateLock)
+    private final AtomicLong storedPages = new AtomicLong();
+    private final Object ingestRateLock = new Object();
+    private long ingestSampleNanos = System.nanoTime();
+    private long ingestSamplePages;
+    private double ingestRate;
+
+    // Number of changes requested per page during catch-up replication
+    private static final int REPLICATION_PAGE_SIZE = 500;
+    // Number of pages migrated from earlier storage formats per commit
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+    // Longest time a Downloader's lease request may wait for URLs
+    private static final long MAX_LEASE_WAIT_MS = 30_000;
+    // Deepest ranked result a search can return; deeper windows are cut, bounding the heap and the reply
+    private static final int MAX_RESULT_WINDOW = 10_000;
+    // Shortest interval over which the ingest rate is measured
+    private static final long INGEST_RATE_INTERVAL_MS = 10_000;
+    // Time between two checkpoints of the crawl frontier and the Bloom filter
+    private static final long CHECKPOINT_INTERVAL_MS = 60_000;
 
     //Synchronization locks */
-    private final Object queueLock = new Object();
-    private final Object adjacencyLock = new Object();
-    private final Object filterLock = new Object();
-    private final Object pageInfoLock = new Object();
+    // Searches take no locks: the index, pages and adjacency maps are only updated
+    // through atomic per-key replacements, serialised per key by lock striping.
+    private final Striped<Lock> adjacencyLocks = Striped.lock(64);
     private final Object messageLock = new Object();
-    private final Object invertedIndexLock = new Object();
+    // Shared while URLs are marked seen and queued; taken exclusively between the Bloom filter and frontier checkpoints
+    private final ReadWriteLock admissionLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService checkpoints = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "barrel-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean resyncing = new AtomicBoolean();
     int semaforo;
 
     // Probability variables for simulating message loss (debugging)
@@ -75,11 +129,7 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
         this.dbPath = dbPath;
 
         // Initialize concurrent data structures
-        urlQueue = new ConcurrentLinkedQueue<>();
-        filter = BloomFilter.create(Funnels.unencodedCharsFunnel(), expectedInsertionsBloomFilter, fpp);
-        expectedSeqNumbers = new java.util.concurrent.ConcurrentHashMap<>();
-        receivedSeqNumbers = new java.util.concurrent.ConcurrentHashMap<>();
-        invertedIndex = new ConcurrentHashMap<>();
+        sequenceWindows = new ConcurrentHashMap<>();
 
         this.stats = new SystemStats();
         this.responseTimes = Collections.synchronizedList(new ArrayList<>());
@@ -87,6 +137,14 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
         askForInfo();
         semaforo = 1;
 
+        checkpoints.scheduleWithFixedDelay(() -> {
+            try {
+                checkpointCrawlState();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error checkpointing crawl state: " + e.getMessage());
+            }
+        }, CHECKPOINT_INTERVAL_MS, CHECKPOINT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
         // Register shutdown hook for graceful termination
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutdown detected...");
@@ -95,82 +153,152 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
     }
 
     /**
-     * Attempts to load data from another Barrel instance or from local storage.
-     * First tries to connect to another Barrel via RMI, falls back to local files if unavailable.
+     * Opens local storage and then brings it up to date from another Barrel instance of the same shard.
+     * If this Barrel replicated from the peer before, only the changes applied by the peer since
+     * then are replayed (see {@link #catchUpFrom}); otherwise, or if the peer no longer retains
+     * those changes, the peer's full state is copied. Local data is used as-is if no peer is available.
      *
      * @throws IOException if file reading fails
      */
     private void askForInfo() throws IOException {
         String filename = "config.txt";
-        final int OTHER_BARREL_INDEX = 3;
 
-        try {
-            List<String> parts = FileManipulation.lineSplitter(filename, OTHER_BARREL_INDEX, ";");
+        loadInfo();
 
-            if (parts.size() < 3) {
-                System.err.println("Configuration file line " + (OTHER_BARREL_INDEX + 1) + " is incorrect");
-                loadInfo();
+        try {
+            shardMap = ShardMap.load(filename);
+        } catch (Exception e) {
+            System.err.println("Error reading shard configuration: " + e.getMessage() + ". Serving all documents.");
+        }
+        ShardMap.Replica self = shardMap == null ? null : shardMap.replica(registryName);
+        if (self == null) {
+            // Not in the configuration (e.g. tests): a single shard served by this Barrel alone
+            shardMap = new ShardMap(List.of(new ShardMap.Replica(registryName, "localhost", 0, 0)));
+            self = shardMap.replica(registryName);
+        }
+        shard = self.shard();
+        System.out.println(registryName + " serves shard " + shard + " of " + shardMap.shardCount());
+
+        for (ShardMap.Replica replica : shardMap.replicas(shard)) {
+            if (replica.name().equals(registryName)) continue;
+            try {
+                Registry registry = LocateRegistry.getRegistry(replica.ip(), replica.port());
+                System.out.println("Registry obtained successfully");
+
+                BarrelIndex otherBarrel = (BarrelIndex) registry.lookup(replica.name());
+                System.out.println("Lookup sucecssful! Other Barrel found: " + replica.name());
+
+                peerName = replica.name();
+                peer = otherBarrel;
+                if (!catchUpFrom(replica.name(), otherBarrel)) {
+                    loadFromOtherBarrel(replica.name(), otherBarrel);
+                }
                 return;
+            } catch (Exception e) {
+                System.out.println("Error obtaining info from " + replica.name() + ": " + e.getMessage());
             }
+        }
+        System.out.println("No other Barrel of shard " + shard + " available. Using local data.");
+    }
 
-            String otherName = parts.get(0).trim();
-            String otherIp = parts.get(1).trim();
-            int otherPort = Integer.parseInt(parts.get(2).trim());
+    /**
+     * Indicates whether a document belongs to the shard this Barrel serves.
+     *
+     * @param url canonical URL of the document
+     * @return true if this Barrel stores the document
+     */
+    private boolean owns(String url) {
+        return shardMap.shardOf(url) == shard;
+    }
 
-            Registry registry = LocateRegistry.getRegistry(otherIp, otherPort);
-            System.out.println("Registry obtained successfully");
+    /**
+     * Replays the changes a peer Barrel applied since the last position this Barrel recorded for it,
+     * one page at a time. Catch-up time is proportional to the number of missed changes.
+     *
+     * @param otherName Name of the peer Barrel
+     * @param barrelIndex Reference to the peer Barrel
+     * @return true if this Barrel is now caught up, false if a full copy is needed
+     * @throws RemoteException if RMI communication fails
+     */
+    private boolean catchUpFrom(String otherName, BarrelIndex barrelIndex) throws RemoteException {
+        Long position = peerPositions.get(otherName);
+        if (position == null) {
+            System.out.println("No replication position for " + otherName + ", full copy needed.");
+            return false;
+        }
 
-            BarrelIndex otherBarrel = (BarrelIndex) registry.lookup(otherName);
-            System.out.println("Lookup sucecssful! Other Barrel found: " + otherName);
+        long applied = 0;
+        while (true) {
+            ChangeBatch batch = barrelIndex.getChangesSince(position, REPLICATION_PAGE_SIZE);
+            if (batch.isTruncated()) {
+                System.out.println("Changes of " + otherName + " since position " + position + " are no longer retained, full copy needed.");
+                return false;
+            }
 
-            if (otherBarrel != null) {
-                loadFromOtherBarrel(otherBarrel);
+            position = batch.getPosition();
+            peerPositions.put(otherName, position);
+            if (batch.getChanges().isEmpty()) {
+                db.commit();
             } else {
-                loadInfo();
+                applyBatch(batch.getChanges()); // commits the new position together with the changes
+                applied += batch.getChanges().size();
             }
-
-        } catch (Exception e) {
-            System.out.println("Error obtaining info from other barrel: " + e.getMessage());
-            loadInfo();
+            if (batch.isCaughtUp()) break;
         }
+
+        System.out.println("Caught up with " + otherName + ": " + applied + " changes replayed (position " + position + ").");
+        return true;
     }
 
     /**
-     * Loads data from another Barrel instance via RMI.
-     * Copies all indexes, page information, and synchronization state.
+     * Loads data from another Barrel instance through a streamed snapshot.
+     * The peer exports its state and segment files (see {@link #prepareSnapshot()}), which are
+     * downloaded in chunks over a socket, verified, and opened or imported into the local storage
+     * opened by {@link #loadInfo()}. The changes the peer applied during the transfer are then replayed.
+     *
+     * <p>The copy replaces the local documents, links and index (see {@link #clearLocalState}), since
+     * document IDs are assigned independently by each Barrel. Local data is only cleared once the
+     * snapshot is downloaded and verified; if the import fails after that, the partial copy is
+     * discarded (see {@link #discardImport}).
      *
+     * @param otherName Name of the other Barrel instance
      * @param barrelIndex Reference to the other Barrel instance
      * @throws IOException if data transfer fails
      */
-    private void loadFromOtherBarrel(BarrelIndex barrelIndex) throws IOException {
+    private void loadFromOtherBarrel(String otherName, BarrelIndex barrelIndex) throws IOException {
+        Path staging = Paths.get(dbPath + "_snapshot_download");
+        SnapshotManifest manifest = null;
+        boolean cleared = false;
+        boolean imported = false;
         try {
             if(DebugConfig.DEBUG_FICHEIROS || DebugConfig.DEBUG_ALL){
                 System.out.println("[DEBUG] Loading info from other barrel");
             }
 
-            // Initialize MapDB
-            db = DBMaker.fileDB(dbPath)
-                    .fileMmapEnableIfSupported()
-                    .transactionEnable()
-                    .make();
-
-            // Create MapDB maps
-            pagesInfo = db.hashMap("pagesInfo", Serializer.STRING, Serializer.JAVA).createOrOpen();
-            adjacencyList = db.hashMap("adjacencyList", Serializer.STRING, Serializer.JAVA).createOrOpen();
-            invertedIndex = db.hashMap("invertedIndex", Serializer.STRING, Serializer.JAVA).createOrOpen();
-
-            // Copy data from other barrel
-            expectedSeqNumbers = barrelIndex.getExpectedSeqNumber();
-            receivedSeqNumbers = barrelIndex.getReceivedSeqNumbers();
-
-            pagesInfo.putAll(barrelIndex.getPagesInfoMap());
-            adjacencyList.putAll(barrelIndex.getAdjacencyListMap());
-            invertedIndex.putAll(barrelIndex.getInvertedIndexMap());
+            manifest = barrelIndex.prepareSnapshot();
+            System.out.println("Downloading snapshot of " + otherName + " (" + manifest.getFiles().size() + " files)...");
+            SnapshotClient.download(manifest, staging);
+            ConcurrentMap<String, SequenceWindow> peerWindows = barrelIndex.getSequenceWindows();
+
+            cleared = true;
+            clearLocalState(otherName);
+            sequenceWindows = peerWindows;
+
+            // IDs first, then the segments that reference them, then the lengths that publish the documents
+            BarrelSnapshot.importState(staging.resolve(BarrelSnapshot.STATE_FILE), pagesInfo, adjacencyList,
+                    index.getDocuments(), db::commit);
+            List<Path> segmentFiles = new ArrayList<>();
+            for (SnapshotManifest.FileEntry file : manifest.getFiles()) {
+                if (file.name().endsWith(".seg")) segmentFiles.add(staging.resolve(file.name()));
+            }
+            index.adoptSegments(segmentFiles);
+            BarrelSnapshot.importLengths(staging.resolve(BarrelSnapshot.STATE_FILE), index.getDocuments());
+            rebuildInlinkCounts();
+            rebuildNearDuplicates();
 
             // Load Bloom filter
-            byte[] bloomFilterBytes = barrelIndex.getBloomFilterBytes();
-            try (ByteArrayInputStream in = new ByteArrayInputStream(bloomFilterBytes)) {
-                filter = BloomFilter.readFrom(in, Funnels.unencodedCharsFunnel());
+            try (InputStream in = Files.newInputStream(staging.resolve(BarrelSnapshot.BLOOM_FILE))) {
+                filter.readFrom(in);
                 System.out.println("Bloom filter loaded from other barrel.");
             }
 
@@ -178,26 +306,101 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
                 System.out.println("=================== [DEBUG] ===================");
                 System.out.println("PagesInfo loaded: " + pagesInfo.size());
                 System.out.println("AdjacencyList loaded: " + adjacencyList.size());
-                System.out.println("InvertedIndex loaded: " + invertedIndex.size());
-                System.out.println("ExpectedSeqNumbers loaded: " + expectedSeqNumbers.size());
-                System.out.println("ReceivedSeqNumbers loaded: " + receivedSeqNumbers.size());
+                System.out.println("InvertedIndex loaded: " + index.termCount());
+                System.out.println("Documents loaded: " + index.documentCount());
+                System.out.println("SequenceWindows loaded: " + sequenceWindows.size());
                 System.out.println("BloomFilter mightContain('https://example.com'): " + filter.mightContain("https://example.com"));
                 System.out.println("===============================================");
             }
 
+            peerPositions.put(otherName, manifest.getChangePosition());
             saveInfo();
+            imported = true;
+            catchUpFrom(otherName, barrelIndex);
 
         } catch(Exception e) {
-            System.err.println("Error obtaining info from other barrel: " + e.getMessage());
-            loadInfo();
+            if (imported) {
+                System.err.println("Error catching up with " + otherName + " after the snapshot: " + e.getMessage());
+            } else if (cleared) {
+                System.err.println("Error importing snapshot of " + otherName + ": " + e.getMessage() + ". Discarding the partial copy.");
+                discardImport(otherName);
+            } else {
+                System.err.println("Error obtaining info from other barrel: " + e.getMessage() + ". Using local data.");
+                db.rollback();
+            }
+        } finally {
+            if (manifest != null) {
+                try {
+                    barrelIndex.releaseSnapshot(manifest.getSessionId());
+                } catch (RemoteException e) {
+                    System.err.println("Could not release snapshot on " + otherName + ": " + e.getMessage());
+                }
+            }
+            deleteDirectory(staging);
+        }
+    }
+
+    /**
+     * Empties the stored documents, links and index before a full copy from a peer replaces them.
+     * Each Barrel assigns its own document IDs, so local dictionary entries and postings must not
+     * remain next to the peer's. The peer's replication position is forgotten until the copy completes,
+     * so a crash during the import leads to a new full copy on the next start.
+     *
+     * @param otherName Name of the peer Barrel the copy comes from
+     * @throws IOException if the index segments cannot be removed
+     */
+    private void clearLocalState(String otherName) throws IOException {
+        pagesInfo.clear();
+        adjacencyList.clear();
+        inlinkCounts.clear();
+        duplicates.clear();
+        nearDuplicates.clear();
+        documentCount.set(0);
+        peerPositions.remove(otherName);
+        index.clear();
+        db.commit();
+    }
+
+    /**
+     * Discards a partially imported snapshot. Parts of it are already committed, so a rollback is not
+     * enough: the Barrel starts empty, with an empty seen-URL filter so every URL can be crawled again,
+     * and makes a new full copy on the next start.
+     *
+     * @param otherName Name of the peer Barrel the copy came from
+     */
+    private void discardImport(String otherName) {
+        try {
+            db.rollback();
+            clearLocalState(otherName);
+            sequenceWindows.clear();
+            filter.clear();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not discard the partial snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes a directory and the files directly inside it, ignoring errors.
+     *
+     * @param directory directory to delete
+     */
+    private static void deleteDirectory(Path directory) {
+        if (!Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            System.err.println("Could not delete " + directory + ": " + e.getMessage());
         }
     }
 
     /**
      * Loads data from local MapDB storage.
      * Used when no other Barrel instance is available (first Barrel startup).
+     *
+     * @throws IOException if the index segments cannot be opened
      */
-    private void loadInfo() {
+    private void loadInfo() throws IOException {
         if(DebugConfig.DEBUG_FICHEIROS){
             System.out.println("[DEBUG] Loading info from MapDB storage...");
         }
@@ -207,75 +410,241 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
                 .transactionEnable()
                 .make();
 
-        pagesInfo = db.hashMap("pagesInfo", Serializer.STRING, Serializer.JAVA).createOrOpen();
-        adjacencyList = db.hashMap("adjacencyList", Serializer.STRING, Serializer.JAVA).createOrOpen();
-        invertedIndex = db.hashMap("invertedIndex", Serializer.STRING, Serializer.JAVA).createOrOpen();
-
-        // Load Bloom filter from file
-        File bloomFile = new File(dbPath + "_bloom.bin");
-        if (bloomFile.exists()) {
-            try (InputStream in = new FileInputStream(bloomFile)) {
-                filter = BloomFilter.readFrom(in, Funnels.unencodedCharsFunnel());
-                if(DebugConfig.DEBUG_FICHEIROS){
-                    System.out.println("[DEBUG] Bloom filter loaded from file.");
-                }
-            } catch (IOException e) {
-                if(DebugConfig.DEBUG_FICHEIROS){
-                    System.out.println("[DEBUG] Error loading Bloom filter from file. Creating new empty filter.");
+        pagesInfo = db.hashMap("documents", Serializer.STRING, new StoredDocumentSerializer()).createOrOpen();
+        adjacencyList = db.hashMap("adjacency", Serializer.STRING, new UrlSetSerializer()).createOrOpen();
+        index = new InvertedIndex(db, new File(dbPath + "_segments").toPath());
+        frontier = new CrawlFrontier(new File(dbPath + "_frontier").toPath());
+        inlinkCounts = db.hashMap("inlinkCounts", Serializer.STRING, Serializer.INTEGER).createOrOpen();
+        changeLog = new ChangeLog(db);
+        peerPositions = db.hashMap("peerPositions", Serializer.STRING, Serializer.LONG).createOrOpen();
+        boolean migrated = migrateLegacyMaps();
+        if (inlinkCounts.size() != adjacencyList.size()) {
+            rebuildInlinkCounts();
+        }
+        duplicates = db.hashMap("duplicates", Serializer.STRING, Serializer.STRING).createOrOpen();
+        nearDuplicates = new NearDuplicateIndex();
+        rebuildNearDuplicates();
+
+        // Open the Bloom filter as of its last checkpoint; a filter saved by earlier versions becomes the first stage
+        filter = ScalableBloomFilter.open(new File(dbPath + "_bloom").toPath(), expectedInsertionsBloomFilter, fpp);
+        File legacyBloomFile = new File(dbPath + "_bloom.bin");
+        if (legacyBloomFile.exists()) {
+            // Without the pages it was built with, the filter would keep an empty index from recrawling them
+            if (!migrated || documentCount.get() == 0) {
+                System.out.println("Pages of the earlier version not available, " + legacyBloomFile + " ignored: known URLs will be crawled again.");
+            } else if (filter.approximateElementCount() == 0) {
+                try (InputStream in = new FileInputStream(legacyBloomFile)) {
+                    filter.importGuavaFilter(in, expectedInsertionsBloomFilter, fpp);
+                    if(DebugConfig.DEBUG_FICHEIROS){
+                        System.out.println("[DEBUG] Bloom filter migrated from " + legacyBloomFile + ".");
+                    }
+                } catch (IOException e) {
+                    System.err.println("Could not migrate Bloom filter from " + legacyBloomFile + ": " + e.getMessage());
                 }
-                filter = BloomFilter.create(Funnels.unencodedCharsFunnel(), expectedInsertionsBloomFilter, fpp);
             }
-        } else {
-            if(DebugConfig.DEBUG_FICHEIROS){
-                System.out.println("[DEBUG] Bloom filter file not found. Creating new empty filter.");
+            if (!legacyBloomFile.delete() && DebugConfig.DEBUG_FICHEIROS) {
+                System.out.println("[DEBUG] Could not delete " + legacyBloomFile + ".");
             }
-            filter = BloomFilter.create(Funnels.unencodedCharsFunnel(), expectedInsertionsBloomFilter, fpp);
+        }
+        if(DebugConfig.DEBUG_FICHEIROS){
+            System.out.println("[DEBUG] Bloom filter loaded: " + filter.approximateElementCount() + " URLs in "
+                    + filter.stageCount() + " stages.");
         }
 
         if (DebugConfig.DEBUG_FICHEIROS) {
             System.out.println("=================== [DEBUG] ===================");
             System.out.println("PagesInfo loaded: " + pagesInfo.size());
             System.out.println("AdjacencyList loaded: " + adjacencyList.size());
-            System.out.println("InvertedIndex loaded: " + invertedIndex.size());
-            System.out.println("ExpectedSeqNumbers loaded: " + expectedSeqNumbers.size());
-            System.out.println("ReceivedSeqNumbers loaded: " + receivedSeqNumbers.size());
+            System.out.println("InvertedIndex loaded: " + index.termCount());
+            System.out.println("Documents loaded: " + index.documentCount());
+            System.out.println("SequenceWindows loaded: " + sequenceWindows.size());
             System.out.println("BloomFilter mightContain('https://example.com'): " + filter.mightContain("https://example.com"));
             System.out.println("===============================================");
         }
     }
 
     /**
-     * Persists all in-memory data structures to MapDB storage.
-     * Saves sequence numbers, Bloom filter, and commits transaction.
+     * Moves data stored by earlier versions into the current maps, committing every
+     * {@value #MIGRATION_BATCH_SIZE} pages. An old map is emptied once copied, and copying is
+     * idempotent, so a migration interrupted by a crash resumes on the next start.
+     * <ul>
+     *     <li>"pagesInfo" holds full pages, stored as documents and re-indexed from their words.</li>
+     *     <li>"storedPages" holds documents whose postings are already in the index.</li>
+     *     <li>"adjacencyList" holds inlink sets, merged into the current ones.</li>
+     *     <li>"invertedIndex" maps words to URLs; it is dropped, since the pages are re-indexed.</li>
+     * </ul>
      *
-     * @throws IOException if file writing fails
+     * @return true if there was nothing to migrate or every old map was migrated
      */
-    private void saveInfo() throws IOException {
-        ConcurrentMap<String, Integer> dbExpected = db.hashMap("expectedSeqNumbers",
-                Serializer.STRING, Serializer.INTEGER).createOrOpen();
-        dbExpected.clear();
-        dbExpected.putAll(expectedSeqNumbers);
+    @SuppressWarnings("unchecked")
+    private boolean migrateLegacyMaps() {
+        try {
+            if (db.exists("pagesInfo")) {
+                ConcurrentMap<String, Object> legacyPages = db.hashMap("pagesInfo", Serializer.STRING, Serializer.JAVA).createOrOpen();
+                Map<String, List<String>> pageWords = new LinkedHashMap<>();
+                for (Object value : legacyPages.values()) {
+                    PageInfo page = withSimHash((PageInfo) value);
+                    pagesInfo.put(page.getUrl(), StoredDocument.from(page));
+                    pageWords.put(page.getUrl(), page.getWords());
+                    if (pageWords.size() >= MIGRATION_BATCH_SIZE) {
+                        index.addDocuments(pageWords);
+                        pageWords.clear();
+                        db.commit();
+                        index.flushIfNeeded();
+                    }
+                }
+                index.addDocuments(pageWords);
+                System.out.println("Migrated " + pagesInfo.size() + " pages of an earlier version.");
+                legacyPages.clear();
+                if (db.exists("invertedIndex")) {
+                    db.hashMap("invertedIndex", Serializer.STRING, Serializer.JAVA).createOrOpen().clear();
+                }
+                db.commit();
+                index.flushIfNeeded();
+            }
+            if (db.exists("storedPages")) {
+                ConcurrentMap<String, Object> legacyDocuments = db.hashMap("storedPages", Serializer.STRING, Serializer.JAVA).createOrOpen();
+                for (Object value : legacyDocuments.values()) {
+                    StoredDocument document = (StoredDocument) value;
+                    pagesInfo.put(document.getUrl(), document);
+                }
+                legacyDocuments.clear();
+                db.commit();
+            }
+            if (db.exists("adjacencyList")) {
+                ConcurrentMap<String, Object> legacyAdjacency = db.hashMap("adjacencyList", Serializer.STRING, Serializer.JAVA).createOrOpen();
+                for (Map.Entry<String, Object> entry : legacyAdjacency.entrySet()) {
+                    Set<String> inlinks = new HashSet<>((Set<String>) entry.getValue());
+                    Set<String> current = adjacencyList.get(entry.getKey());
+                    if (current != null) inlinks.addAll(current);
+                    adjacencyList.put(entry.getKey(), inlinks);
+                }
+                legacyAdjacency.clear();
+                db.commit();
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // Unreadable values (classes changed incompatibly) or a corrupt map
+            System.err.println("Could not migrate data of an earlier version: " + e.getMessage());
+            db.rollback();
+            return false;
+        }
+    }
 
-        ConcurrentMap<String, Set<Integer>> dbReceived = db.hashMap("receivedSeqNumbers", Serializer.STRING, Serializer.JAVA).createOrOpen();
-        dbReceived.clear();
-        dbReceived.putAll(receivedSeqNumbers);
+    /**
+     * Recomputes the inlink count of every URL from the adjacency list.
+     * Used when the adjacency list was copied in bulk or predates the counters.
+     */
+    private void rebuildInlinkCounts() {
+        inlinkCounts.clear();
+        for (Map.Entry<String, Set<String>> entry : adjacencyList.entrySet()) {
+            inlinkCounts.put(entry.getKey(), entry.getValue().size());
+        }
+    }
 
-        db.commit();
+    /**
+     * Rebuilds the near-duplicate index from the fingerprints of the stored pages, and counts the pages.
+     */
+    private void rebuildNearDuplicates() {
+        nearDuplicates.clear();
+        int count = 0;
+        for (StoredDocument document : pagesInfo.values()) {
+            count++;
+            if (document.getSimHash() != SimHash.NONE) nearDuplicates.put(document.getUrl(), document.getSimHash());
+        }
+        documentCount.set(count);
+    }
 
-        // Save Bloom filter to separate file
-        try (OutputStream out = new FileOutputStream(dbPath + "_bloom.bin")) {
-            synchronized (filterLock){
-                filter.writeTo(out);
+    /**
+     * Stores the document of a page, replacing any previous version, and updates the page counters.
+     *
+     * @param page page to store
+     */
+    private void storeDocument(PageInfo page) {
+        if (pagesInfo.put(page.getUrl(), StoredDocument.from(page)) == null) {
+            documentCount.incrementAndGet();
+        }
+        storedPages.incrementAndGet();
+    }
+
+    /**
+     * Returns the page with its SimHash fingerprint, computing it if the sender did not
+     * (older Downloaders, or messages replayed from a change log).
+     *
+     * @param page received page
+     * @return the page with a fingerprint, or the same page if it has too few words to get one
+     */
+    private static PageInfo withSimHash(PageInfo page) {
+        if (page.getSimHash() != SimHash.NONE) return page;
+        long fingerprint = SimHash.fingerprint(page.getWords());
+        if (fingerprint == SimHash.NONE) return page;
+        return new PageInfo(page.getTitle(), page.getUrl(), page.getWords(), page.getSmallText(), fingerprint);
+    }
+
+    /**
+     * Checks whether a received page is a near-duplicate of a stored page, in which case it is
+     * collapsed into that page's cluster instead of being stored and indexed. A URL that is already
+     * stored is always re-indexed, with its fingerprint updated.
+     *
+     * @param page received page, with its fingerprint
+     * @return the URL of the stored page it duplicates, or null if the page must be indexed
+     */
+    private String nearDuplicateOf(PageInfo page) {
+        if (page.getSimHash() == SimHash.NONE) return null;
+        if (pagesInfo.containsKey(page.getUrl())) {
+            nearDuplicates.put(page.getUrl(), page.getSimHash());
+            return null;
+        }
+
+        String original = nearDuplicates.addIfUnique(page.getUrl(), page.getSimHash());
+        if (original != null) {
+            duplicates.put(page.getUrl(), original);
+            if (DebugConfig.DEBUG_URL_INDEXAR) {
+                System.out.println("[DEBUG] Near-duplicate of " + original + " not indexed: " + page.getUrl());
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        } else {
+            duplicates.remove(page.getUrl());
         }
+        return original;
+    }
+
+    /**
+     * Persists all in-memory data structures to MapDB storage.
+     * Saves sequence numbers and commits transaction, then checkpoints the frontier and Bloom filter.
+     *
+     * @throws IOException if file writing fails
+     */
+    private void saveInfo() throws IOException {
+        ConcurrentMap<String, SequenceWindow> dbWindows = db.hashMap("sequenceWindows",
+                Serializer.STRING, new SequenceWindow.WindowSerializer()).createOrOpen();
+        dbWindows.clear();
+        dbWindows.putAll(getSequenceWindows());
+
+        db.commit();
+        checkpointCrawlState();
 
         if(DebugConfig.DEBUG_FICHEIROS){
             System.out.println("[DEBUG] Info saved to MapDB storage.");
         }
     }
 
+    /**
+     * Checkpoints the Bloom filter and the crawl frontier together, so that after a crash no URL is
+     * restored as seen without also being restored as queued. The filter is written first; admissions
+     * running meanwhile finish queuing their URLs before the frontier is written, and the filter's
+     * checkpoint is only committed once the frontier's is. URLs queued after the filter was written are
+     * restored as not seen and may be queued twice, which only costs a download.
+     *
+     * @throws IOException if a checkpoint cannot be written
+     */
+    private synchronized void checkpointCrawlState() throws IOException {
+        filter.prepareCheckpoint();
+        admissionLock.writeLock().lock();
+        admissionLock.writeLock().unlock();
+        frontier.checkpoint();
+        filter.commitCheckpoint();
+    }
+
     /**
      * Returns system statistics including index size and response times.
      *
@@ -283,12 +652,67 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
      * @throws RemoteException if RMI communication fails
      */
     public SystemStats getStats() throws RemoteException {
-        int indexSize = pagesInfo.size();
+        int indexSize = documentCount.get();
         long avgTime = calculateAvgResponseTime();
         stats.updateBarrelMetrics(registryName, indexSize, avgTime);
+        stats.updateSeenUrlMetrics(registryName, filter.approximateElementCount(), filter.memoryBytes(), filter.expectedFpp());
         return stats;
     }
 
+    /**
+     * Returns the size and growth of the index.
+     * Every value is read from counters, so the call is cheap whatever the size of the index.
+     *
+     * @return IndexStats object containing document and term counts, disk size and ingest rate
+     * @throws RemoteException if RMI communication fails
+     */
+    public IndexStats getIndexStats() throws RemoteException {
+        return new IndexStats(registryName, documentCount.get(), index.termCount(), diskBytes(), ingestRate());
+    }
+
+    /**
+     * Returns the number of pages stored per second over the last interval of at least
+     * {@value #INGEST_RATE_INTERVAL_MS} ms. A new interval starts when the statistics are read after that time.
+     *
+     * @return Ingest rate in pages per second
+     */
+    private double ingestRate() {
+        synchronized (ingestRateLock) {
+            long now = System.nanoTime();
+            long elapsedMs = (now - ingestSampleNanos) / 1_000_000;
+            if (elapsedMs >= INGEST_RATE_INTERVAL_MS) {
+                long pages = storedPages.get();
+                ingestRate = (pages - ingestSamplePages) * 1000.0 / elapsedMs;
+                ingestSamplePages = pages;
+                ingestSampleNanos = now;
+            }
+            return ingestRate;
+        }
+    }
+
+    /**
+     * Returns the size of the MapDB file and of the files named after it (write-ahead log,
+     * index segments, frontier and Bloom filter).
+     *
+     * @return Size on disk in bytes, or 0 if the directory cannot be read
+     */
+    private long diskBytes() {
+        Path dbFile = Paths.get(dbPath).toAbsolutePath();
+        String prefix = dbFile.getFileName().toString();
+        long bytes = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dbFile.getParent(),
+                entry -> entry.getFileName().toString().startsWith(prefix))) {
+            for (Path entry : entries) {
+                try (Stream<Path> files = Files.walk(entry)) {
+                    bytes += files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Could not measure the size of " + dbPath + ": " + e.getMessage());
+        }
+        return bytes;
+    }
+
     /**
      * Calculates average response time from recorded search operations.
      *
@@ -327,11 +751,10 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
         List<Integer> missingSeqNumbers = new ArrayList<>();
 
         synchronized (messageLock) {
-            Set<Integer> received = receivedSeqNumbers.computeIfAbsent(nome, k -> new HashSet<>());
-            expectedSeqNumbers.computeIfAbsent(nome, k -> 0);
+            SequenceWindow window = sequenceWindows.computeIfAbsent(nome, k -> new SequenceWindow());
 
             // Check for duplicate messages
-            if (received.contains(seqNumber)) {
+            if (window.contains(seqNumber)) {
                 if (DebugConfig.DEBUG_MULTICAST_DOWNLOADER || DebugConfig.DEBUG_ALL) {
                     System.out.println("[DEBUG] Duplicate message received with seqNumber: " + seqNumber + ". Ignored.");
                 }
@@ -339,21 +762,76 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
             }
 
             // Detect gaps in sequence numbers
-            int expectedSeqNumber = expectedSeqNumbers.get(nome);
+            int expectedSeqNumber = window.expected();
             if (seqNumber > expectedSeqNumber) {
                 System.out.println("Gap detected! Expected " + expectedSeqNumber + ", received " + seqNumber);
-                for (int missing = expectedSeqNumber; missing < seqNumber; missing++) {
-                    if (!received.contains(missing)) {
-                        missingSeqNumbers.add(missing);
+                missingSeqNumbers.addAll(window.missingBelow(seqNumber));
+            }
+
+            window.add(seqNumber);
+            System.out.println("Message applied with seqNumber: " + seqNumber + " (expected now=" + window.expected() + ")");
+        }
+
+        // Request missing messages outside lock
+        for (int missing : missingSeqNumbers) {
+            System.out.println("Requesting resend of message with seqNumber: " + missing);
+            new Thread(() -> requestMissingMessage(missing, nome, ip, port)).start();
+        }
+
+        // Apply message effects for this Barrel's shard; a near-duplicate is not indexed and its links count for the page it duplicates
+        String source = page.getUrl();
+        if (owns(page.getUrl())) {
+            page = withSimHash(page);
+            String original = nearDuplicateOf(page);
+            if (original == null) addPageInfo(page);
+            else source = original;
+            markSeen(List.of(page.getUrl()));
+        }
+        for (String link : urls) {
+            if (owns(link)) addAdjacency(source, link);
+        }
+        admitUrls(urls);
+        changeLog.append(new HistoryMessage(seqNumber, page, urls));
+    }
+
+    /**
+     * Receives a batch of messages from a Downloader and applies them as one group commit.
+     * Sequence numbers are checked once for the whole batch; the pages' postings, adjacencies and
+     * outgoing links are accumulated in memory and merged into the index in a single pass,
+     * followed by a single MapDB transaction commit.
+     *
+     * @param messages Messages to apply, each with its own sequence number
+     * @param nome Name of the sender (Downloader)
+     * @param ip IP address of the sender
+     * @param port Port of the sender
+     * @return Next sequence number expected from the sender, acknowledging every lower one
+     * @throws RemoteException if RMI communication fails
+     */
+    public int receiveMessages(List<HistoryMessage> messages, String nome, String ip, Integer port) throws RemoteException {
+        List<HistoryMessage> accepted = new ArrayList<>();
+        List<Integer> missingSeqNumbers = new ArrayList<>();
+        int acknowledged;
+
+        synchronized (messageLock) {
+            SequenceWindow window = sequenceWindows.computeIfAbsent(nome, k -> new SequenceWindow());
+            if (messages == null || messages.isEmpty()) return window.expected();
+            int maxSeqNumber = window.expected();
+
+            for (HistoryMessage message : messages) {
+                if (!window.add(message.getSeqNumber())) {
+                    if (DebugConfig.DEBUG_MULTICAST_DOWNLOADER || DebugConfig.DEBUG_ALL) {
+                        System.out.println("[DEBUG] Duplicate message received with seqNumber: " + message.getSeqNumber() + ". Ignored.");
                     }
+                    continue;
                 }
+                accepted.add(message);
+                maxSeqNumber = Math.max(maxSeqNumber, message.getSeqNumber());
             }
 
-            received.add(seqNumber);
-            int e = expectedSeqNumber;
-            while (received.contains(e)) e++;
-            expectedSeqNumbers.put(nome, e);
-            System.out.println("Message applied with seqNumber: " + seqNumber + " (expected now=" + e + ")");
+            // Detect gaps below the highest sequence number of the batch
+            missingSeqNumbers.addAll(window.missingBelow(maxSeqNumber));
+            acknowledged = window.expected();
+            System.out.println("Batch of " + accepted.size() + " messages applied (expected now=" + acknowledged + ")");
         }
 
         // Request missing messages outside lock
@@ -362,21 +840,171 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
             new Thread(() -> requestMissingMessage(missing, nome, ip, port)).start();
         }
 
-        // Apply message effects
-        addPageInfo(page);
-        for (String link : urls) {
-            addAdjacency(page.getUrl(), link);
-            addUrlToQueue(link);
+        applyBatch(accepted);
+        return acknowledged;
+    }
+
+    /**
+     * Applies a batch of pages: stores documents, merges postings and adjacencies once per key,
+     * admits the outgoing links and commits the MapDB transaction once.
+     * Only the pages, inlinks and links of this Barrel's shard are kept; other pages only count as
+     * the source of inlinks. Near-duplicates of stored pages are not stored or indexed; their links
+     * are attributed to the page they duplicate (see {@link #nearDuplicateOf}).
+     *
+     * @param messages Messages to apply
+     * @throws RemoteException if RMI communication fails
+     */
+    private void applyBatch(List<HistoryMessage> messages) throws RemoteException {
+        if (messages.isEmpty()) return;
+
+        Map<String, List<String>> pageWords = new LinkedHashMap<>();
+        Map<String, Set<String>> inlinksByTarget = new HashMap<>();
+        Set<String> links = new LinkedHashSet<>();
+        List<String> pageUrls = new ArrayList<>();
+        int collapsed = 0;
+
+        for (HistoryMessage message : messages) {
+            changeLog.append(message);
+            String source = message.getPage().getUrl();
+
+            if (owns(source)) {
+                PageInfo page = withSimHash(message.getPage());
+                pageUrls.add(page.getUrl());
+                String original = nearDuplicateOf(page);
+                if (original == null) {
+                    storeDocument(page);
+                    pageWords.put(page.getUrl(), page.getWords());
+                } else {
+                    source = original;
+                    collapsed++;
+                }
+            }
+            for (String link : message.getUrls()) {
+                if (!owns(link)) continue;
+                inlinksByTarget.computeIfAbsent(link, k -> new HashSet<>()).add(source);
+                links.add(link);
+            }
         }
+
+        index.addDocuments(pageWords);
+        addAdjacencies(inlinksByTarget);
+        markSeen(pageUrls);
+        admitUrls(links);
+
+        db.commit();
+        index.flushIfNeeded();
+        System.out.println("Group commit of " + pageWords.size() + " of " + messages.size() + " pages (" + collapsed + " near-duplicates) and "
+                + links.size() + " links.");
+    }
+
+    /**
+     * Prepares a snapshot of this Barrel for a new Barrel and publishes it on the snapshot server.
+     *
+     * <p>The change log position is read first, then the memtable is flushed and the segment files
+     * are opened, and finally pages, adjacency sets, the dictionary and the Bloom filter are
+     * exported to temporary files. None of this blocks searches; ingest only pauses for the flush.
+     *
+     * @return Manifest of the snapshot files and where to download them
+     * @throws RemoteException if the snapshot cannot be prepared
+     */
+    public SnapshotManifest prepareSnapshot() throws RemoteException {
+        List<Path> temporaryFiles = new ArrayList<>();
+        LinkedHashMap<String, FileChannel> files = new LinkedHashMap<>();
+        try {
+            long position = changeLog.position();
+            LinkedHashMap<String, FileChannel> segmentFiles = index.openSnapshotSegments();
+
+            Path directory = Files.createDirectories(Paths.get(dbPath + "_snapshots"));
+            Path state = Files.createTempFile(directory, "state", ".bin");
+            temporaryFiles.add(state);
+            BarrelSnapshot.exportState(state, pagesInfo, adjacencyList, index.getDocuments());
+
+            Path bloom = Files.createTempFile(directory, "bloom", ".bin");
+            temporaryFiles.add(bloom);
+            try (OutputStream out = Files.newOutputStream(bloom)) {
+                filter.writeTo(out);
+            }
+
+            files.put(BarrelSnapshot.STATE_FILE, FileChannel.open(state, StandardOpenOption.READ));
+            files.put(BarrelSnapshot.BLOOM_FILE, FileChannel.open(bloom, StandardOpenOption.READ));
+            files.putAll(segmentFiles);
+
+            synchronized (this) {
+                if (snapshotServer == null) {
+                    snapshotServer = new SnapshotServer(System.getProperty("java.rmi.server.hostname"));
+                }
+            }
+            SnapshotManifest manifest = snapshotServer.publish(position, files, temporaryFiles);
+            System.out.println("Snapshot prepared: " + manifest.getFiles().size() + " files, change position " + position);
+            return manifest;
+        } catch (IOException e) {
+            for (FileChannel channel : files.values()) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+            }
+            for (Path file : temporaryFiles) file.toFile().delete();
+            throw new RemoteException("Could not prepare snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Releases a snapshot once the new Barrel has downloaded it.
+     *
+     * @param sessionId Session identifier from the snapshot manifest
+     * @throws RemoteException if RMI communication fails
+     */
+    public void releaseSnapshot(String sessionId) throws RemoteException {
+        if (snapshotServer != null) {
+            snapshotServer.release(sessionId);
+        }
+    }
+
+    /**
+     * Returns the position of the last change in this Barrel's change log.
+     *
+     * @return current change log position
+     * @throws RemoteException if RMI communication fails
+     */
+    public long getChangePosition() throws RemoteException {
+        return changeLog.position();
+    }
+
+    /**
+     * Returns a page of the changes this Barrel applied after a position, for peer catch-up.
+     *
+     * @param position Last change log position the caller applied
+     * @param maxChanges Maximum number of changes to return
+     * @return Page of changes, truncated if the position is no longer retained
+     * @throws RemoteException if RMI communication fails
+     */
+    public ChangeBatch getChangesSince(long position, int maxChanges) throws RemoteException {
+        return changeLog.since(position, maxChanges);
     }
 
     /**
      * Gracefully shuts down the Barrel, saving all data to disk.
+     * The peer's current change log position is recorded first: while both Barrels were up they
+     * received the same messages, so the next start only needs the changes made after this point.
      */
     public void shutdown() {
         try {
+            checkpoints.shutdown();
+            checkpoints.awaitTermination(CHECKPOINT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (peer != null && peerPositions != null) {
+                try {
+                    peerPositions.put(peerName, peer.getChangePosition());
+                } catch (RemoteException e) {
+                    System.out.println("Could not record replication position of " + peerName + ": " + e.getMessage());
+                }
+            }
             if (db != null && !db.isClosed()) {
+                index.close();
                 saveInfo();
+                frontier.close();
+                filter.close();
                 db.commit();
                 db.close();
                 System.out.println("Barrel shut down successfully");
@@ -387,33 +1015,79 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
     }
 
     /**
-     * Adds a URL to the processing queue if not already indexed.
+     * Adds a URL to the crawl frontier if not already indexed.
+     * Its priority is the number of inlinks known when it is added.
      *
      * @param url URL to add to queue
-     * @return true if URL was added, false if already indexed
+     * @return true if URL was added, false if already indexed, not a valid http(s) URL or of another shard
      * @throws RemoteException if RMI communication fails
      */
     public boolean addUrlToQueue(String url) throws RemoteException {
-        synchronized (filterLock) {
-            if (mightContain(url)) {
-                System.out.println("[DEBUG] URL already indexed, not added to queue: " + url);
-                return false;
-            }
+        return !admitUrls(List.of(url)).isEmpty();
+    }
+
+    /**
+     * Marks the URLs of stored pages as seen, so they are not queued again. A page may be stored
+     * under a URL that was never queued, e.g. the canonical URL it declares.
+     *
+     * @param urls URLs of stored pages
+     * @throws RemoteException if the Bloom filter cannot grow
+     */
+    private void markSeen(Collection<String> urls) throws RemoteException {
+        try {
+            filter.putAll(urls);
+        } catch (IOException e) {
+            throw new RemoteException("Error adding URLs to Bloom filter", e);
         }
+    }
+
+    /**
+     * Adds the links of a batch that were not seen before to the crawl frontier, each with the number
+     * of inlinks known when it is added as its priority. Links are first canonicalised with
+     * {@link UrlCanonicalizer}, so variants of one URL are admitted once, and links of other shards
+     * are dropped. They are then marked as seen
+     * with one put-if-absent call on the Bloom filter, which does not serialise concurrent batches,
+     * and the new ones are queued with a single frontier call.
+     *
+     * @param urls links to admit
+     * @return the canonical links that were added to the frontier
+     * @throws RemoteException if the Bloom filter cannot grow
+     */
+    private List<String> admitUrls(Collection<String> urls) throws RemoteException {
+        List<String> canonical = UrlCanonicalizer.canonicalizeAll(urls);
+        canonical.removeIf(url -> !owns(url));
 
-        synchronized (queueLock) {
-            urlQueue.add(url);
-            addToBloomFilter(url);
-            System.out.println("[DEBUG] URL added to queue: " + url);
+        List<String> admitted;
+        admissionLock.readLock().lock();
+        try {
+            try {
+                admitted = filter.putAll(canonical);
+            } catch (IOException e) {
+                throw new RemoteException("Error adding URLs to Bloom filter", e);
+            }
+            if (admitted.isEmpty()) return admitted;
+
+            Map<String, Integer> priorities = new LinkedHashMap<>();
+            for (String url : admitted) {
+                priorities.put(url, inlinkCount(url));
+            }
+            frontier.addAll(priorities);
+        } finally {
+            admissionLock.readLock().unlock();
         }
 
-        return true;
+        if (DebugConfig.DEBUG_URL_INDEXAR) {
+            System.out.println("[DEBUG] " + admitted.size() + " of " + urls.size() + " URLs added to queue: " + admitted);
+        }
+        return admitted;
     }
 
 
     /**
-     * Adds a URL to the processing queue with sequence number tracking.
+     * Adds a URL to the crawl frontier with sequence number tracking.
      * Handles duplicate detection and missing message recovery from Gateway.
+     * URLs submitted by users are crawled before discovered links.
+     * URLs of another shard only advance the Gateway's sequence number.
      *
      * @param url URL to add
      * @param seqNumber Sequence number from Gateway
@@ -437,10 +1111,10 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
 
         // Check duplicates and detect gaps
         synchronized (messageLock) {
-            Set<Integer> received = receivedSeqNumbers.computeIfAbsent(nome, k -> new HashSet<>());
-            int expectedSeqNumber = expectedSeqNumbers.computeIfAbsent(nome, k -> 0);
+            SequenceWindow window = sequenceWindows.computeIfAbsent(nome, k -> new SequenceWindow());
+            int expectedSeqNumber = window.expected();
 
-            if (received.contains(seqNumber)) {
+            if (window.contains(seqNumber)) {
                 if (DebugConfig.DEBUG_MULTICAST_DOWNLOADER || DebugConfig.DEBUG_ALL) {
                     System.out.println("[DEBUG] SeqNumber " + seqNumber + " duplicate. Ignored.");
                 }
@@ -449,21 +1123,12 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
 
             if (seqNumber > expectedSeqNumber) {
                 System.out.println("Gap detected! Expected " + expectedSeqNumber + ", received " + seqNumber);
-
-                for (int missing = expectedSeqNumber; missing < seqNumber; missing++) {
-                    if (!received.contains(missing)) {
-                        missingSeqNumbers.add(missing);
-                    }
-                }
+                missingSeqNumbers.addAll(window.missingBelow(seqNumber));
             }
 
-            received.add(seqNumber);
-
-            int e = expectedSeqNumber;
-            while (received.contains(e)) e++;
-            expectedSeqNumbers.put(nome, e);
+            window.add(seqNumber);
 
-            System.out.println("SeqNumber " + seqNumber + " processed. Expected now: " + e);
+            System.out.println("SeqNumber " + seqNumber + " processed. Expected now: " + window.expected());
         }
 
         // Request missing URLs outside lock
@@ -472,22 +1137,36 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
             new Thread(() -> requestMissingUrl(missing, nome, ip, port)).start();
         }
 
-        boolean urlAdded = false;
+        String canonical = UrlCanonicalizer.canonicalize(url);
+        if (canonical == null) {
+            if (DebugConfig.DEBUG_URL_INDEXAR) {
+                System.out.println("[DEBUG] Not a valid URL, ignored: " + url);
+            }
+            return false;
+        }
+        url = canonical;
+        if (!owns(url)) {
+            // Sent to every Barrel to keep the sequence numbers contiguous; crawled by another shard
+            return false;
+        }
 
         // Check if URL already indexed
-        synchronized (filterLock) {
-            if (mightContain(url)) {
-                System.out.println("[DEBUG] URL already indexed: " + url);
-            } else {
-                synchronized (queueLock) {
-                    urlQueue.add(url);
-                    addToBloomFilter(url);
-                    urlAdded = true;
-                    if (DebugConfig.DEBUG_URL_INDEXAR) {
-                        System.out.println("[DEBUG] URL added: " + url);
-                    }
-                }
+        boolean urlAdded;
+        admissionLock.readLock().lock();
+        try {
+            urlAdded = filter.put(url);
+            if (urlAdded) frontier.add(url, CrawlFrontier.SEED_PRIORITY);
+        } catch (IOException e) {
+            throw new RemoteException("Error adding URL to Bloom filter", e);
+        } finally {
+            admissionLock.readLock().unlock();
+        }
+        if (urlAdded) {
+            if (DebugConfig.DEBUG_URL_INDEXAR) {
+                System.out.println("[DEBUG] URL added: " + url);
             }
+        } else {
+            System.out.println("[DEBUG] URL already indexed: " + url);
         }
 
         return urlAdded;
@@ -523,6 +1202,12 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
                 System.err.println("Name not bound in RMI Registry: " + nome);
             }
         } catch (RemoteException e) {
+            MessageTooOldException tooOld = tooOld(e);
+            if (tooOld != null) {
+                // URLs submitted to the Gateway cannot be recovered elsewhere: only stop waiting for them
+                skipMissing(nome, tooOld.getOldestAvailable());
+                return;
+            }
             if (DebugConfig.DEBUG_MULTICAST_DOWNLOADER) {
                 System.err.println("RMI error requesting resend of URL " + missingSeqNumber + ": " + e.getMessage());
             }
@@ -531,25 +1216,20 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
 
     /**
      * Adds page information to the index and updates the inverted index.
+     * Only a compact {@link StoredDocument} is persisted; the page's word list is used for indexing and then dropped.
+     * The page URL is mapped to a document ID and that ID is added, with the word's term frequency,
+     * to the posting list of each distinct word. The page length is recorded for BM25 scoring.
      *
      * @param pageInfo Page information to add
      * @throws RemoteException if RMI communication fails
      */
     public void addPageInfo(PageInfo pageInfo) throws RemoteException {
-        synchronized (pageInfoLock) {
-            pagesInfo.put(pageInfo.getUrl(), pageInfo);
-        }
+        storeDocument(pageInfo);
 
-        // Update inverted index with page words
-        synchronized (invertedIndexLock) {
-            for (String word : pageInfo.getWords()) {
-                String lowerWord = word.toLowerCase();
-                Set<String> urls = invertedIndex.getOrDefault(lowerWord, ConcurrentHashMap.newKeySet());
-                urls.add(pageInfo.getUrl());
-                invertedIndex.put(lowerWord, urls);
-            }
-            System.out.println("Updated inverted index for URL: " + pageInfo.getUrl());
-        }
+        // Update inverted index with page words (striped per term, never blocks searches)
+        index.addDocument(pageInfo.getUrl(), pageInfo.getWords());
+        index.flushIfNeeded();
+        System.out.println("Updated inverted index for URL: " + pageInfo.getUrl());
     }
 
     /**
@@ -560,84 +1240,113 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
      * @throws RemoteException if RMI communication fails
      */
     public void addAdjacency(String fromUrl, String toUrl) throws RemoteException {
-        synchronized (adjacencyLock) {
+        Lock lock = adjacencyLocks.get(toUrl);
+        lock.lock();
+        try {
             Set<String> adjacencies = adjacencyList.getOrDefault(toUrl, ConcurrentHashMap.newKeySet());
-            adjacencies.add(fromUrl);
-            adjacencyList.put(toUrl, adjacencies);
+            if (adjacencies.add(fromUrl)) {
+                adjacencyList.put(toUrl, adjacencies);
+                inlinkCounts.put(toUrl, adjacencies.size());
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Adds a URL to the Bloom filter for fast existence checks.
+     * Adds many adjacency relationships at once, rewriting each target's inlink set only once.
      *
-     * @param url URL to add
-     * @throws RemoteException if RMI communication fails
+     * @param inlinksByTarget Map of target URLs to the source URLs pointing to them
      */
-    private void addToBloomFilter(String url) throws RemoteException{
-        synchronized (filterLock){
-            filter.put(url);
-            if(DebugConfig.DEBUG_URL_INDEXAR) {
-                System.out.println("[DEBUG] URL added to Bloom filter: " + url);
+    private void addAdjacencies(Map<String, Set<String>> inlinksByTarget) {
+        for (Map.Entry<String, Set<String>> entry : inlinksByTarget.entrySet()) {
+            String toUrl = entry.getKey();
+            Lock lock = adjacencyLocks.get(toUrl);
+            lock.lock();
+            try {
+                Set<String> adjacencies = adjacencyList.getOrDefault(toUrl, ConcurrentHashMap.newKeySet());
+                if (adjacencies.addAll(entry.getValue())) {
+                    adjacencyList.put(toUrl, adjacencies);
+                    inlinkCounts.put(toUrl, adjacencies.size());
+                }
+            } finally {
+                lock.unlock();
             }
         }
     }
 
     /**
-     * Checks if a URL might have been already indexed using Bloom filter.
+     * Leases a batch of URLs from the crawl frontier, at most one per host, respecting each host's
+     * politeness delay. URLs not reported by {@link #completeUrls(List)} within the lease timeout
+     * are handed out again. If no host may be contacted now, waits for one up to {@code waitMs}
+     * (capped at {@value #MAX_LEASE_WAIT_MS} ms) instead of returning an empty batch at once.
      *
-     * @param url URL to check
-     * @return true if URL might exist, false if definitely doesn't exist
+     * @param maxUrls Maximum number of URLs
+     * @param waitMs Maximum time to wait for URLs, 0 to return immediately
+     * @return URLs to download, best first; empty if none became available in time
+     * @throws RemoteException if RMI communication fails
      */
-    private boolean mightContain(String url) {
-        return filter.mightContain(url);
+    public List<String> leaseUrls(int maxUrls, long waitMs) throws RemoteException {
+        try {
+            return frontier.lease(maxUrls, Math.min(waitMs, MAX_LEASE_WAIT_MS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while waiting for URLs", e);
+        }
     }
 
     /**
-     * Retrieves and removes the next URL from the processing queue.
+     * Reports leased URLs as done (downloaded and delivered, or failed), so they are not handed out again.
      *
-     * @return Next URL or null if queue is empty
+     * @param urls URLs returned by {@link #leaseUrls(int, long)}
      * @throws RemoteException if RMI communication fails
      */
-    public String getUrlFromQueue() throws RemoteException {
-        synchronized (queueLock){
-            return urlQueue.poll();
-        }
+    public void completeUrls(List<String> urls) throws RemoteException {
+        frontier.complete(urls);
     }
 
     /**
-     * Returns a copy of expected sequence numbers map.
+     * Returns the next sequence number expected from a sender; every lower one was received.
+     * Senders use it to release their re-transmission history.
      *
-     * @return Map of sender names to expected sequence numbers
+     * @param nome Sender name
+     * @return Acknowledged sequence number, 0 if nothing was received from the sender
      * @throws RemoteException if RMI communication fails
      */
-    public ConcurrentMap<String, Integer> getExpectedSeqNumber() throws RemoteException {
-        return new ConcurrentHashMap<>(expectedSeqNumbers);
+    public int getAcknowledgedSeqNumber(String nome) throws RemoteException {
+        synchronized (messageLock) {
+            SequenceWindow window = sequenceWindows.get(nome);
+            return window == null ? 0 : window.expected();
+        }
     }
 
     /**
-     * Returns a deep copy of received sequence numbers map.
+     * Returns a copy of the sequence windows of all senders.
+     * Each window has a constant size, whatever the number of messages received.
      *
-     * @return Map of sender names to sets of received sequence numbers
+     * @return Map of sender names to their received sequence numbers
      * @throws RemoteException if RMI communication fails
      */
-    public ConcurrentMap<String, Set<Integer>> getReceivedSeqNumbers() throws RemoteException {
-        ConcurrentMap<String, Set<Integer>> copy = new ConcurrentHashMap<>();
-        for (Map.Entry<String, Set<Integer>> entry : receivedSeqNumbers.entrySet()) {
-            copy.put(entry.getKey(), new HashSet<>(entry.getValue()));
+    public ConcurrentMap<String, SequenceWindow> getSequenceWindows() throws RemoteException {
+        ConcurrentMap<String, SequenceWindow> copy = new ConcurrentHashMap<>();
+        synchronized (messageLock) {
+            for (Map.Entry<String, SequenceWindow> entry : sequenceWindows.entrySet()) {
+                copy.put(entry.getKey(), entry.getValue().copy());
+            }
         }
         return copy;
     }
 
     /**
      * Returns a copy of the pages info map.
+     * Every stored document is copied and sent, so the cost grows with the index; use
+     * {@link #getIndexStats()} to read the document count.
      *
-     * @return Map of URLs to PageInfo objects
+     * @return Map of URLs to stored documents
      * @throws RemoteException if RMI communication fails
      */
-    public ConcurrentMap<String, PageInfo> getPagesInfoMap() throws RemoteException {
-        synchronized (pageInfoLock) {
-            return new ConcurrentHashMap<>(pagesInfo);
-        }
+    public ConcurrentMap<String, StoredDocument> getPagesInfoMap() throws RemoteException {
+        return new ConcurrentHashMap<>(pagesInfo);
     }
 
     /**
@@ -647,13 +1356,11 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
      * @throws RemoteException if RMI communication fails
      */
     public ConcurrentMap<String, Set<String>> getAdjacencyListMap() throws RemoteException {
-        synchronized (adjacencyLock) {
-            ConcurrentMap<String, Set<String>> copy = new ConcurrentHashMap<>();
-            for (Map.Entry<String, Set<String>> entry : adjacencyList.entrySet()) {
-                copy.put(entry.getKey(), new HashSet<>(entry.getValue()));
-            }
-            return copy;
+        ConcurrentMap<String, Set<String>> copy = new ConcurrentHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : adjacencyList.entrySet()) {
+            copy.put(entry.getKey(), new HashSet<>(entry.getValue()));
         }
+        return copy;
     }
 
     /**
@@ -663,30 +1370,42 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
      * @throws RemoteException if RMI communication or serialization fails
      */
     public byte[] getBloomFilterBytes() throws RemoteException {
-        synchronized (filterLock){
-            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                filter.writeTo(out);
-                return out.toByteArray();
-            } catch (IOException e) {
-                throw new RemoteException("Error getting Bloom filter bytes", e);
-            }
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            filter.writeTo(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new RemoteException("Error getting Bloom filter bytes", e);
         }
     }
 
     /**
-     * Returns a deep copy of the inverted index.
+     * Returns a copy of the inverted index.
      *
-     * @return Map of words to sets of URLs containing them
+     * @return Map of words to encoded posting lists of document IDs (see {@link PostingList})
      * @throws RemoteException if RMI communication fails
      */
-    public ConcurrentMap<String, Set<String>> getInvertedIndexMap() throws RemoteException {
-        synchronized (invertedIndexLock) {
-            ConcurrentMap<String, Set<String>> copy = new ConcurrentHashMap<>();
-            for (Map.Entry<String, Set<String>> entry : invertedIndex.entrySet()) {
-                copy.put(entry.getKey(), new HashSet<>(entry.getValue()));
-            }
-            return copy;
-        }
+    public ConcurrentMap<String, byte[]> getInvertedIndexMap() throws RemoteException {
+        return new ConcurrentHashMap<>(index.snapshotPostings());
+    }
+
+    /**
+     * Returns a copy of the document lengths used for BM25 scoring.
+     *
+     * @return Map of document IDs to lengths in words
+     * @throws RemoteException if RMI communication fails
+     */
+    public ConcurrentMap<Integer, Integer> getDocumentLengthsMap() throws RemoteException {
+        return new ConcurrentHashMap<>(index.getDocuments().getLengthsById());
+    }
+
+    /**
+     * Returns a copy of the document dictionary.
+     *
+     * @return Map of URLs to document IDs used in the posting lists
+     * @throws RemoteException if RMI communication fails
+     */
+    public ConcurrentMap<String, Integer> getDocumentIdsMap() throws RemoteException {
+        return new ConcurrentHashMap<>(index.getDocuments().getIdsByUrl());
     }
 
     /**
@@ -694,7 +1413,7 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
      */
     private void printAll() {
         System.out.println("\n===== Barrel Current State =====");
-        System.out.println("URLs in queue: " + urlQueue);
+        System.out.println("URLs in queue: " + frontier);
         System.out.println("Adjacency List: " + adjacencyList);
         System.out.println("Pages Info keys: " + pagesInfo.keySet());
         System.out.println("Bloom Filter test (example.com): " + filter.mightContain("https://example.com"));
@@ -703,50 +1422,113 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
 
     /**
      * Searches for pages containing all specified terms using the inverted index.
+     * Posting lists are intersected from the shortest to the longest.
      * Results are sorted by number of incoming links (PageRank-like).
      *
      * @param terms List of search terms
-     * @return List of PageInfo objects matching all terms, sorted by relevance
+     * @return List of search results matching all terms, sorted by relevance (score = inlink count)
      * @throws RemoteException if RMI communication fails
      */
-    public List<PageInfo> searchPages(List<String> terms) throws RemoteException {
+    public List<SearchResult> searchPages(List<String> terms) throws RemoteException {
         long startTime = System.currentTimeMillis();
 
         if (terms == null || terms.isEmpty()) return new ArrayList<>();
 
-        synchronized (invertedIndexLock) {
-            synchronized (pageInfoLock) {
-                Set<String> resultUrls = new HashSet<>(
-                        invertedIndex.getOrDefault(terms.get(0).toLowerCase(), Collections.emptySet())
-                );
+        List<SearchResult> results = new ArrayList<>();
+        for (String url : index.matchAll(terms)) {
+            StoredDocument page = pagesInfo.get(url);
+            if (page != null) results.add(page.toSearchResult(inlinkCounts.getOrDefault(url, 0)));
+        }
 
-                for (int i = 1; i < terms.size(); i++) {
-                    Set<String> termUrls = invertedIndex.getOrDefault(terms.get(i).toLowerCase(), Collections.emptySet());
-                    resultUrls.retainAll(termUrls);
-                    if (resultUrls.isEmpty()) break;
-                }
+        results.sort((p1, p2) -> Double.compare(p2.getScore(), p1.getScore()));
 
-                List<PageInfo> results = new ArrayList<>();
-                for (String url : resultUrls) {
-                    PageInfo page = pagesInfo.get(url);
-                    if (page != null) results.add(page);
-                }
+        long duration = System.currentTimeMillis() - startTime;
+        responseTimes.add(duration);
 
-                synchronized (adjacencyLock) {
-                    results.sort((p1, p2) -> {
-                        int linksP1 = adjacencyList.getOrDefault(p1.getUrl(), Set.of()).size();
-                        int linksP2 = adjacencyList.getOrDefault(p2.getUrl(), Set.of()).size();
-                        return Integer.compare(linksP2, linksP1);
-                    });
-                }
+        System.out.println("Search for " + terms + " returned " + results.size() + " results.");
+        return results;
+    }
+
+    /**
+     * Searches for pages containing all specified terms and ranks them by BM25 relevance,
+     * blended with the number of incoming links.
+     * Only the best {@code limit} documents are kept while scoring, so broad queries
+     * do not build or sort the full result list.
+     *
+     * @param terms List of search terms
+     * @param limit Maximum number of results to return
+     * @return Up to {@code limit} search results matching all terms, best first
+     * @throws RemoteException if RMI communication fails
+     */
+    public List<SearchResult> searchPagesRanked(List<String> terms, int limit) throws RemoteException {
+        long startTime = System.currentTimeMillis();
+
+        if (terms == null || terms.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        InvertedIndex.RankedHits hits = index.rank(terms, Math.min(limit, MAX_RESULT_WINDOW), this::inlinkCount);
+
+        List<SearchResult> results = new ArrayList<>(hits.top().size());
+        for (InvertedIndex.Hit hit : hits.top()) {
+            StoredDocument page = pagesInfo.get(hit.url());
+            if (page != null) results.add(page.toSearchResult(hit.score()));
+        }
 
-                long duration = System.currentTimeMillis() - startTime;
-                responseTimes.add(duration);
+        long duration = System.currentTimeMillis() - startTime;
+        responseTimes.add(duration);
 
-                System.out.println("Search for " + terms + " returned " + results.size() + " results.");
-                return results;
+        System.out.println("Ranked search for " + terms + " returned " + results.size() + " results.");
+        return results;
+    }
+
+    /**
+     * Returns one window of the BM25-ranked results for the given terms.
+     * Only the best {@code offset + limit} documents are scored into the heap, and only the
+     * requested window is converted into lightweight {@link SearchResult} records.
+     * Results past the first {@value #MAX_RESULT_WINDOW} are never returned.
+     *
+     * @param terms  List of search terms
+     * @param offset Index of the first result to return (0-based)
+     * @param limit  Maximum number of results to return
+     * @return Result window with the total number of matching documents
+     * @throws RemoteException if RMI communication fails
+     */
+    public SearchResultPage searchPage(List<String> terms, int offset, int limit) throws RemoteException {
+        long startTime = System.currentTimeMillis();
+
+        if (terms == null || terms.isEmpty() || offset < 0 || limit <= 0 || offset >= MAX_RESULT_WINDOW) {
+            return SearchResultPage.empty(Math.max(offset, 0), limit);
+        }
+        int end = (int) Math.min((long) offset + limit, MAX_RESULT_WINDOW);
+
+        InvertedIndex.RankedHits hits = index.rank(terms, end, this::inlinkCount);
+
+        List<InvertedIndex.Hit> top = hits.top();
+        int last = Math.min(end, top.size());
+        List<SearchResult> window = new ArrayList<>(Math.max(0, last - offset));
+        for (int i = offset; i < last; i++) {
+            InvertedIndex.Hit hit = top.get(i);
+            StoredDocument page = pagesInfo.get(hit.url());
+            if (page != null) {
+                window.add(page.toSearchResult(hit.score()));
             }
         }
+
+        long duration = System.currentTimeMillis() - startTime;
+        responseTimes.add(duration);
+
+        System.out.println("Search page for " + terms + " [" + offset + ", " + end + ") of "
+                + hits.totalHits() + " hits.");
+        return new SearchResultPage(window, hits.totalHits(), Math.min(hits.totalHits(), MAX_RESULT_WINDOW), offset, limit);
+    }
+
+    /**
+     * Returns the number of pages linking to a URL.
+     *
+     * @param url Target URL
+     * @return Inlink count, 0 if unknown
+     */
+    private int inlinkCount(String url) {
+        return inlinkCounts.getOrDefault(url, 0);
     }
 
     /**
@@ -777,28 +1559,80 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
         } catch (NotBoundException e) {
             System.err.println("Name not bound in RMI Registry: " + nome);
         } catch (RemoteException e) {
+            MessageTooOldException tooOld = tooOld(e);
+            if (tooOld != null) {
+                // The peer Barrel may have indexed the pages the Downloader no longer retains
+                if (skipMissing(nome, tooOld.getOldestAvailable())) {
+                    resyncFromPeer();
+                }
+                return;
+            }
             System.err.println("RMI error requesting resend of message " + missingSeqNumber + ": " + e.getMessage());
         }
     }
 
+    /**
+     * Returns the "too old" answer of a resend request, which RMI may wrap in a {@link java.rmi.ServerException}.
+     *
+     * @param e Exception thrown by the resend request
+     * @return The MessageTooOldException, or null if the request failed for another reason
+     */
+    private static MessageTooOldException tooOld(RemoteException e) {
+        if (e instanceof MessageTooOldException tooOld) return tooOld;
+        return e.getCause() instanceof MessageTooOldException tooOld ? tooOld : null;
+    }
+
+    /**
+     * Stops waiting for the sequence numbers of a sender below the oldest one it can still re-send.
+     *
+     * @param nome Sender name
+     * @param oldestAvailable Oldest sequence number the sender retains
+     * @return true if missing sequence numbers were given up
+     */
+    private boolean skipMissing(String nome, int oldestAvailable) {
+        synchronized (messageLock) {
+            SequenceWindow window = sequenceWindows.computeIfAbsent(nome, k -> new SequenceWindow());
+            if (!window.skipTo(oldestAvailable)) return false;
+        }
+        System.out.println("Sender " + nome + " no longer retains messages below " + oldestAvailable + ", resync required.");
+        return true;
+    }
+
+    /**
+     * Replays the peer Barrel's changes since the last recorded position, to recover pages whose
+     * messages can no longer be re-sent. At most one resync runs at a time.
+     */
+    private void resyncFromPeer() {
+        if (peer == null || !resyncing.compareAndSet(false, true)) return;
+        try {
+            if (!catchUpFrom(peerName, peer)) {
+                System.err.println("Resync from " + peerName + " not possible, missing pages are lost until re-crawled.");
+            }
+        } catch (RemoteException e) {
+            System.err.println("Error resyncing from " + peerName + ": " + e.getMessage());
+        } finally {
+            resyncing.set(false);
+        }
+    }
+
     /**
      * Resets sequence number tracking for a specific sender (Gateway or Downloader).
-     * Called when a sender reconnects or restarts.
+     * Called when a sender reconnects or restarts. Lower sequence numbers are no longer expected,
+     * since the sender can no longer re-send them.
      *
      * @param gatewayName Name of the sender to reset
+     * @param firstSeqNumber Next sequence number to expect, the oldest one the sender retains
      * @throws RemoteException if RMI communication fails
      */
-    public synchronized void resetSeqNumbers(String gatewayName) throws RemoteException {
+    public synchronized void resetSeqNumbers(String gatewayName, int firstSeqNumber) throws RemoteException {
         try {
-            if (receivedSeqNumbers == null) {
-                receivedSeqNumbers = new ConcurrentHashMap<>();
-            }
-            if (expectedSeqNumbers == null) {
-                expectedSeqNumbers = new ConcurrentHashMap<>();
+            if (sequenceWindows == null) {
+                sequenceWindows = new ConcurrentHashMap<>();
             }
 
-            receivedSeqNumbers.put(gatewayName, new HashSet<>());
-            expectedSeqNumbers.put(gatewayName, 0);
+            synchronized (messageLock) {
+                sequenceWindows.put(gatewayName, new SequenceWindow(firstSeqNumber));
+            }
 
             if (DebugConfig.DEBUG_MULTICAST_DOWNLOADER || DebugConfig.DEBUG_ALL) {
                 System.out.println("[DEBUG] Seq numbers reset for: " + gatewayName + " in Barrel: " + registryName);
@@ -818,9 +1652,7 @@ public class Barrel extends UnicastRemoteObject implements BarrelIndex {
      * @throws RemoteException if RMI communication fails
      */
     public List<String> getInLinks(String url) throws RemoteException {
-        synchronized (adjacencyLock) {
-            Set<String> inlinks = adjacencyList.getOrDefault(url, Set.of());
-            return new ArrayList<>(inlinks);
-        }
+        Set<String> inlinks = adjacencyList.getOrDefault(url, Set.of());
+        return new ArrayList<>(inlinks);
     }
 }
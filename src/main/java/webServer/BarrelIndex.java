@@ -14,20 +14,31 @@ public interface BarrelIndex extends Remote {
 
 
     // Métodos de obtenção de dados
-    ConcurrentMap<String, PageInfo> getPagesInfoMap() throws RemoteException;
+    ConcurrentMap<String, StoredDocument> getPagesInfoMap() throws RemoteException;
     ConcurrentMap<String, Set<String>> getAdjacencyListMap() throws RemoteException;
     byte[] getBloomFilterBytes() throws RemoteException;
-    String getUrlFromQueue() throws RemoteException;
-    ConcurrentMap<String, Set<String>> getInvertedIndexMap() throws RemoteException;
-    ConcurrentMap<String, Integer> getExpectedSeqNumber() throws RemoteException;
-    ConcurrentMap<String, Set<Integer>> getReceivedSeqNumbers() throws RemoteException;
+    List<String> leaseUrls(int maxUrls, long waitMs) throws RemoteException;
+    void completeUrls(List<String> urls) throws RemoteException;
+    ConcurrentMap<String, byte[]> getInvertedIndexMap() throws RemoteException;
+    ConcurrentMap<String, Integer> getDocumentIdsMap() throws RemoteException;
+    ConcurrentMap<Integer, Integer> getDocumentLengthsMap() throws RemoteException;
+    ConcurrentMap<String, SequenceWindow> getSequenceWindows() throws RemoteException;
+    int getAcknowledgedSeqNumber(String nome) throws RemoteException;
+    long getChangePosition() throws RemoteException;
+    ChangeBatch getChangesSince(long position, int maxChanges) throws RemoteException;
+    SnapshotManifest prepareSnapshot() throws RemoteException;
+    void releaseSnapshot(String sessionId) throws RemoteException;
 
-    void resetSeqNumbers(String nome) throws RemoteException;
+    void resetSeqNumbers(String nome, int firstSeqNumber) throws RemoteException;
     void receiveMessage(int seqNumber, PageInfo page, List<String> urls, String nome, String io, Integer port) throws RemoteException;
+    int receiveMessages(List<HistoryMessage> messages, String nome, String ip, Integer port) throws RemoteException;
 
     // Pesquisa remota
-    List<PageInfo> searchPages(List<String> terms) throws RemoteException;
+    List<SearchResult> searchPages(List<String> terms) throws RemoteException;
+    List<SearchResult> searchPagesRanked(List<String> terms, int limit) throws RemoteException;
+    SearchResultPage searchPage(List<String> terms, int offset, int limit) throws RemoteException;
     SystemStats getStats() throws RemoteException;
+    IndexStats getIndexStats() throws RemoteException;
     List<String> getInLinks(String url) throws RemoteException;
 
 }
\ No newline at end of file
@@ -9,7 +9,8 @@ import java.util.List;
  *
  * <p>This server:
  * <ul>
- *     <li>Reads configuration from a file (default: {@code config.txt})</li>
+ *     <li>Reads configuration from a file (default: {@code config.txt}); the Barrel is the one named by the
+ *     first argument, or the one on the third line if there is none</li>
  *     <li>Creates a local RMI registry on the specified port</li>
  *     <li>Instantiates and binds a {@link Barrel} object</li>
  *     <li>Notifies all configured Downloaders that the Barrel is available</li>
@@ -28,22 +29,37 @@ public class BarrelServer {
      *
      * Reads configuration, creates the Barrel, registers it in RMI registry, and notifies all Downloaders.
      *
+     * @param args optional name of the Barrel to start, as listed in the configuration file
      */
     public static void main(String[] args) {
         String filename = DEFAULT_CONFIG_FILE;
 
         try {
-            List<String> parts = FileManipulation.lineSplitter(filename, CONFIG_LINE_INDEX, ";");
+            String barrelName;
+            String ip;
+            int port;
+            if (args.length > 0) {
+                ShardMap.Replica replica = ShardMap.load(filename).replica(args[0]);
+                if (replica == null) {
+                    System.err.println("Barrel '" + args[0] + "' is not in the configuration file");
+                    return;
+                }
+                barrelName = replica.name();
+                ip = replica.ip();
+                port = replica.port();
+            } else {
+                List<String> parts = FileManipulation.lineSplitter(filename, CONFIG_LINE_INDEX, ";");
+
+                if (parts.size() < 3) {
+                    System.err.println("Configuration line " + (CONFIG_LINE_INDEX + 1) + " is incomplete");
+                    return;
+                }
 
-            if (parts.size() < 3) {
-                System.err.println("Configuration line " + (CONFIG_LINE_INDEX + 1) + " is incomplete");
-                return;
+                barrelName = parts.get(0).trim();
+                ip = parts.get(1).trim();
+                port = Integer.parseInt(parts.get(2).trim());
             }
 
-            String barrelName = parts.get(0).trim();
-            String ip = parts.get(1).trim();
-            int port = Integer.parseInt(parts.get(2).trim());
-
             System.setProperty("java.rmi.server.hostname", ip);
 
             String dbPath = barrelName + "_MapDB.db";
@@ -0,0 +1,205 @@
+package webServer;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming export and import of the MapDB part of a Barrel's state for snapshot transfer:
+ * stored pages, adjacency sets, document IDs and document lengths.
+ *
+ * <p>Posting lists are not included: they live in immutable segment files that are shipped as-is
+ * (see {@link SegmentStore}). The file is a sequence of tagged records:
+ * <pre>
+ *     [magic: int] ([tag: byte][record])* [END: byte]
+ * </pre>
+ * Records are written while iterating the live maps, so the export holds no locks and needs no
+ * copy of the maps in memory. The result is a fuzzy snapshot; the receiver makes it consistent by
+ * replaying the donor's change log from the position taken before the export.
+ *
+ * Thread-safety: Stateless.
+ */
+public final class BarrelSnapshot {
+
+    /** Name of the state file inside a snapshot. */
+    public static final String STATE_FILE = "state.bin";
+    /** Name of the Bloom filter file inside a snapshot. */
+    public static final String BLOOM_FILE = "bloom.bin";
+
+    private static final int MAGIC = 0x42534e32; // "BSN2"
+    private static final byte END = 0;
+    private static final byte DOCUMENT = 1;
+    private static final byte ADJACENCY = 2;
+    private static final byte DOCUMENT_ID = 3;
+    private static final byte DOCUMENT_LENGTH = 4;
+
+    /** Number of records imported between two commits. */
+    private static final int COMMIT_INTERVAL = 10_000;
+
+    private BarrelSnapshot() {
+    }
+
+    /**
+     * Writes the state of a Barrel to a file.
+     * Document IDs are written after the caller opened the segment files, so every ID referenced
+     * by a shipped posting list is present.
+     *
+     * @param file       destination file
+     * @param documents  stored pages
+     * @param adjacency  adjacency sets
+     * @param dictionary document dictionary
+     * @throws IOException if writing fails
+     */
+    public static void exportState(Path file, Map<String, StoredDocument> documents,
+                                   Map<String, Set<String>> adjacency, DocumentDictionary dictionary) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            for (StoredDocument document : documents.values()) {
+                out.writeByte(DOCUMENT);
+                writeString(out, document.getUrl());
+                writeString(out, document.getTitle());
+                writeString(out, document.getSmallText());
+                out.writeInt(document.getLength());
+                out.writeLong(document.getContentHash());
+                out.writeLong(document.getSimHash());
+            }
+            for (Map.Entry<String, Set<String>> entry : adjacency.entrySet()) {
+                out.writeByte(ADJACENCY);
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (String url : entry.getValue()) writeString(out, url);
+            }
+            for (Map.Entry<String, Integer> entry : dictionary.getIdsByUrl().entrySet()) {
+                out.writeByte(DOCUMENT_ID);
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            for (Map.Entry<Integer, Integer> entry : dictionary.getLengthsById().entrySet()) {
+                out.writeByte(DOCUMENT_LENGTH);
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.writeByte(END);
+        }
+    }
+
+    /**
+     * Imports stored pages, adjacency sets and document IDs from a state file.
+     * Document lengths are skipped: they publish documents to queries, so they are imported by
+     * {@link #importLengths} once the posting lists are in place.
+     *
+     * @param file       state file
+     * @param documents  stored pages map to fill
+     * @param adjacency  adjacency map to fill
+     * @param dictionary document dictionary to fill
+     * @param commit     called every {@link #COMMIT_INTERVAL} records to bound the transaction size
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static void importState(Path file, Map<String, StoredDocument> documents, Map<String, Set<String>> adjacency,
+                                   DocumentDictionary dictionary, Runnable commit) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        int records = 0;
+
+        try (DataInputStream in = open(file)) {
+            byte tag;
+            while ((tag = in.readByte()) != END) {
+                switch (tag) {
+                    case DOCUMENT -> {
+                        String url = readString(in);
+                        documents.put(url, new StoredDocument(readString(in), url, readString(in), in.readInt(), in.readLong(), in.readLong()));
+                    }
+                    case ADJACENCY -> {
+                        String url = readString(in);
+                        int count = in.readInt();
+                        Set<String> inlinks = ConcurrentHashMap.newKeySet(count);
+                        for (int i = 0; i < count; i++) inlinks.add(readString(in));
+                        adjacency.put(url, inlinks);
+                    }
+                    case DOCUMENT_ID -> {
+                        ids.put(readString(in), in.readInt());
+                        if (ids.size() >= COMMIT_INTERVAL) {
+                            dictionary.putAll(ids);
+                            ids.clear();
+                        }
+                    }
+                    case DOCUMENT_LENGTH -> in.skipNBytes(2L * Integer.BYTES);
+                    default -> throw new IOException("Malformed snapshot state file, tag " + tag);
+                }
+                if (++records % COMMIT_INTERVAL == 0) commit.run();
+            }
+        }
+        dictionary.putAll(ids);
+        commit.run();
+    }
+
+    /**
+     * Imports the document lengths of a state file, making the documents visible to queries.
+     *
+     * @param file       state file
+     * @param dictionary document dictionary to fill
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static void importLengths(Path file, DocumentDictionary dictionary) throws IOException {
+        Map<Integer, Integer> lengths = new HashMap<>();
+        try (DataInputStream in = open(file)) {
+            byte tag;
+            while ((tag = in.readByte()) != END) {
+                switch (tag) {
+                    case DOCUMENT -> {
+                        readString(in);
+                        readString(in);
+                        readString(in);
+                        in.skipNBytes(Integer.BYTES + 2L * Long.BYTES);
+                    }
+                    case ADJACENCY -> {
+                        readString(in);
+                        int count = in.readInt();
+                        for (int i = 0; i < count; i++) readString(in);
+                    }
+                    case DOCUMENT_ID -> {
+                        readString(in);
+                        in.readInt();
+                    }
+                    case DOCUMENT_LENGTH -> {
+                        lengths.put(in.readInt(), in.readInt());
+                        if (lengths.size() >= COMMIT_INTERVAL) {
+                            dictionary.putAllLengths(lengths);
+                            lengths.clear();
+                        }
+                    }
+                    default -> throw new IOException("Malformed snapshot state file, tag " + tag);
+                }
+            }
+        }
+        dictionary.putAllLengths(lengths);
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        if (in.readInt() != MAGIC) {
+            in.close();
+            throw new IOException("Not a snapshot state file: " + file);
+        }
+        return in;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package webServer;
+
+/**
+ * Okapi BM25 relevance scoring, optionally blended with the inlink count of a page.
+ *
+ * <p>For a query term t and document d:
+ * <pre>
+ *     idf(t)    = ln(1 + (N - df + 0.5) / (df + 0.5))
+ *     score(t,d) = idf(t) * tf * (k1 + 1) / (tf + k1 * (1 - b + b * |d| / avgdl))
+ * </pre>
+ * The final score of a document is the sum over all query terms plus
+ * {@code inlinkWeight * ln(1 + inlinks)}, so that well-linked pages win ties between similar texts.
+ *
+ * Thread-safety: Instances are immutable and thread-safe.
+ */
+public class Bm25Scorer {
+
+    /** Term frequency saturation parameter. */
+    public static final double DEFAULT_K1 = 1.2;
+
+    /** Document length normalisation parameter. */
+    public static final double DEFAULT_B = 0.75;
+
+    /** Weight of the inlink signal (0 disables it). */
+    public static final double DEFAULT_INLINK_WEIGHT = 0.5;
+
+    private final double k1;
+    private final double b;
+    private final double inlinkWeight;
+
+    /**
+     * Creates a scorer with the default parameters.
+     */
+    public Bm25Scorer() {
+        this(DEFAULT_K1, DEFAULT_B, DEFAULT_INLINK_WEIGHT);
+    }
+
+    /**
+     * Creates a scorer with custom parameters.
+     *
+     * @param k1           term frequency saturation (typically 1.2 - 2.0)
+     * @param b            length normalisation (0 = none, 1 = full)
+     * @param inlinkWeight weight of {@code ln(1 + inlinks)} in the final score
+     */
+    public Bm25Scorer(double k1, double b, double inlinkWeight) {
+        this.k1 = k1;
+        this.b = b;
+        this.inlinkWeight = inlinkWeight;
+    }
+
+    /**
+     * Computes the inverse document frequency of a term.
+     *
+     * @param docFreq  number of documents containing the term
+     * @param docCount total number of documents in the index
+     * @return idf weight (always positive)
+     */
+    public double idf(int docFreq, int docCount) {
+        return Math.log(1.0 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+    }
+
+    /**
+     * Computes the BM25 contribution of a single term to a document score.
+     *
+     * @param tf           term frequency in the document
+     * @param docLength    document length in words
+     * @param avgDocLength average document length in the index
+     * @param idf          idf of the term (see {@link #idf(int, int)})
+     * @return term score
+     */
+    public double termScore(int tf, int docLength, double avgDocLength, double idf) {
+        double norm = avgDocLength > 0 ? docLength / avgDocLength : 1.0;
+        return idf * (tf * (k1 + 1)) / (tf + k1 * (1 - b + b * norm));
+    }
+
+    /**
+     * Computes the score bonus given to a document for its incoming links.
+     *
+     * @param inlinks number of pages linking to the document
+     * @return inlink bonus
+     */
+    public double inlinkBoost(int inlinks) {
+        return inlinkWeight * Math.log1p(inlinks);
+    }
+}
@@ -0,0 +1,78 @@
+package webServer;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of a Barrel's change log, returned by {@link BarrelIndex#getChangesSince(long, int)}.
+ *
+ * <p>A restarting Barrel pulls these pages from its peer until it is caught up, so catch-up cost is
+ * proportional to the number of changes it missed rather than to the size of the index.
+ *
+ * Thread-safety: This class is immutable and thread-safe.
+ */
+public class ChangeBatch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<HistoryMessage> changes;
+    private final long position;
+    private final boolean caughtUp;
+    private final boolean truncated;
+
+    /**
+     * Creates a change log page.
+     *
+     * @param changes  applied ingest messages, oldest first
+     * @param position log position of the last change in this page (the position to ask from next)
+     * @param caughtUp true if no newer changes existed when the page was read
+     * @param truncated true if the requested position is no longer in the log
+     */
+    public ChangeBatch(List<HistoryMessage> changes, long position, boolean caughtUp, boolean truncated) {
+        this.changes = List.copyOf(changes);
+        this.position = position;
+        this.caughtUp = caughtUp;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Creates the answer for a position that the log no longer retains.
+     *
+     * @param position current position of the log
+     * @return empty, truncated page
+     */
+    public static ChangeBatch truncated(long position) {
+        return new ChangeBatch(List.of(), position, false, true);
+    }
+
+    /**
+     * Returns the changes of this page.
+     * @return ingest messages, oldest first
+     */
+    public List<HistoryMessage> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns the log position of the last change in this page.
+     * @return position to request the next page from
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Indicates whether the reader has reached the end of the log.
+     * @return true if there were no more changes
+     */
+    public boolean isCaughtUp() {
+        return caughtUp;
+    }
+
+    /**
+     * Indicates whether the requested position was already trimmed from the log,
+     * in which case the reader needs a full copy.
+     * @return true if the changes since the requested position are not available
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
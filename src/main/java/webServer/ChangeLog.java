@@ -0,0 +1,139 @@
+package webServer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+import org.mapdb.Atomic;
+import org.mapdb.DB;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+
+/**
+ * Persistent, bounded log of the ingest messages applied by a Barrel, used for incremental
+ * replication between Barrels.
+ *
+ * <p>Every applied page (and its outgoing links) gets the next log position. A peer that was
+ * down remembers the last position it applied and asks for the changes after it
+ * (see {@link BarrelIndex#getChangesSince(long, int)}). Applying a page twice has no effect beyond
+ * re-indexing it, so replaying changes the peer already received from a Downloader is harmless.
+ *
+ * <p>Only the last {@code retention} changes are kept; a peer asking for an older position is
+ * told the log was truncated and falls back to a full copy.
+ *
+ * Thread-safety: Appends are synchronized; reads rely on the concurrent MapDB tree map.
+ */
+public class ChangeLog {
+
+    /** Default number of changes kept in the log. */
+    public static final int DEFAULT_RETENTION = 100_000;
+
+    private final ConcurrentNavigableMap<Long, HistoryMessage> changes;
+    private final Atomic.Long lastPosition;
+    private final int retention;
+
+    /**
+     * Opens (or creates) the change log inside the given MapDB database.
+     *
+     * @param db open MapDB database
+     */
+    public ChangeLog(DB db) {
+        this(db, DEFAULT_RETENTION);
+    }
+
+    /**
+     * Opens (or creates) the change log with a custom retention.
+     *
+     * @param db        open MapDB database
+     * @param retention number of changes kept
+     */
+    public ChangeLog(DB db, int retention) {
+        this.changes = db.treeMap("changeLog", Serializer.LONG, new MessageSerializer()).createOrOpen();
+        this.lastPosition = db.atomicLong("changeLogPosition").createOrOpen();
+        this.retention = retention;
+    }
+
+    /**
+     * Appends an applied message and trims the oldest change beyond the retention.
+     *
+     * @param message applied ingest message
+     * @return position of the change
+     */
+    public synchronized long append(HistoryMessage message) {
+        long position = lastPosition.incrementAndGet();
+        changes.put(position, message);
+        changes.remove(position - retention);
+        return position;
+    }
+
+    /**
+     * Returns the position of the last change.
+     * @return current log position (0 if nothing was ever applied)
+     */
+    public long position() {
+        return lastPosition.get();
+    }
+
+    /**
+     * Returns up to {@code maxChanges} changes after a position.
+     *
+     * @param position   last position the reader applied
+     * @param maxChanges maximum number of changes to return
+     * @return page of changes, or a truncated page if the position is no longer retained
+     */
+    public ChangeBatch since(long position, int maxChanges) {
+        long last = lastPosition.get();
+        Map.Entry<Long, HistoryMessage> first = changes.firstEntry();
+        long oldest = first == null ? last + 1 : first.getKey();
+
+        // Too old, or from a log that was reset since the reader last synced
+        if (position < 0 || position + 1 < oldest || position > last) {
+            return ChangeBatch.truncated(last);
+        }
+
+        List<HistoryMessage> page = new ArrayList<>();
+        long next = position;
+        for (Map.Entry<Long, HistoryMessage> entry : changes.tailMap(position, false).entrySet()) {
+            if (page.size() >= maxChanges) break;
+            page.add(entry.getValue());
+            next = entry.getKey();
+        }
+        return new ChangeBatch(page, next, next >= last, false);
+    }
+
+    /**
+     * Compact serializer of logged messages: sequence number, page fields, words and links.
+     */
+    private static class MessageSerializer implements Serializer<HistoryMessage> {
+
+        @Override
+        public void serialize(DataOutput2 out, HistoryMessage message) throws IOException {
+            PageInfo page = message.getPage();
+            out.packInt(message.getSeqNumber());
+            UrlSetSerializer.writeUrl(out, page.getUrl());
+            UrlSetSerializer.writeString(out, page.getTitle());
+            UrlSetSerializer.writeString(out, page.getSmallText());
+            out.packInt(page.getWords().size());
+            for (String word : page.getWords()) UrlSetSerializer.writeString(out, word);
+            out.packInt(message.getUrls().size());
+            for (String url : message.getUrls()) UrlSetSerializer.writeUrl(out, url);
+        }
+
+        @Override
+        public HistoryMessage deserialize(DataInput2 in, int available) throws IOException {
+            int seqNumber = in.unpackInt();
+            String url = UrlSetSerializer.readUrl(in);
+            String title = UrlSetSerializer.readString(in);
+            String smallText = UrlSetSerializer.readString(in);
+            int wordCount = in.unpackInt();
+            List<String> words = new ArrayList<>(wordCount);
+            for (int i = 0; i < wordCount; i++) words.add(UrlSetSerializer.readString(in));
+            int linkCount = in.unpackInt();
+            List<String> links = new ArrayList<>(linkCount);
+            for (int i = 0; i < linkCount; i++) links.add(UrlSetSerializer.readUrl(in));
+            return new HistoryMessage(seqNumber, new PageInfo(title, url, words, smallText), links);
+        }
+    }
+}
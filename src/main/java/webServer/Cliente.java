@@ -2,6 +2,7 @@ package webServer;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -19,15 +20,16 @@ public class Cliente {
 
     private static GatewayInterface gateway;
 
+    /** Número de resultados mostrados de cada vez. */
+    private static final int PAGE_SIZE = 10;
+
     /**
-     * Mostra até 10 resultados de pesquisa.
+     * Mostra uma página de resultados de pesquisa.
      */
-    private static void dezLinks(int limMax, int limMin, List<PageInfo> results) {
-        while (limMin < limMax && limMin < results.size()) {
-            PageInfo p = results.get(limMin);
+    private static void dezLinks(SearchResultPage page) {
+        for (SearchResult r : page.getResults()) {
             System.out.printf("- %s (%s) citation: %s%n",
-                    p.getTitle(), p.getUrl(), p.getSmallText());
-            limMin++;
+                    r.getTitle(), r.getUrl(), r.getSmallText());
         }
     }
 
@@ -69,6 +71,11 @@ public class Cliente {
                     return false;
                 }
 
+                if (causa instanceof InvalidUrlException) {
+                    System.err.println("URL inválida: " + causa.getMessage());
+                    return false;
+                }
+
                 if (causa instanceof BarrelUnavailableException) {
                     if (tentativa < maxRetries) {
                         System.err.println("Tentativa " + tentativa + " falhou: " + causa.getMessage());
@@ -152,16 +159,16 @@ public class Cliente {
                             continue;
                         }
 
-                        List<PageInfo> results = null;
+                        SearchResultPage results = null;
                         try {
-                            results = gateway.search(query);
+                            results = gateway.search(query, 0, PAGE_SIZE);
                         } catch (Exception e) {
                             System.err.println(" Falha ao pesquisar: " + e.getMessage());
                             gateway = reconnectGateway(gatewayName, gatewayIp, gatewayPort);
                             if (gateway != null) {
                                 try {
                                     System.out.println("A repetir pesquisa após reconexão...");
-                                    results = gateway.search(query);
+                                    results = gateway.search(query, 0, PAGE_SIZE);
                                 } catch (Exception ex) {
                                     System.err.println("Falhou novamente após reconexão.");
                                     continue;
@@ -169,22 +176,24 @@ public class Cliente {
                             } else continue;
                         }
 
-                        if (results == null || results.isEmpty()) {
+                        if (results == null || results.getResults().isEmpty()) {
                             System.out.println("(Nenhum resultado encontrado)");
                             continue;
                         }
 
-                        System.out.println("Resultados:");
-                        int limMin = 0, limMax = 10;
-                        dezLinks(limMax, limMin, results);
+                        System.out.println("Resultados (" + results.getTotalHits() + "):");
+                        dezLinks(results);
 
-                        while (limMax < results.size()) {
+                        while (results.hasNext()) {
                             System.out.print("\nVer próximos 10 links? (s/n): ");
-                            if (sc.nextLine().trim().equalsIgnoreCase("s")) {
-                                limMin = limMax;
-                                limMax = Math.min(limMax + 10, results.size());
-                                dezLinks(limMax, limMin, results);
-                            } else break;
+                            if (!sc.nextLine().trim().equalsIgnoreCase("s")) break;
+                            try {
+                                results = gateway.search(query, results.getOffset() + PAGE_SIZE, PAGE_SIZE);
+                                dezLinks(results);
+                            } catch (Exception e) {
+                                System.err.println(" Falha ao obter próxima página: " + e.getMessage());
+                                break;
+                            }
                         }
                     }
 
@@ -257,10 +266,24 @@ public class Cliente {
                             stats.getTop10Searches().forEach(e ->
                                     System.out.printf("  %s: %d vezes%n", e.getKey(), e.getValue()));
 
+                            System.out.printf("%nCache de pesquisas: %d entradas | Taxa de acerto: %.1f%% (%d de %d) | Removidas: %d%n",
+                                    stats.getQueryCacheSize(), stats.getQueryCacheHitRate() * 100, stats.getQueryCacheHits(),
+                                    stats.getQueryCacheHits() + stats.getQueryCacheMisses(), stats.getQueryCacheEvictions());
+
                             System.out.println("\nBarrels Ativos:");
-                            stats.getBarrelMetrics().forEach((name, metrics) ->
-                                    System.out.printf("  %s - Índice: %d páginas | Tempo médio: %.1f ms%n",
-                                            name, metrics.getIndexSize(), (double) metrics.getAvgResponseTimeMs()));
+                            Map<String, IndexStats> indexStats = stats.getIndexStats();
+                            stats.getBarrelMetrics().forEach((name, metrics) -> {
+                                System.out.printf("  %s - Índice: %d páginas | Tempo médio: %.1f ms%n",
+                                        name, metrics.getIndexSize(), (double) metrics.getAvgResponseTimeMs());
+                                System.out.printf("      URLs vistos: %d | Filtro de Bloom: %.1f MiB | Falsos positivos: %.4f%%%n",
+                                        metrics.getSeenUrls(), metrics.getSeenUrlFilterBytes() / (1024.0 * 1024.0),
+                                        metrics.getSeenUrlFilterFpp() * 100);
+                                IndexStats index = indexStats.get(name);
+                                if (index != null) {
+                                    System.out.printf("      Termos: %d | Disco: %.1f MiB | Ingestão: %.1f páginas/s%n",
+                                            index.getTermCount(), index.getDiskBytes() / (1024.0 * 1024.0), index.getIngestRate());
+                                }
+                            });
                         } catch (Exception e) {
                             System.err.println(" Erro ao obter estatísticas: " + e.getMessage());
                             gateway = reconnectGateway(gatewayName, gatewayIp, gatewayPort);
@@ -0,0 +1,439 @@
+package webServer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Crawl frontier: URLs waiting to be downloaded, scheduled per host.
+ *
+ * <p>Each host has its own queue ordered by priority. A host is only handed out again once its
+ * politeness delay has passed since its last URL was leased, so a page with hundreds of same-site
+ * links cannot make the Downloaders hammer one host while others sit idle. Hosts move between:
+ * <ul>
+ *     <li>waiting: a heap ordered by the time the host may be contacted again</li>
+ *     <li>ready: a set ordered by the priority of each host's best URL</li>
+ *     <li>idle: no queued URLs; forgotten once their delay has passed</li>
+ * </ul>
+ * {@link #lease(int, long)} moves the hosts whose time has come from waiting to ready and then takes one
+ * URL from each of the best ready hosts, so a batch spreads over as many hosts as possible.
+ * Both operations are O(log hosts + log urls per host). If no host is ready the call can wait for one
+ * (long poll), so idle Downloaders do not flood the Barrel with empty requests.
+ *
+ * <p>Leased URLs stay in the frontier until {@link #complete(Collection)} is called for them. A URL
+ * not completed within the lease timeout (e.g. its Downloader died mid-fetch) is queued again with
+ * its original priority. Leases all have the same timeout, so they expire in the order they were made.
+ *
+ * <p>Priority is fixed when the URL is added: URLs submitted by users come first
+ * ({@link #SEED_PRIORITY}), followed by URLs with more known inlinks. Ties are served in insertion order.
+ *
+ * <p>Only a bounded head of the frontier (plus the leased URLs) is kept in memory. Once it holds {@code maxInMemory} URLs,
+ * further discovered URLs are appended to a memory-mapped {@link FrontierLog} and the head is refilled
+ * from it, oldest first, when it drops to half. User seeds always stay in memory. The head and the
+ * log's read position are checkpointed to a {@code HEAD} file (replaced atomically) on
+ * {@link #checkpoint()}, which the owner calls periodically, and on {@link #close()}, so queued
+ * URLs survive a restart. Leased URLs are checkpointed as queued ones, and so are handed out again
+ * after a restart unless they were completed before the checkpoint.
+ *
+ * Thread-safety: All public methods are thread-safe. {@link #checkpoint()} only holds the frontier's lock
+ * while it copies the in-memory URLs, and writes them outside it so that adding and leasing URLs do not wait for the disk.
+ */
+public class CrawlFrontier implements Closeable {
+    /** Default minimum time between two URLs of the same host. */
+    public static final long DEFAULT_POLITENESS_DELAY_MS = 1000;
+    /** Priority of URLs submitted by users through the Gateway. */
+    public static final int SEED_PRIORITY = Integer.MAX_VALUE;
+    /** Default maximum number of URLs kept in memory. */
+    public static final int DEFAULT_MAX_IN_MEMORY = 200_000;
+    /** Default time after which a leased URL that was not completed is queued again. */
+    public static final long DEFAULT_LEASE_TIMEOUT_MS = 5 * 60_000;
+
+    private static final int HEAD_MAGIC = 0x46524e31; // "FRN1"
+    private static final String HEAD_FILE = "HEAD";
+
+    private static final int IDLE = 0;
+    private static final int WAITING = 1;
+    private static final int READY = 2;
+
+    private record Entry(String url, int priority, long order) {
+    }
+
+    private record Lease(Entry entry, long expiresAt) {
+    }
+
+    private static final Comparator<Entry> BY_PRIORITY = Comparator
+            .comparingInt(Entry::priority).reversed()
+            .thenComparingLong(Entry::order);
+
+    private static final class Host {
+        final String name;
+        final PriorityQueue<Entry> urls = new PriorityQueue<>(BY_PRIORITY);
+        long readyAt;
+        int state = IDLE;
+
+        Host(String name) {
+            this.name = name;
+        }
+    }
+
+    private final long politenessDelayMs;
+    private final long leaseTimeoutMs;
+    private final int maxInMemory;
+    private final Path directory;
+    private final FrontierLog log;
+    // Serialises checkpoints, which share the temporary file; never acquired while holding the frontier's lock
+    private final Object checkpointLock = new Object();
+    private final Map<String, Host> hosts = new HashMap<>();
+    private final PriorityQueue<Host> waiting = new PriorityQueue<>(Comparator.comparingLong(h -> h.readyAt));
+    // Hosts in this set must not change their best URL; they are removed and re-added around updates
+    private final TreeSet<Host> ready = new TreeSet<>((a, b) -> {
+        int cmp = BY_PRIORITY.compare(a.urls.peek(), b.urls.peek());
+        return cmp != 0 ? cmp : a.name.compareTo(b.name);
+    });
+    private final Deque<Host> idle = new ArrayDeque<>();
+    // Leased URLs in lease order, which is also expiry order
+    private final LinkedHashMap<String, Lease> leased = new LinkedHashMap<>();
+    private long order;
+    private int size;
+    private int waiters;
+    private long reissued;
+
+    /**
+     * Opens the frontier stored in a directory with the default politeness delay and memory bound.
+     *
+     * @param directory directory of the checkpoint and log files (created if missing)
+     * @throws IOException if the stored frontier cannot be read
+     */
+    public CrawlFrontier(Path directory) throws IOException {
+        this(directory, DEFAULT_POLITENESS_DELAY_MS, DEFAULT_LEASE_TIMEOUT_MS, DEFAULT_MAX_IN_MEMORY);
+    }
+
+    /**
+     * Opens the frontier stored in a directory, recovering the URLs queued at the last checkpoint.
+     *
+     * @param directory         directory of the checkpoint and log files (created if missing)
+     * @param politenessDelayMs minimum time between two URLs of the same host
+     * @param leaseTimeoutMs    time after which a leased URL that was not completed is queued again
+     * @param maxInMemory       number of URLs kept in memory before spilling to the log
+     * @throws IOException if the stored frontier cannot be read
+     */
+    public CrawlFrontier(Path directory, long politenessDelayMs, long leaseTimeoutMs, int maxInMemory) throws IOException {
+        this.politenessDelayMs = politenessDelayMs;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.maxInMemory = maxInMemory;
+        this.directory = directory;
+
+        Files.createDirectories(directory);
+        Path head = directory.resolve(HEAD_FILE);
+        long readPosition = 0;
+        if (Files.exists(head)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(head)))) {
+                if (in.readInt() != HEAD_MAGIC) throw new IOException("Not a frontier checkpoint: " + head);
+                readPosition = in.readLong();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    int priority = in.readInt();
+                    enqueue(in.readUTF(), priority);
+                }
+            }
+        }
+        this.log = FrontierLog.open(directory, readPosition);
+        refill();
+
+        if (size > 0 || log.pending() > 0) {
+            System.out.println("Frontier recovered: " + size + " URLs in memory, " + log.pending() + " on disk.");
+        }
+    }
+
+    /**
+     * Queues a URL. The caller is responsible for not adding the same URL twice.
+     * Discovered URLs go to the on-disk log while the in-memory head is full or the log is not drained.
+     *
+     * @param url      URL to download
+     * @param priority higher values are downloaded first within a host and across ready hosts
+     */
+    public synchronized void add(String url, int priority) {
+        if (priority != SEED_PRIORITY && (size >= maxInMemory || log.pending() > 0)) {
+            try {
+                if (log.append(url, priority)) return;
+            } catch (IOException e) {
+                System.err.println("Error spilling URL to frontier log, keeping it in memory: " + e.getMessage());
+            }
+        }
+        enqueue(url, priority);
+    }
+
+    /**
+     * Queues a batch of URLs under a single acquisition of the frontier's lock.
+     * The caller is responsible for not adding the same URL twice.
+     *
+     * @param priorities URLs to download, mapped to their priorities, queued in iteration order
+     */
+    public synchronized void addAll(Map<String, Integer> priorities) {
+        for (Map.Entry<String, Integer> entry : priorities.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void enqueue(String url, int priority) {
+        String name = hostOf(url);
+        Host host = hosts.computeIfAbsent(name, Host::new);
+        Entry entry = new Entry(url, priority, order++);
+
+        if (host.state == READY && BY_PRIORITY.compare(entry, host.urls.peek()) < 0) {
+            ready.remove(host);
+            host.urls.add(entry);
+            ready.add(host);
+        } else {
+            host.urls.add(entry);
+        }
+
+        if (host.state == IDLE) {
+            if (host.readyAt <= System.currentTimeMillis()) {
+                host.state = READY;
+                ready.add(host);
+            } else {
+                host.state = WAITING;
+                waiting.add(host);
+            }
+        }
+        size++;
+        if (waiters > 0 && host.state == READY) notifyAll();
+    }
+
+    /**
+     * Leases up to {@code max} URLs whose hosts may be contacted now, at most one per host.
+     * Each leased host becomes available again after the politeness delay. If no host is ready,
+     * waits until one is, a URL is added or {@code waitMs} elapses.
+     *
+     * @param max    maximum number of URLs
+     * @param waitMs maximum time to wait for a ready host, 0 to return immediately
+     * @return leased URLs, best first; empty if no host became ready in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized List<String> lease(int max, long waitMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (true) {
+            long now = System.currentTimeMillis();
+            List<String> urls = leaseReady(max, now);
+            if (!urls.isEmpty() || now >= deadline) return urls;
+
+            // Wake up when the next waiting host or lease expiry is due, or when a URL is added
+            long wakeAt = deadline;
+            if (!waiting.isEmpty()) wakeAt = Math.min(wakeAt, waiting.peek().readyAt);
+            if (!leased.isEmpty()) wakeAt = Math.min(wakeAt, leased.values().iterator().next().expiresAt());
+            waiters++;
+            try {
+                wait(Math.max(1, wakeAt - now));
+            } finally {
+                waiters--;
+            }
+        }
+    }
+
+    /**
+     * Marks leased URLs as downloaded, so they are not queued again. Unknown URLs are ignored.
+     *
+     * @param urls URLs returned by {@link #lease(int, long)}
+     */
+    public synchronized void complete(Collection<String> urls) {
+        for (String url : urls) {
+            leased.remove(url);
+        }
+    }
+
+    private List<String> leaseReady(int max, long now) {
+        // Queue again the URLs whose lease expired
+        Iterator<Lease> expired = leased.values().iterator();
+        while (expired.hasNext()) {
+            Lease lease = expired.next();
+            if (lease.expiresAt() > now) break;
+            expired.remove();
+            enqueue(lease.entry().url(), lease.entry().priority());
+            reissued++;
+        }
+
+        while (!waiting.isEmpty() && waiting.peek().readyAt <= now) {
+            Host host = waiting.poll();
+            host.state = READY;
+            ready.add(host);
+        }
+
+        List<String> urls = new ArrayList<>(Math.min(max, ready.size()));
+        while (urls.size() < max && !ready.isEmpty()) {
+            Host host = ready.pollFirst();
+            Entry entry = host.urls.poll();
+            urls.add(entry.url());
+            leased.remove(entry.url()); // keep the map in expiry order if the URL was queued twice
+            leased.put(entry.url(), new Lease(entry, now + leaseTimeoutMs));
+            size--;
+
+            host.readyAt = now + politenessDelayMs;
+            if (host.urls.isEmpty()) {
+                host.state = IDLE;
+                idle.add(host);
+            } else {
+                host.state = WAITING;
+                waiting.add(host);
+            }
+        }
+
+        // Forget idle hosts once their delay has passed, so the host map only holds recent hosts
+        while (!idle.isEmpty() && idle.peek().readyAt <= now) {
+            Host host = idle.poll();
+            if (host.state == IDLE && host.readyAt <= now) {
+                hosts.remove(host.name);
+            }
+        }
+
+        if (size <= maxInMemory / 2) refill();
+        return urls;
+    }
+
+    /**
+     * Writes the in-memory URLs and the log read position to the {@code HEAD} file, after forcing the log to disk.
+     * The URLs are copied under the frontier's lock and written after releasing it.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            long readPosition;
+            List<Entry> entries;
+            synchronized (this) {
+                log.force();
+                readPosition = log.readPosition();
+                entries = new ArrayList<>(size + leased.size());
+                for (Host host : hosts.values()) {
+                    entries.addAll(host.urls);
+                }
+                for (Lease lease : leased.values()) {
+                    entries.add(lease.entry());
+                }
+            }
+
+            Path tmp = directory.resolve(HEAD_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(HEAD_MAGIC);
+                out.writeLong(readPosition);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeInt(entry.priority());
+                    out.writeUTF(entry.url());
+                }
+            }
+            Files.move(tmp, directory.resolve(HEAD_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                log.deleteReadSegments(readPosition);
+            }
+        }
+    }
+
+    /**
+     * Checkpoints the frontier and closes the log.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+        synchronized (this) {
+            log.close();
+        }
+    }
+
+    /**
+     * Returns the number of queued URLs, in memory and on disk.
+     * @return URL count
+     */
+    public synchronized long size() {
+        return size + log.pending();
+    }
+
+    /**
+     * Returns the number of leased URLs not completed yet.
+     * @return leased URL count
+     */
+    public synchronized int leasedCount() {
+        return leased.size();
+    }
+
+    /**
+     * Returns how many URLs were queued again because their lease expired.
+     * @return re-issued URL count
+     */
+    public synchronized long reissuedCount() {
+        return reissued;
+    }
+
+    /**
+     * Returns the number of hosts with queued URLs or a running politeness delay.
+     * @return host count
+     */
+    public synchronized int hostCount() {
+        return hosts.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CrawlFrontier{urls=" + size + ", onDisk=" + log.pending() + ", leased=" + leased.size()
+                + ", hosts=" + hosts.size() + ", ready=" + ready.size() + "}";
+    }
+
+    /**
+     * Moves URLs from the log into memory until the in-memory head is full or the log is drained.
+     */
+    private void refill() {
+        try {
+            FrontierLog.Record record;
+            while (size < maxInMemory && (record = log.poll()) != null) {
+                enqueue(record.url(), record.priority());
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading frontier log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Extracts the lower-cased host of a URL without a full parse; userinfo and port are dropped.
+     *
+     * @param url absolute URL
+     * @return host, or the empty string if the URL has none
+     */
+    static String hostOf(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) end++;
+
+        int at = url.lastIndexOf('@', end - 1);
+        if (at >= start) start = at + 1;
+        if (start < end && url.charAt(start) == '[') {
+            // IPv6 literal: the port, if any, follows the closing bracket
+            int bracket = url.indexOf(']', start);
+            if (bracket >= 0 && bracket < end) end = bracket + 1;
+        } else {
+            int colon = url.indexOf(':', start);
+            if (colon >= 0 && colon < end) end = colon;
+        }
+        return url.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+}
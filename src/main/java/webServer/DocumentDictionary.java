@@ -0,0 +1,211 @@
+package webServer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mapdb.Atomic;
+import org.mapdb.DB;
+import org.mapdb.Serializer;
+
+/**
+ * Persistent dictionary that assigns a dense integer ID to every indexed URL.
+ *
+ * <p>Posting lists in the inverted index reference documents by these IDs instead of
+ * repeating the full URL string, so they can be stored as compressed integer arrays
+ * (see {@link PostingList}). It also keeps the length (in words) of every document,
+ * which BM25 scoring needs to normalise term frequencies.
+ *
+ * Thread-safety: ID assignment is synchronized; lookups rely on the concurrent MapDB maps.
+ */
+public class DocumentDictionary {
+
+    private final ConcurrentMap<String, Integer> idsByUrl;
+    private final ConcurrentMap<Integer, String> urlsById;
+    private final Atomic.Integer nextId;
+    private final ConcurrentMap<Integer, Integer> lengthsById;
+    private final Atomic.Long totalLength;
+    // Number of documents with a recorded length: sizing a MapDB map visits every entry
+    private final Atomic.Long lengthCount;
+
+    /**
+     * Opens (or creates) the dictionary maps inside the given MapDB database.
+     *
+     * @param db open MapDB database
+     */
+    public DocumentDictionary(DB db) {
+        this.idsByUrl = db.hashMap("docIds", Serializer.STRING, Serializer.INTEGER).createOrOpen();
+        this.urlsById = db.hashMap("docUrls", Serializer.INTEGER, Serializer.STRING).createOrOpen();
+        this.nextId = db.atomicInteger("nextDocId").createOrOpen();
+        this.lengthsById = db.hashMap("docLengths", Serializer.INTEGER, Serializer.INTEGER).createOrOpen();
+        this.totalLength = db.atomicLong("totalDocLength").createOrOpen();
+        this.lengthCount = db.atomicLong("docLengthCount").createOrOpen();
+        if (lengthCount.get() == 0) {
+            // Dictionaries written before the counter existed are counted once
+            lengthCount.set(lengthsById.size());
+        }
+    }
+
+    /**
+     * Returns the ID of a URL, assigning the next free ID if the URL is new.
+     *
+     * @param url document URL
+     * @return document ID
+     */
+    public int getOrAssign(String url) {
+        Integer id = idsByUrl.get(url);
+        if (id != null) return id;
+
+        synchronized (this) {
+            id = idsByUrl.get(url);
+            if (id != null) return id;
+
+            int newId = nextId.getAndIncrement();
+            urlsById.put(newId, url);
+            idsByUrl.put(url, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Ensures IDs below a watermark are never assigned again, e.g. IDs referenced by index
+     * segments whose assignment a crash rolled back.
+     *
+     * @param watermark first ID that may be assigned
+     */
+    public synchronized void reserve(int watermark) {
+        if (nextId.get() < watermark) nextId.set(watermark);
+    }
+
+    /**
+     * Removes every document ID and length; IDs are assigned from 0 again.
+     */
+    public synchronized void clear() {
+        lengthsById.clear();
+        idsByUrl.clear();
+        urlsById.clear();
+        nextId.set(0);
+        totalLength.set(0);
+        lengthCount.set(0);
+    }
+
+    /**
+     * Returns the ID of a URL.
+     *
+     * @param url document URL
+     * @return document ID, or null if the URL was never indexed
+     */
+    public Integer idOf(String url) {
+        return idsByUrl.get(url);
+    }
+
+    /**
+     * Returns the URL of a document ID.
+     *
+     * @param id document ID
+     * @return document URL, or null if the ID is unknown
+     */
+    public String urlOf(int id) {
+        return urlsById.get(id);
+    }
+
+    /**
+     * Records the length of a document, replacing any previous value.
+     *
+     * @param id     document ID
+     * @param length number of words in the document
+     */
+    public void setLength(int id, int length) {
+        Integer previous = lengthsById.put(id, length);
+        totalLength.addAndGet(length - (previous == null ? 0 : previous));
+        if (previous == null) lengthCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the length of a document.
+     *
+     * @param id document ID
+     * @return number of words in the document, or 0 if unknown
+     */
+    public int lengthOf(int id) {
+        return lengthsById.getOrDefault(id, 0);
+    }
+
+    /**
+     * Indicates whether a document has been fully indexed.
+     * The length is recorded last when indexing a page, so queries use it as the publication marker.
+     *
+     * @param id document ID
+     * @return true if the document's length is recorded
+     */
+    public boolean isVisible(int id) {
+        return lengthsById.containsKey(id);
+    }
+
+    /**
+     * Returns the average document length over all documents with a recorded length.
+     * @return average length in words, or 0 if the dictionary is empty
+     */
+    public double averageLength() {
+        long count = lengthCount.get();
+        return count == 0 ? 0.0 : (double) totalLength.get() / count;
+    }
+
+    /**
+     * Returns the number of documents with a recorded length, i.e. visible to queries.
+     * @return published document count
+     */
+    public int publishedCount() {
+        return (int) lengthCount.get();
+    }
+
+    /**
+     * Returns the document ID to length mapping (live view).
+     * @return map of document IDs to lengths
+     */
+    public ConcurrentMap<Integer, Integer> getLengthsById() {
+        return lengthsById;
+    }
+
+    /**
+     * Returns the number of document IDs assigned or reserved.
+     * IDs are assigned densely from 0, so this is the next free ID.
+     * @return dictionary size
+     */
+    public int size() {
+        return nextId.get();
+    }
+
+    /**
+     * Returns the URL to ID mapping (live view).
+     * @return map of URLs to document IDs
+     */
+    public ConcurrentMap<String, Integer> getIdsByUrl() {
+        return idsByUrl;
+    }
+
+    /**
+     * Copies IDs assigned by another Barrel into this dictionary.
+     * IDs are kept as-is so that replicated posting lists remain valid.
+     *
+     * @param ids map of URLs to document IDs
+     */
+    public synchronized void putAll(Map<String, Integer> ids) {
+        int maxId = nextId.get() - 1;
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            idsByUrl.put(entry.getKey(), entry.getValue());
+            urlsById.put(entry.getValue(), entry.getKey());
+            maxId = Math.max(maxId, entry.getValue());
+        }
+        nextId.set(maxId + 1);
+    }
+
+    /**
+     * Copies document lengths recorded by another Barrel into this dictionary.
+     *
+     * @param lengths map of document IDs to lengths
+     */
+    public synchronized void putAllLengths(Map<Integer, Integer> lengths) {
+        for (Map.Entry<Integer, Integer> entry : lengths.entrySet()) {
+            setLength(entry.getKey(), entry.getValue());
+        }
+    }
+}
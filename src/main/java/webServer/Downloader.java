@@ -1,9 +1,19 @@
 package webServer;
+import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.*;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 
@@ -13,16 +23,51 @@ import java.rmi.registry.Registry;
  * <p>The Downloader:
  * <ul>
  *     <li>Connects to multiple Barrel instances</li>
- *     <li>Requests URLs from Barrel queues in round-robin fashion</li>
- *     <li>Scrapes pages using Jsoup and extracts text, links, and metadata</li>
- *     <li>Sends parsed data to all active Barrels with sequence numbers for reliability</li>
- *     <li>Maintains a history buffer for re-transmission of lost messages</li>
+ *     <li>Leases batches of URLs from Barrel frontiers in round-robin fashion and reports them done</li>
+ *     <li>Fetches many pages concurrently and parses them using Jsoup to extract text, links, and metadata</li>
+ *     <li>Sends parsed data to all active Barrels with sequence numbers for reliability; each Barrel
+ *     gets the content of the pages and the links of its own shard only (see {@link ShardMap})</li>
+ *     <li>Groups parsed pages into batches so each Barrel applies and commits them once per batch</li>
+ *     <li>Keeps a bounded history of sent pages for re-transmission of lost messages, released once every Barrel acknowledged them</li>
  * </ul>
  *
+ * <p>Crawling runs as a pipeline of stages connected by bounded queues, so a slow stage applies
+ * backpressure to the previous one instead of buffering without limit:
+ * <pre>
+ *     feeder (1 thread)  -&gt;  fetch (fetchThreads)  -&gt;  parse (one per core)  -&gt;  delivery (1 thread)
+ * </pre>
+ * The feeder leases batches of URLs from the Barrels' frontiers, the fetch stage downloads pages (network bound),
+ * the parse stage extracts their content (CPU bound) and the delivery stage assigns sequence numbers
+ * and sends batches to the Barrels. Fetch concurrency is the size of the fetch pool.
+ *
+ * <p>Every URL travels with the name of the Barrel that leased it. Once its page has been delivered,
+ * or its download failed, the URL is reported to that Barrel with {@link BarrelIndex#completeUrls(List)};
+ * URLs lost with a crashed Downloader are not reported and are handed out again when their lease expires.
+ *
  * Thread-safety: Methods use synchronized blocks where necessary to manage shared state.
+ * Sequence numbers, the history and the pending batch are only used by the delivery thread.
  */
 public class Downloader extends UnicastRemoteObject implements DownloaderIndex {
-    private HashMap<Integer, HistoryMessage> historyBuffer;
+    /** Maximum number of pages sent to the Barrels in one batch. */
+    private static final int BATCH_SIZE = 32;
+    /** Maximum time a parsed page waits in the pending batch before it is flushed. */
+    private static final long BATCH_MAX_DELAY_MS = 2000;
+    /** Maximum number of sent pages kept for re-transmission. */
+    private static final int HISTORY_CAPACITY = 2048;
+    /** Default number of concurrent page fetches. */
+    public static final int DEFAULT_FETCH_THREADS = 32;
+    /** Capacity of the queue in front of each pipeline stage. */
+    private static final int STAGE_QUEUE_CAPACITY = 256;
+    /** Time a lease request may wait for URLs after every Barrel frontier was found empty. */
+    private static final long LEASE_WAIT_MS = 5000;
+    /** Maximum number of URLs leased from a Barrel's frontier at once. */
+    private static final int LEASE_BATCH_SIZE = 64;
+    /** Whether a page is indexed under the URL of its {@code <link rel="canonical">} when it is on the same host. */
+    private static final boolean HONOR_REL_CANONICAL = true;
+
+    private final RetransmissionLog<HistoryMessage> history;
+    private final List<HistoryMessage> pendingBatch = new ArrayList<>();
+    private long batchStartedAt;
     private int seqNumber;
     private final String name;
     private final String ip;
@@ -30,6 +75,32 @@ public class Downloader extends UnicastRemoteObject implements DownloaderIndex {
     private int currentBarrel = 1;
 
     private HashMap<String, Object[]> barrels;
+    private final ShardMap shardMap;
+
+    private final int fetchThreads;
+    private final BlockingQueue<LeasedUrl> fetchQueue = new ArrayBlockingQueue<>(STAGE_QUEUE_CAPACITY);
+    private final BlockingQueue<FetchedPage> parseQueue = new ArrayBlockingQueue<>(STAGE_QUEUE_CAPACITY);
+    private final BlockingQueue<ParsedPage> deliveryQueue = new ArrayBlockingQueue<>(STAGE_QUEUE_CAPACITY);
+    private ExecutorService fetchPool;
+    private ExecutorService parsePool;
+    private Thread feeder;
+    private Thread delivery;
+    private volatile boolean running;
+    // Leases of the pending batch, and finished URLs to report per Barrel name
+    private final List<LeasedUrl> pendingLeases = new ArrayList<>();
+    private final Map<String, Queue<String>> finished = new ConcurrentHashMap<>();
+
+    /** URL leased from the frontier of the named Barrel. */
+    private record LeasedUrl(String url, String barrelName) {
+    }
+
+    /** Downloaded page waiting to be parsed. */
+    private record FetchedPage(LeasedUrl lease, Connection.Response response) {
+    }
+
+    /** Parsed page waiting to be sent to the Barrels. */
+    private record ParsedPage(LeasedUrl lease, PageInfo page, List<String> links) {
+    }
 
     /**
      * Constructs a new Downloader and attempts to connect to the specified Barrels.
@@ -37,37 +108,37 @@ public class Downloader extends UnicastRemoteObject implements DownloaderIndex {
      * @param name         name of this Downloader
      * @param ip           IP address where this Downloader is bound
      * @param port         RMI registry port for this Downloader
-     * @param IpBarrelA    IP address of Barrel A
-     * @param PortBarrelA  RMI registry port of Barrel A
-     * @param nameBarrelA  name of Barrel A in RMI registry
-     * @param IpBarrelB    IP address of Barrel B
-     * @param PortBarrelB  RMI registry port of Barrel B
-     * @param nameBarrelB  name of Barrel B in RMI registry
+     * @param shardMap     Barrels of every shard
+     * @param fetchThreads maximum number of pages fetched concurrently
      * @throws RemoteException if RMI export fails
      */
-    public Downloader(String name, String ip, Integer port,
-                      String IpBarrelA, int PortBarrelA, String nameBarrelA,
-                      String IpBarrelB, int PortBarrelB, String nameBarrelB) throws RemoteException {
+    public Downloader(String name, String ip, Integer port, ShardMap shardMap, int fetchThreads) throws RemoteException {
         super();
         this.name = name;
+        this.fetchThreads = fetchThreads;
         this.ip = ip;
         this.port = port;
-        this.historyBuffer = new HashMap<>();
+        this.history = new RetransmissionLog<>(HISTORY_CAPACITY);
         this.seqNumber = 0;
         this.barrels = new HashMap<>();
+        this.shardMap = shardMap;
 
         // Add barrels: [IP, Port, connection]
-        barrels.put(nameBarrelA, new Object[]{IpBarrelA, PortBarrelA, null});
-        barrels.put(nameBarrelB, new Object[]{IpBarrelB, PortBarrelB, null});
+        for (ShardMap.Replica replica : shardMap.replicas()) {
+            barrels.put(replica.name(), new Object[]{replica.ip(), replica.port(), null});
+            history.register(replica.name());
+        }
 
         // Attempt initial connection
-        connectToBarrel(nameBarrelA);
-        connectToBarrel(nameBarrelB);
+        for (ShardMap.Replica replica : shardMap.replicas()) {
+            connectToBarrel(replica.name());
+        }
     }
 
     /**
      * Attempts to connect to a Barrel and reset its sequence numbers.
-     * If the connection is successful, the Barrel is notified of this Downloader's identity.
+     * If the connection is successful, the Barrel is notified of this Downloader's identity and
+     * of the oldest sequence number that can still be re-sent.
      *
      * @param barrelName name of the Barrel to connect to
      */
@@ -80,7 +151,7 @@ public class Downloader extends UnicastRemoteObject implements DownloaderIndex {
             BarrelIndex barrel = (BarrelIndex) reg.lookup(barrelName);
             info[2] = barrel;
 
-            barrel.resetSeqNumbers(name);
+            resetSeqNumbers(barrelName, barrel);
 
             System.out.println("[Downloader] Connected to: " + barrelName + " IP: " + info[0] + " PORT: " + info[1]);
         } catch (Exception e) {
@@ -103,7 +174,7 @@ public class Downloader extends UnicastRemoteObject implements DownloaderIndex {
         Object[] info = barrels.get(barrelName);
         if (info != null && info[2] != null) {
             try {
-                ((BarrelIndex) info[2]).resetSeqNumbers(name);
+                resetSeqNumbers(barrelName, (BarrelIndex) info[2]);
             } catch (RemoteException e) {
                 System.err.println("[Downloader] Error resetting seqNumbers: " + e.getMessage());
             }
@@ -111,42 +182,312 @@ public class Downloader extends UnicastRemoteObject implements DownloaderIndex {
     }
 
     /**
-     * Processes the next URL from a Barrel's queue using round robin.
-     * If no Barrels are available, waits 5 seconds before retrying.
+     * Makes a Barrel expect the oldest retained message next, so it only asks for messages that can be re-sent.
      *
-     * @throws Exception if an error occurs during URL processing
+     * @param barrelName name of the Barrel
+     * @param barrel     the Barrel
+     * @throws RemoteException if an RMI error occurs
      */
-    public void processNextUrl() throws Exception {
-        List<BarrelIndex> activeBarrels = getActiveBarrels();
+    private void resetSeqNumbers(String barrelName, BarrelIndex barrel) throws RemoteException {
+        int first = history.first();
+        barrel.resetSeqNumbers(name, first);
+        history.acknowledge(barrelName, first);
+    }
 
-        // If no active Barrels
-        if (activeBarrels.isEmpty()) {
-            System.err.println("No Barrel available! Waiting 5 seconds...");
-            Thread.sleep(5000);
-            return;
+    /**
+     * Starts the crawl pipeline: the feeder, the fetch and parse pools and the delivery thread.
+     * Returns immediately; the stages run until {@link #shutdown()}.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+
+        fetchPool = Executors.newFixedThreadPool(fetchThreads, stageThreads("fetch"));
+        for (int i = 0; i < fetchThreads; i++) {
+            fetchPool.execute(this::fetchLoop);
+        }
+        int parseThreads = Runtime.getRuntime().availableProcessors();
+        parsePool = Executors.newFixedThreadPool(parseThreads, stageThreads("parse"));
+        for (int i = 0; i < parseThreads; i++) {
+            parsePool.execute(this::parseLoop);
         }
 
-        // Simple round-robin
-        int index = (currentBarrel++) % activeBarrels.size();
-        BarrelIndex targetBarrel = activeBarrels.get(index);
+        feeder = new Thread(this::feedLoop, "crawl-feeder");
+        delivery = new Thread(this::deliveryLoop, "crawl-delivery");
+        feeder.start();
+        delivery.start();
 
-        // Request a URL from the current Barrel's queue
-        String nextUrl = targetBarrel.getUrlFromQueue();
+        System.out.println("[Downloader] Crawl pipeline started with " + fetchThreads + " fetch and " + parseThreads + " parse threads.");
+    }
 
-        if (nextUrl != null && !nextUrl.isEmpty()) {
-            scrapURL(nextUrl);
+    /**
+     * Stops the crawl pipeline. Pages already parsed are still sent to the Barrels;
+     * pages being fetched or parsed are dropped and their URLs are not re-queued.
+     */
+    public void shutdown() {
+        Thread deliveryThread;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            feeder.interrupt();
+            fetchPool.shutdownNow();
+            parsePool.shutdownNow();
+            deliveryThread = delivery;
+        }
+        try {
+            parsePool.awaitTermination(5, TimeUnit.SECONDS);
+            deliveryThread.join(BATCH_MAX_DELAY_MS * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Returns a list of all currently active (connected) Barrels.
-     * @return list of active Barrel connections
+     * Feeder stage: leases batches of URLs from the Barrels' frontiers in round-robin and hands them to the fetch stage.
+     * Each batch holds at most one URL per host, so consecutive fetches spread over many hosts.
+     * Blocks while the fetch queue is full. Once every Barrel answered with an empty batch, lease requests
+     * wait on the Barrel for up to {@value #LEASE_WAIT_MS} ms (long poll) instead of polling again at once.
      */
-    private synchronized List<BarrelIndex> getActiveBarrels() {
-        List<BarrelIndex> active = new ArrayList<>();
-        for (Object[] info : barrels.values()) {
-            if (info[2] != null) {
-                active.add((BarrelIndex) info[2]);
+    private void feedLoop() {
+        int emptyQueues = 0;
+        while (running) {
+            try {
+                List<Map.Entry<String, BarrelIndex>> activeBarrels = new ArrayList<>(getActiveBarrelsByName().entrySet());
+
+                // If no active Barrels
+                if (activeBarrels.isEmpty()) {
+                    System.err.println("No Barrel available! Waiting 5 seconds...");
+                    Thread.sleep(5000);
+                    continue;
+                }
+
+                // Simple round-robin
+                int index = (currentBarrel++) % activeBarrels.size();
+                String targetName = activeBarrels.get(index).getKey();
+                BarrelIndex targetBarrel = activeBarrels.get(index).getValue();
+
+                List<String> urls;
+                try {
+                    int maxUrls = Math.max(1, Math.min(LEASE_BATCH_SIZE, fetchQueue.remainingCapacity()));
+                    urls = targetBarrel.leaseUrls(maxUrls, emptyQueues >= activeBarrels.size() ? LEASE_WAIT_MS : 0);
+                } catch (RemoteException e) {
+                    System.err.println("[Downloader] Error requesting URLs from Barrel: " + e.getMessage());
+                    disconnectBarrel(targetBarrel);
+                    continue;
+                }
+
+                if (!urls.isEmpty()) {
+                    emptyQueues = 0;
+                    for (String url : urls) {
+                        fetchQueue.put(new LeasedUrl(url, targetName));
+                    }
+                } else {
+                    emptyQueues++;
+                }
+
+                if ((DebugConfig.DEBUG_MULTICAST_DOWNLOADER || DebugConfig.DEBUG_DOWNLOADER || DebugConfig.DEBUG_ALL)
+                        && DebugConfig.DEBUG_DOWNLOADER_SLEEP) {
+                    Thread.sleep(2000);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fetch stage: downloads pages and buffers their bodies, so parsing does not hold a connection.
+     */
+    private void fetchLoop() {
+        while (running) {
+            LeasedUrl lease;
+            try {
+                lease = fetchQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                Connection.Response response = Jsoup.connect(lease.url()).execute();
+                response.readFully();
+                parseQueue.put(new FetchedPage(lease, response));
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.out.println("Error processing URL: " + e.getMessage());
+                finish(lease);
+            }
+        }
+    }
+
+    /**
+     * Parse stage: extracts the page information and links of downloaded pages.
+     */
+    private void parseLoop() {
+        while (running) {
+            FetchedPage fetched;
+            try {
+                fetched = parseQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                deliveryQueue.put(parse(fetched.lease(), fetched.response().parse()));
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.out.println("Error processing URL: " + e.getMessage());
+                finish(fetched.lease());
+            }
+        }
+    }
+
+    /**
+     * Delivery stage: assigns sequence numbers to parsed pages and sends them to the Barrels in batches.
+     * A batch is sent when it is full, when its oldest page waited {@value #BATCH_MAX_DELAY_MS} ms,
+     * or when no more pages arrive. Finished URLs are then reported to the Barrels that leased them.
+     */
+    private void deliveryLoop() {
+        while (true) {
+            ParsedPage parsed;
+            try {
+                long waitMs = pendingBatch.isEmpty()
+                        ? BATCH_MAX_DELAY_MS
+                        : Math.max(0, batchStartedAt + BATCH_MAX_DELAY_MS - System.currentTimeMillis());
+                parsed = deliveryQueue.poll(waitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                parsed = null;
+                running = false;
+            }
+
+            if (parsed != null) {
+                queuePage(parsed);
+            }
+            if (parsed == null || pendingBatch.size() >= BATCH_SIZE
+                    || System.currentTimeMillis() - batchStartedAt >= BATCH_MAX_DELAY_MS) {
+                flushBatch();
+                reportFinished();
+            }
+
+            if (!running && deliveryQueue.isEmpty()) {
+                flushBatch();
+                reportFinished();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records a leased URL as done, to be reported to its Barrel by the delivery thread.
+     * @param lease the leased URL
+     */
+    private void finish(LeasedUrl lease) {
+        finished.computeIfAbsent(lease.barrelName(), k -> new ConcurrentLinkedQueue<>()).add(lease.url());
+    }
+
+    /**
+     * Reports the finished URLs to the Barrels that leased them, one call per Barrel.
+     * If a Barrel cannot be reached its leases simply expire and the URLs are handed out again.
+     */
+    private void reportFinished() {
+        Map<String, BarrelIndex> active = getActiveBarrelsByName();
+        for (Map.Entry<String, Queue<String>> entry : finished.entrySet()) {
+            List<String> urls = new ArrayList<>();
+            for (String url; (url = entry.getValue().poll()) != null; ) {
+                urls.add(url);
+            }
+            BarrelIndex barrel = active.get(entry.getKey());
+            if (urls.isEmpty() || barrel == null) continue;
+            try {
+                barrel.completeUrls(urls);
+            } catch (RemoteException e) {
+                System.err.println("[Downloader] Error reporting finished URLs to " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Creates a factory naming the threads of a pipeline stage.
+     * @param stage stage name
+     * @return thread factory
+     */
+    private static ThreadFactory stageThreads(String stage) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> new Thread(r, "crawl-" + stage + "-" + count.incrementAndGet());
+    }
+
+    /**
+     * Sends the pending batch of pages to all active Barrels in a single call per Barrel.
+     * Every Barrel receives every sequence number, but only the content of its shard's pages and the
+     * links of its shard (see {@link #forShard}), so ingest work and traffic are split between shards.
+     * Each Barrel checks the sequence numbers, indexes the pages and commits once for the whole batch,
+     * and answers with the next sequence number it expects, which releases history entries.
+     * Only called by the delivery thread.
+     */
+    private void flushBatch() {
+        if (pendingBatch.isEmpty()) return;
+
+        List<HistoryMessage> batch = new ArrayList<>(pendingBatch);
+        pendingBatch.clear();
+        pendingLeases.forEach(this::finish);
+        pendingLeases.clear();
+
+        Map<Integer, List<HistoryMessage>> shardBatches = new HashMap<>();
+        for (Map.Entry<String, BarrelIndex> entry : getActiveBarrelsByName().entrySet()) {
+            BarrelIndex barrel = entry.getValue();
+            ShardMap.Replica replica = shardMap.replica(entry.getKey());
+            List<HistoryMessage> shardBatch = replica == null
+                    ? batch
+                    : shardBatches.computeIfAbsent(replica.shard(), shard -> forShard(batch, shard));
+            try {
+                history.acknowledge(entry.getKey(), barrel.receiveMessages(shardBatch, name, ip, port));
+                if (DebugConfig.DEBUG_DOWNLOADER || DebugConfig.DEBUG_ALL) {
+                    System.out.println("[DEBUG] Batch of " + batch.size() + " pages sent (seq " + batch.get(0).getSeqNumber()
+                            + ".." + batch.get(batch.size() - 1).getSeqNumber() + ") to Barrel from: " + name);
+                }
+            } catch (Exception e) {
+                System.err.println("Error sending to Barrel: " + e.getMessage());
+                disconnectBarrel(barrel);
+            }
+        }
+    }
+
+    /**
+     * Returns the part of a batch a shard needs: the pages of other shards are reduced to their URL,
+     * the source of the inlinks the shard records, and only the links of the shard are kept.
+     *
+     * @param batch messages to send
+     * @param shard shard of the receiving Barrels
+     * @return messages with the same sequence numbers, trimmed for the shard
+     */
+    private List<HistoryMessage> forShard(List<HistoryMessage> batch, int shard) {
+        if (shardMap.shardCount() == 1) return batch;
+
+        List<HistoryMessage> shardBatch = new ArrayList<>(batch.size());
+        for (HistoryMessage message : batch) {
+            PageInfo page = message.getPage();
+            if (shardMap.shardOf(page.getUrl()) != shard) {
+                page = new PageInfo(page.getTitle(), page.getUrl(), List.of(), "");
+            }
+            List<String> links = new ArrayList<>();
+            for (String link : message.getUrls()) {
+                if (shardMap.shardOf(link) == shard) links.add(link);
+            }
+            shardBatch.add(new HistoryMessage(message.getSeqNumber(), page, links));
+        }
+        return shardBatch;
+    }
+
+    /**
+     * Returns all currently active (connected) Barrels by name.
+     * @return active Barrel connections by name
+     */
+    private synchronized Map<String, BarrelIndex> getActiveBarrelsByName() {
+        Map<String, BarrelIndex> active = new LinkedHashMap<>();
+        for (Map.Entry<String, Object[]> entry : barrels.entrySet()) {
+            if (entry.getValue()[2] != null) {
+                active.put(entry.getKey(), (BarrelIndex) entry.getValue()[2]);
             }
         }
         return active;
@@ -171,10 +512,18 @@ public class Downloader extends UnicastRemoteObject implements DownloaderIndex {
      *
      * @param seqNumber        the sequence number of the message to re-send
      * @param requestingBarrel the Barrel requesting the message
+     * @throws MessageTooOldException if the message is no longer in the history and the Barrel must resync
      * @throws RemoteException if an RMI error occurs
      */
     public void reSendMessages(int seqNumber, BarrelIndex requestingBarrel) throws RemoteException {
-        HistoryMessage message = historyBuffer.get(seqNumber);
+        HistoryMessage message;
+        try {
+            message = history.get(seqNumber);
+        } catch (MessageTooOldException e) {
+            System.out.println("Message with seqNumber: " + seqNumber + " no longer in history (oldest " + e.getOldestAvailable()
+                    + ", " + history.dropped() + " dropped unacknowledged).");
+            throw e;
+        }
 
         if (message == null) {
             if (DebugConfig.DEBUG_MULTICAST_DOWNLOADER || DebugConfig.DEBUG_ALL) {
@@ -195,52 +544,62 @@ public class Downloader extends UnicastRemoteObject implements DownloaderIndex {
         }
     }
 
+
     /**
-     * Scrapes a given URL, extracts page information and links, and distributes the data to all active Barrels.
+     * Extracts the page information and absolute links of a downloaded page.
      *
      * <p>Steps:
      * <ul>
-     *     <li>Connects to the URL using Jsoup</li>
      *     <li>Extracts title, full text, word list, and a short snippet</li>
-     *     <li>Extracts all absolute links</li>
-     *     <li>Assigns a sequence number and stores in history buffer</li>
-     *     <li>Sends data to all active Barrels</li>
+     *     <li>Computes the {@link SimHash} fingerprint of the words, used by the Barrels to collapse near-duplicates</li>
+     *     <li>Extracts all absolute links, canonicalised with {@link UrlCanonicalizer} and without duplicates</li>
+     *     <li>If {@link #HONOR_REL_CANONICAL} is set, uses the page's declared canonical URL when it is on the same host</li>
      * </ul>
      *
-     * @param url the URL to scrape
+     * @param lease the leased URL that was requested
+     * @param doc   the parsed document
+     * @return the parsed page
      */
-    public void scrapURL(String url) {
-        try {
-            Document doc = Jsoup.connect(url).get();
-            String pageTitle = doc.title();
-            String doctext = doc.text();
-            List<String> words = List.of(doctext.split(" "));
-            String[] sentences = doctext.split("\\.");
-            String textSnippet = String.join(".", Arrays.copyOfRange(sentences, 0, Math.min(3, sentences.length))) + ".";
-            PageInfo pageInformation = new PageInfo(pageTitle, url, words, textSnippet);
+    private static ParsedPage parse(LeasedUrl lease, Document doc) {
+        String url = lease.url();
+        if (HONOR_REL_CANONICAL) {
+            Element link = doc.selectFirst("link[rel=canonical][href]");
+            String canonical = link == null ? null : UrlCanonicalizer.canonicalize(link.attr("abs:href"));
+            if (canonical != null && CrawlFrontier.hostOf(canonical).equals(CrawlFrontier.hostOf(url))) {
+                url = canonical;
+            }
+        }
+        String pageTitle = doc.title();
+        String doctext = doc.text();
+        List<String> words = List.of(doctext.split(" "));
+        String[] sentences = doctext.split("\\.");
+        String textSnippet = String.join(".", Arrays.copyOfRange(sentences, 0, Math.min(3, sentences.length))) + ".";
+        PageInfo pageInformation = new PageInfo(pageTitle, url, words, textSnippet, SimHash.fingerprint(words));
 
-            List<String> hrefs = doc.select("a[href]")
-                    .stream().map(link -> link.attr("abs:href"))
-                    .filter(link -> !link.isEmpty()).toList();
+        List<String> hrefs = UrlCanonicalizer.canonicalizeAll(doc.select("a[href]")
+                .stream().map(link -> link.attr("abs:href")).toList());
 
-            int currentSeq = seqNumber++;
-            historyBuffer.put(currentSeq, new HistoryMessage(pageInformation, hrefs));
+        return new ParsedPage(lease, pageInformation, hrefs);
+    }
 
-            List<BarrelIndex> activeBarrels = getActiveBarrels();
+    /**
+     * Assigns the next sequence number to a parsed page, stores it in the history
+     * and adds it to the pending batch, sent to all active Barrels by {@link #flushBatch()}.
+     *
+     * @param parsed the parsed page
+     */
+    private void queuePage(ParsedPage parsed) {
+        int currentSeq = seqNumber++;
+        HistoryMessage message = new HistoryMessage(currentSeq, parsed.page(), parsed.links());
+        history.append(currentSeq, message);
 
-            for (BarrelIndex barrel : activeBarrels) {
-                try {
-                    barrel.receiveMessage(currentSeq, pageInformation, hrefs, name, ip, port);
-                    if (DebugConfig.DEBUG_DOWNLOADER || DebugConfig.DEBUG_ALL) {
-                        System.out.println("[DEBUG] Page sent: " + pageInformation.getTitle() + " with seq=" + currentSeq + " to Barrel from: " + name);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error sending to Barrel: " + e.getMessage());
-                    disconnectBarrel(barrel);
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("Error processing URL: " + e.getMessage());
+        if (pendingBatch.isEmpty()) {
+            batchStartedAt = System.currentTimeMillis();
+        }
+        pendingBatch.add(message);
+        pendingLeases.add(parsed.lease());
+        if (DebugConfig.DEBUG_DOWNLOADER || DebugConfig.DEBUG_ALL) {
+            System.out.println("[DEBUG] Page queued: " + parsed.page().getTitle() + " with seq=" + currentSeq);
         }
     }
 
@@ -10,11 +10,15 @@ import java.util.List;
  * <ul>
  *     <li>Reads configuration from a file (default: {@code config.txt})</li>
  *     <li>Creates or reuses a local RMI registry on the specified port</li>
- *     <li>Instantiates a Downloader with connection details for two Barrels</li>
+ *     <li>Instantiates a Downloader with connection details for the Barrels of every shard (see {@link ShardMap})</li>
  *     <li>Binds the Downloader object in the RMI registry</li>
- *     <li>Runs an infinite loop processing URLs from Barrel queues</li>
+ *     <li>Starts the Downloader's crawl pipeline, which processes URLs from Barrel queues</li>
  * </ul>
  *
+ * <p>The Downloader line of the configuration file may have an optional fourth field with the
+ * number of concurrent fetches (default {@value Downloader#DEFAULT_FETCH_THREADS}), e.g.
+ * {@code Downloader1; 10.0.0.1; 1102; 64}.
+ *
  */
 public class DownloaderServer {
 
@@ -28,21 +32,11 @@ public class DownloaderServer {
      */
     private static final int DOWNLOADER_LINE_INDEX = 4;
 
-    /**
-     * Index of the configuration line for Barrel 1.
-     */
-    private static final int BARREL1_LINE_INDEX = 2;
-
-    /**
-     * Index of the configuration line for Barrel 2.
-     */
-    private static final int BARREL2_LINE_INDEX = 3;
-
     /**
      * Main entry point for the Downloader server.
      *
      * <p>Reads configuration, creates the Downloader, registers it in RMI registry,
-     * and continuously processes URLs from Barrel queues.
+     * and starts the crawl pipeline. The pipeline threads keep the process running.
      *
      * @param args command-line arguments (currently unused)
      */
@@ -59,24 +53,23 @@ public class DownloaderServer {
             String downloaderName = downloaderConfig.get(0).trim();
             String downloaderIp = downloaderConfig.get(1).trim();
             int downloaderPort = Integer.parseInt(downloaderConfig.get(2).trim());
+            int fetchThreads = downloaderConfig.size() > 3
+                    ? Integer.parseInt(downloaderConfig.get(3).trim())
+                    : Downloader.DEFAULT_FETCH_THREADS;
 
             System.setProperty("java.rmi.server.hostname", downloaderIp);
 
             // Read Barrel configurations
-            List<String> barrel1Config = FileManipulation.lineSplitter(CONFIG_FILE, BARREL1_LINE_INDEX, ";");
-            List<String> barrel2Config = FileManipulation.lineSplitter(CONFIG_FILE, BARREL2_LINE_INDEX, ";");
-
-            if (barrel1Config.size() < 3 || barrel2Config.size() < 3) {
-                System.err.println("Error: Incomplete Barrel configuration");
+            ShardMap shardMap;
+            try {
+                shardMap = ShardMap.load(CONFIG_FILE);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: Invalid Barrel configuration: " + e.getMessage());
                 return;
             }
 
             // Create Downloader instance
-            Downloader downloader = new Downloader(
-                    downloaderName, downloaderIp, downloaderPort,
-                    barrel1Config.get(1).trim(), Integer.parseInt(barrel1Config.get(2).trim()), barrel1Config.get(0).trim(),
-                    barrel2Config.get(1).trim(), Integer.parseInt(barrel2Config.get(2).trim()), barrel2Config.get(0).trim()
-            );
+            Downloader downloader = new Downloader(downloaderName, downloaderIp, downloaderPort, shardMap, fetchThreads);
 
             // Register in RMI registry
             try {
@@ -91,20 +84,9 @@ public class DownloaderServer {
             System.out.printf("[DownloaderServer] '%s' registered and running at %s:%d%n",
                     downloaderName, downloaderIp, downloaderPort);
 
-            // Main processing loop
-            while (true) {
-                try {
-                    downloader.processNextUrl();
-
-                    if ((DebugConfig.DEBUG_MULTICAST_DOWNLOADER || DebugConfig.DEBUG_DOWNLOADER || DebugConfig.DEBUG_ALL)
-                            && DebugConfig.DEBUG_DOWNLOADER_SLEEP) {
-                        Thread.sleep(2000);
-                    }
-                } catch (Exception e) {
-                    System.err.println("[DownloaderServer] Error during processing cycle: " + e.getMessage());
-                    Thread.sleep(2000);
-                }
-            }
+            // Crawl pipeline; parsed pages still in flight are sent on shutdown
+            downloader.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(downloader::shutdown));
 
         } catch (NumberFormatException e) {
             System.err.println("Error: Invalid port number in configuration file.");
@@ -0,0 +1,241 @@
+package webServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only, memory-mapped FIFO of frontier URLs that do not fit in memory.
+ *
+ * <p>The log is a sequence of fixed-size segment files, each mapped in full. Records are appended
+ * to the last segment and read from the first one. A segment that has been read is only deleted by
+ * {@link #deleteReadSegments(long)}, once the owner has checkpointed a read position past it. A read
+ * segment may still be mapped, which prevents its deletion on Windows; it is then retried on later
+ * calls, and removed by the next {@link #open(Path, long)} at the latest.
+ * Record layout (big-endian):
+ * <pre>
+ *     [length: int][priority: int][url: UTF-8 bytes]
+ * </pre>
+ * A length of 0 marks the end of the written data of a segment (mapped files start zero-filled), so
+ * the write position is recovered by scanning the last segment. The read position is a single
+ * {@code long} (segment number * segment size + offset) that the owner stores in its checkpoint.
+ *
+ * <p>Writes reach the page cache immediately and survive a process crash; {@link #force()} makes
+ * them durable against an operating system crash.
+ *
+ * Thread-safety: Not thread-safe; the {@link CrawlFrontier} calls it under its own lock.
+ */
+public final class FrontierLog implements Closeable {
+    /** Size of each segment file. */
+    public static final int SEGMENT_BYTES = 64 << 20;
+    /** Longest URL that can be stored, in UTF-8 bytes. */
+    public static final int MAX_URL_BYTES = 8192;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final String SUFFIX = ".log";
+
+    /** URL read back from the log. */
+    public record Record(String url, int priority) {
+    }
+
+    private final Path directory;
+    private long oldestSegment;
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private long readSegment;
+    private MappedByteBuffer readBuffer;
+    private int readOffset;
+    private long pending;
+    // Read segments whose deletion failed, e.g. because they are still mapped
+    private final List<Path> pendingDeletes = new ArrayList<>();
+
+    private FrontierLog(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the log in a directory, dropping the segments before the read position.
+     *
+     * @param directory    directory of the segment files (created if missing)
+     * @param readPosition position returned by {@link #readPosition()} when the owner last checkpointed, or 0
+     * @return the opened log
+     * @throws IOException if the segments cannot be opened
+     */
+    public static FrontierLog open(Path directory, long readPosition) throws IOException {
+        Files.createDirectories(directory);
+        FrontierLog log = new FrontierLog(directory);
+
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+            }
+        }
+        Collections.sort(segments);
+
+        log.readSegment = readPosition / SEGMENT_BYTES;
+        log.readOffset = (int) (readPosition % SEGMENT_BYTES);
+        for (long segment : segments) {
+            if (segment < log.readSegment) Files.deleteIfExists(log.segmentFile(segment));
+        }
+        log.oldestSegment = log.readSegment;
+        log.writeSegment = segments.isEmpty() ? log.readSegment : Math.max(log.readSegment, segments.get(segments.size() - 1));
+
+        log.writeBuffer = log.map(log.writeSegment);
+        int writeOffset = 0;
+        while (writeOffset + HEADER_BYTES <= SEGMENT_BYTES && log.writeBuffer.getInt(writeOffset) != 0) {
+            writeOffset += HEADER_BYTES + log.writeBuffer.getInt(writeOffset);
+        }
+        log.writeBuffer.position(writeOffset);
+
+        log.readBuffer = log.readSegment == log.writeSegment ? log.writeBuffer : log.map(log.readSegment);
+        log.pending = log.countFromReadPosition();
+        return log;
+    }
+
+    /**
+     * Appends a URL.
+     *
+     * @param url      URL to store
+     * @param priority its frontier priority
+     * @return false if the URL is longer than {@value #MAX_URL_BYTES} bytes and was not stored
+     * @throws IOException if a new segment cannot be created
+     */
+    public boolean append(String url, int priority) throws IOException {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_URL_BYTES) return false;
+
+        if (writeBuffer.remaining() < HEADER_BYTES + bytes.length) {
+            writeBuffer.force();
+            writeSegment++;
+            writeBuffer = map(writeSegment);
+        }
+        // Write the payload before the length, so a torn record reads as the end of the data
+        int start = writeBuffer.position();
+        writeBuffer.putInt(start + Integer.BYTES, priority);
+        writeBuffer.put(start + HEADER_BYTES, bytes);
+        writeBuffer.putInt(start, bytes.length);
+        writeBuffer.position(start + HEADER_BYTES + bytes.length);
+        pending++;
+        return true;
+    }
+
+    /**
+     * Reads the oldest unread URL.
+     *
+     * @return the URL, or null if every URL has been read
+     * @throws IOException if the next segment cannot be opened
+     */
+    public Record poll() throws IOException {
+        while (true) {
+            if (readSegment == writeSegment && readOffset >= writeBuffer.position()) return null;
+
+            int length = readOffset + HEADER_BYTES <= SEGMENT_BYTES ? readBuffer.getInt(readOffset) : 0;
+            if (length == 0) {
+                // End of a segment that is no longer written: move on to the next one
+                readSegment++;
+                readOffset = 0;
+                readBuffer = readSegment == writeSegment ? writeBuffer : map(readSegment);
+                continue;
+            }
+
+            int priority = readBuffer.getInt(readOffset + Integer.BYTES);
+            byte[] bytes = new byte[length];
+            readBuffer.get(readOffset + HEADER_BYTES, bytes);
+            readOffset += HEADER_BYTES + length;
+            pending--;
+            return new Record(new String(bytes, StandardCharsets.UTF_8), priority);
+        }
+    }
+
+    /**
+     * Returns the number of URLs appended and not read yet.
+     * @return unread URL count
+     */
+    public long pending() {
+        return pending;
+    }
+
+    /**
+     * Returns the position of the next URL to read, to be passed to {@link #open(Path, long)} on recovery.
+     * @return read position
+     */
+    public long readPosition() {
+        return readSegment * SEGMENT_BYTES + readOffset;
+    }
+
+    /**
+     * Deletes the segments before a checkpointed read position. Reading may have moved past it since,
+     * but recovery starts reading from the checkpointed one. Segments that cannot be deleted yet are
+     * retried on the next call.
+     *
+     * @param checkpointedPosition read position stored in the owner's last checkpoint
+     */
+    public void deleteReadSegments(long checkpointedPosition) {
+        long checkpointedSegment = Math.min(checkpointedPosition / SEGMENT_BYTES, readSegment);
+        while (oldestSegment < checkpointedSegment) {
+            pendingDeletes.add(segmentFile(oldestSegment++));
+        }
+        pendingDeletes.removeIf(file -> {
+            try {
+                Files.deleteIfExists(file);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Forces the appended URLs to disk.
+     */
+    public void force() {
+        writeBuffer.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private long countFromReadPosition() {
+        long count = 0;
+        for (long segment = readSegment; segment <= writeSegment; segment++) {
+            Path file = segmentFile(segment);
+            if (!Files.exists(file)) continue;
+            MappedByteBuffer buffer;
+            try {
+                buffer = segment == writeSegment ? writeBuffer : segment == readSegment ? readBuffer : map(segment);
+            } catch (IOException e) {
+                continue;
+            }
+            int offset = segment == readSegment ? readOffset : 0;
+            int end = segment == writeSegment ? writeBuffer.position() : SEGMENT_BYTES;
+            while (offset + HEADER_BYTES <= end && buffer.getInt(offset) != 0) {
+                offset += HEADER_BYTES + buffer.getInt(offset);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private MappedByteBuffer map(long segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+    }
+
+    private Path segmentFile(long segment) {
+        return directory.resolve(String.format("%012d", segment) + SUFFIX);
+    }
+}
@@ -5,37 +5,137 @@ import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
- * Gateway that coordinates search requests and URL indexing across multiple Barrel instances.
+ * Gateway that coordinates search requests and URL indexing across the Barrels of every shard.
  *
- * The Gateway:
+ * <p>Documents are partitioned between shards by URL hash (see {@link ShardMap}), and each shard is
+ * served by one or more replica Barrels. The Gateway:
  * <ul>
- *     <li>Load-balances search requests between two Barrels (round-robin)</li>
+ *     <li>Sends each search to one replica of every shard in parallel (scatter) and merges their
+ *     ranked results into the global top results (gather), within a per-search deadline</li>
+ *     <li>Sends each request to the least loaded replica of a shard (see {@link ReplicaLoad}), falling back
+ *     to another replica on failure</li>
+ *     <li>Caches the top results of recent queries until the Barrels report an index change</li>
+ *     <li>Hedges slow requests: a request not answered within the shard's recent 95th percentile latency
+ *     is also sent to another replica, and the first answer is used</li>
  *     <li>Handles Barrel reconnection if a connection is lost</li>
  *     <li>Aggregates system statistics from all Barrels</li>
- *     <li>Maintains a history of indexed URLs for re-transmission if needed</li>
+ *     <li>Keeps a bounded history of added URLs for re-transmission, released once every Barrel acknowledged them</li>
  * </ul>
  *
+ * <p>BM25 scores are computed by each shard with its own document frequencies. Since documents are spread
+ * uniformly by URL hash, these statistics are close across shards and scores can be compared directly.
+ *
  * Thread-safety: Methods use blocking RMI calls. Concurrent client requests are handled
- * by the RMI runtime but internal state (like {@code nextBarrel}) is not synchronized.
+ * by the RMI runtime; the Barrel connections and load estimates are thread-safe.
  */
 public class Gateway extends UnicastRemoteObject implements GatewayInterface {
-    private BarrelIndex barrel1;
-    private BarrelIndex barrel2;
-    private int nextBarrel = 1;
+    /**
+     * Maximum number of ranked results requested from a Barrel per search.
+     */
+    private static final int MAX_SEARCH_RESULTS = 100;
+    /**
+     * Maximum number of added URLs kept for re-transmission.
+     */
+    private static final int URL_HISTORY_CAPACITY = 1 << 16;
+    /**
+     * Number of added URLs between two requests for the Barrels' acknowledgements.
+     */
+    private static final int ACK_INTERVAL = 256;
+    /**
+     * Longest time a search waits for the shards; the shards that did not answer are left out.
+     */
+    private static final long SEARCH_DEADLINE_MS = 3000;
+    /**
+     * Latency percentile of a shard after which a request to it is hedged.
+     */
+    private static final double HEDGE_PERCENTILE = 0.95;
+    /**
+     * Hedge delay used until enough latencies of a shard were recorded.
+     */
+    private static final long DEFAULT_HEDGE_DELAY_MS = 50;
+    /**
+     * Shortest hedge delay, so requests to a very fast shard are not all sent twice.
+     */
+    private static final long MIN_HEDGE_DELAY_MS = 10;
+    /**
+     * Number of recent request latencies kept per shard.
+     */
+    private static final int LATENCY_WINDOW = 256;
+    /**
+     * Maximum number of queries whose top results are cached.
+     */
+    private static final int QUERY_CACHE_SIZE = 10_000;
+    /**
+     * Interval between two polls of the Barrels' change log positions, which detect index changes.
+     */
+    private static final long INDEX_VERSION_REFRESH_MS = 1000;
+    /**
+     * Interval between two polls of the Barrels' index statistics.
+     */
+    private static final long INDEX_STATS_REFRESH_MS = 5000;
 
-    private final String barrel1Name;
-    private final String barrel1Ip;
-    private final int barrel1Port;
+    /** Orders results best first; the URL breaks ties so merged results are stable. */
+    private static final Comparator<SearchResult> BY_SCORE =
+            Comparator.comparingDouble(SearchResult::getScore).reversed().thenComparing(SearchResult::getUrl);
 
-    private final String barrel2Name;
-    private final String barrel2Ip;
-    private final int barrel2Port;
+    /** Ranked results gathered from the shards; incomplete if a shard was left out. */
+    private record GatheredPage(SearchResultPage page, boolean complete) {
+    }
+
+    /** Query cache key: normalised terms and the index version the results were computed at. */
+    private record QueryKey(List<String> terms, long indexVersion) {
+    }
+
+    /**
+     * A request to one Barrel.
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    private interface BarrelCall<T> {
+        T call(ShardMap.Replica replica, BarrelIndex barrel) throws RemoteException;
+    }
 
-    private final HashMap<Integer, String> urlHistory;
+    private final ShardMap shardMap;
+    // Connected Barrels by name; a Barrel is removed when a call to it fails
+    private final ConcurrentMap<String, BarrelIndex> barrels = new ConcurrentHashMap<>();
+    // Load estimate of each Barrel by name, for replica selection
+    private final Map<String, ReplicaLoad> loads = new HashMap<>();
+    // Recent request latencies of each shard, for the hedge delay
+    private final LatencyTracker[] latencies;
+    private final ExecutorService searchPool;
+    // Top results of recent queries, for the current index version (see refreshIndexVersion)
+    private final Cache<QueryKey, GatheredPage> queryCache;
+    private final AtomicLong indexVersion = new AtomicLong();
+    // Last change log position of each Barrel, only used by the maintenance thread
+    private final Map<String, Long> changePositions = new HashMap<>();
+    // Last index statistics of each Barrel, refreshed by the maintenance thread
+    private final ConcurrentMap<String, IndexStats> indexStats = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenance;
+
+    private final RetransmissionLog<String> urlHistory;
     private int currentSeqNumber;
 
     private final String name;
@@ -45,29 +145,42 @@ public class Gateway extends UnicastRemoteObject implements GatewayInterface {
     private final SystemStats globalStats;
 
     /**
-     * Constructs a new Gateway and connects to the specified Barrels.
+     * Constructs a new Gateway and connects to the Barrels of every shard.
      *
-     * @param b1Name      name of Barrel 1 in RMI registry
-     * @param b1Ip        IP address of Barrel 1
-     * @param b1Port      RMI registry port of Barrel 1
-     * @param b2Name      name of Barrel 2 in RMI registry
-     * @param b2Ip        IP address of Barrel 2
-     * @param b2Port      RMI registry port of Barrel 2
+     * @param shardMap    Barrels of every shard
      * @param gatewayIp   IP address where this Gateway is bound
      * @param gatewayPort RMI registry port for this Gateway
      * @throws RemoteException if RMI export fails
      */
-    public Gateway(String b1Name, String b1Ip, int b1Port,
-                   String b2Name, String b2Ip, int b2Port,
-                   String gatewayIp, int gatewayPort) throws RemoteException {
+    public Gateway(ShardMap shardMap, String gatewayIp, int gatewayPort) throws RemoteException {
         super();
-        this.barrel1Name = b1Name;
-        this.barrel1Ip = b1Ip;
-        this.barrel1Port = b1Port;
-        this.barrel2Name = b2Name;
-        this.barrel2Ip = b2Ip;
-        this.barrel2Port = b2Port;
-        this.urlHistory = new HashMap<>();
+        this.shardMap = shardMap;
+        this.latencies = new LatencyTracker[shardMap.shardCount()];
+        for (int shard = 0; shard < latencies.length; shard++) {
+            latencies[shard] = new LatencyTracker(LATENCY_WINDOW);
+        }
+        for (ShardMap.Replica replica : shardMap.replicas()) {
+            loads.put(replica.name(), new ReplicaLoad());
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.searchPool = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "gateway-search-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queryCache = CacheBuilder.newBuilder()
+                .maximumSize(QUERY_CACHE_SIZE)
+                .recordStats()
+                .build();
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "gateway-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.urlHistory = new RetransmissionLog<>(URL_HISTORY_CAPACITY);
+        for (ShardMap.Replica replica : shardMap.replicas()) {
+            urlHistory.register(replica.name());
+        }
         this.currentSeqNumber = 0;
         this.name = "Gateway";
         this.gatewayIp = gatewayIp;
@@ -75,111 +188,399 @@ public class Gateway extends UnicastRemoteObject implements GatewayInterface {
         this.globalStats = new SystemStats();
 
         // Initial connection
-        reconnectBarrel1();
-        reconnectBarrel2();
-        if (barrel1 != null) {
-            barrel1.resetSeqNumbers(name);
-        }
-        if (barrel2 != null) {
-            barrel2.resetSeqNumbers(name);
+        for (ShardMap.Replica replica : shardMap.replicas()) {
+            BarrelIndex barrel = connect(replica);
+            if (barrel != null) {
+                barrel.resetSeqNumbers(name, urlHistory.first());
+            }
         }
+
+        maintenance.scheduleWithFixedDelay(this::refreshIndexVersion,
+                0, INDEX_VERSION_REFRESH_MS, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::refreshIndexStats,
+                0, INDEX_STATS_REFRESH_MS, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Attempts to reconnect to Barrel 1 if unavailable.
+     * Attempts to (re)connect to a Barrel.
+     *
+     * @param replica the Barrel
+     * @return the connection, or null if the Barrel is unavailable
      */
-    private void reconnectBarrel1() {
+    private BarrelIndex connect(ShardMap.Replica replica) {
         try {
-            Registry registry = LocateRegistry.getRegistry(barrel1Ip, barrel1Port);
-            barrel1 = (BarrelIndex) registry.lookup(barrel1Name);
-            System.out.println("Barrel1 connected");
+            Registry registry = LocateRegistry.getRegistry(replica.ip(), replica.port());
+            BarrelIndex barrel = (BarrelIndex) registry.lookup(replica.name());
+            barrels.put(replica.name(), barrel);
+            System.out.println(replica.name() + " connected (shard " + replica.shard() + ")");
+            return barrel;
         } catch (Exception e) {
-            System.err.println(barrel1Name + " unavailable: " + e.getMessage());
-            barrel1 = null;
+            System.err.println(replica.name() + " unavailable: " + e.getMessage());
+            barrels.remove(replica.name());
+            return null;
         }
     }
 
     /**
-     * Attempts to reconnect to Barrel 2 if unavailable.
+     * Returns the connection to a Barrel, reconnecting if it was lost.
+     *
+     * @param replica the Barrel
+     * @return the connection, or null if the Barrel is unavailable
      */
-    private void reconnectBarrel2() {
-        try {
-            Registry registry = LocateRegistry.getRegistry(barrel2Ip, barrel2Port);
-            barrel2 = (BarrelIndex) registry.lookup(barrel2Name);
-            System.out.println(barrel2Name + " connected");
-        } catch (Exception e) {
-            System.err.println("Barrel2 unavailable: " + e.getMessage());
-            barrel2 = null;
+    private BarrelIndex barrel(ShardMap.Replica replica) {
+        BarrelIndex barrel = barrels.get(replica.name());
+        return barrel != null ? barrel : connect(replica);
+    }
+
+    /**
+     * Returns how long a request to a shard waits before it is hedged: the shard's recent
+     * 95th percentile latency ({@link #HEDGE_PERCENTILE}), so about 5% of requests are sent twice.
+     *
+     * @param shard shard number
+     * @return delay in milliseconds
+     */
+    private long hedgeDelay(int shard) {
+        long latency = latencies[shard].percentile(HEDGE_PERCENTILE);
+        return latency < 0 ? DEFAULT_HEDGE_DELAY_MS : Math.max(MIN_HEDGE_DELAY_MS, latency);
+    }
+
+    /**
+     * Chooses the replica expected to answer first: the lowest {@link ReplicaLoad#cost()}, combining
+     * requests in flight and average latency. Disconnected replicas come last, so they are only tried
+     * (and reconnected) when no connected one is left. Ties are broken at random, so idle replicas share the load.
+     *
+     * @param candidates replicas to choose from
+     * @return the chosen replica, or null if there are no candidates
+     */
+    private ShardMap.Replica leastLoaded(List<ShardMap.Replica> candidates) {
+        if (candidates.isEmpty()) return null;
+
+        int start = ThreadLocalRandom.current().nextInt(candidates.size());
+        ShardMap.Replica best = null;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < candidates.size(); i++) {
+            ShardMap.Replica replica = candidates.get((start + i) % candidates.size());
+            double cost = barrels.containsKey(replica.name()) ? loads.get(replica.name()).cost() : Double.MAX_VALUE;
+            if (best == null || cost < bestCost) {
+                best = replica;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One request to a shard, sent asynchronously to its least loaded replica (see {@link #leastLoaded}).
+     *
+     * <p>A replica that is unavailable or fails is replaced by the least loaded remaining one at once.
+     * If the request has not been answered after the shard's hedge delay (see {@link #hedgeDelay}), it is
+     * also sent to another replica (hedged request) and the first answer wins; the slower call is left to
+     * finish and its answer is dropped. A Barrel stalled by garbage collection or ingest then no longer
+     * delays searches, and its growing load estimate steers the following requests away from it.
+     *
+     * @param <T> result type
+     */
+    private final class ShardRequest<T> {
+        private final int shard;
+        private final BarrelCall<T> call;
+        private final List<ShardMap.Replica> replicas;
+        // Replicas not sent the request yet, guarded by this
+        private final List<ShardMap.Replica> untried;
+        private final AtomicInteger running = new AtomicInteger();
+        private final CompletableFuture<T> answer = new CompletableFuture<>();
+
+        ShardRequest(int shard, BarrelCall<T> call) {
+            this.shard = shard;
+            this.call = call;
+            this.replicas = shardMap.replicas(shard);
+            this.untried = new ArrayList<>(replicas);
+        }
+
+        /**
+         * Sends the request to the first replica and schedules the hedged request.
+         * @return future completed with the first answer, or with a {@link BarrelUnavailableException}
+         * if every replica failed
+         */
+        CompletableFuture<T> start() {
+            sendToNext();
+            if (replicas.size() > 1) {
+                long delay = hedgeDelay(shard);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, searchPool).execute(() -> {
+                    if (!answer.isDone() && sendToNext()
+                            && (DebugConfig.DEBUG_MULTICAST_GATEWAY || DebugConfig.DEBUG_ALL)) {
+                        System.out.println("[DEBUG]: Request to shard " + shard + " hedged after " + delay + " ms");
+                    }
+                });
+            }
+            return answer;
+        }
+
+        /**
+         * Sends the request to the least loaded replica not tried yet.
+         * @return false if every replica was already tried
+         */
+        private boolean sendToNext() {
+            ShardMap.Replica replica;
+            synchronized (this) {
+                replica = leastLoaded(untried);
+                if (replica == null) return false;
+                untried.remove(replica);
+            }
+            running.incrementAndGet();
+            searchPool.execute(() -> send(replica));
+            return true;
+        }
+
+        private void send(ShardMap.Replica replica) {
+            BarrelIndex barrel = answer.isDone() ? null : barrel(replica);
+            if (barrel != null) {
+                ReplicaLoad load = loads.get(replica.name());
+                load.begin();
+                long startTime = System.currentTimeMillis();
+                try {
+                    T result = call.call(replica, barrel);
+                    long duration = System.currentTimeMillis() - startTime;
+                    load.end(duration, false);
+                    latencies[shard].record(duration);
+                    answer.complete(result);
+                    return;
+                } catch (Exception e) {
+                    load.end(System.currentTimeMillis() - startTime, true);
+                    System.err.println("[Gateway] Error on " + replica.name() + ": " + e.getMessage());
+                    barrels.remove(replica.name(), barrel);
+                }
+            }
+            // Fall back to the next replica; fail once every replica was tried and none is still running
+            boolean retried = !answer.isDone() && sendToNext();
+            if (running.decrementAndGet() == 0 && !retried) {
+                answer.completeExceptionally(new BarrelUnavailableException("No Barrel of shard " + shard + " available."));
+            }
         }
     }
 
     /**
-     * Searches for pages matching the given query using an available Barrel.
+     * Sends a request to one replica of every shard in parallel and waits for the answers until the
+     * {@value #SEARCH_DEADLINE_MS} ms deadline. The shards that cannot answer in time are left out,
+     * so a search still returns the results of the others.
      *
-     * Alternates between Barrel 1 and Barrel 2 using round-robin. If one is unavailable,
-     * falls back to the other. Updates search counts and barrel metrics.
+     * @param call request to send
+     * @param <T>  result type
+     * @return the answers of the shards that answered
+     * @throws BarrelUnavailableException if no shard answered
+     */
+    private <T> List<T> scatter(BarrelCall<T> call) throws RemoteException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SEARCH_DEADLINE_MS);
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shardMap.shardCount(); shard++) {
+            futures.add(new ShardRequest<>(shard, call).start());
+        }
+
+        List<T> answers = new ArrayList<>();
+        for (int shard = 0; shard < futures.size(); shard++) {
+            try {
+                answers.add(futures.get(shard).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                System.err.println("[Gateway] Shard " + shard + " left out: " + e.getCause().getMessage());
+            } catch (TimeoutException e) {
+                System.err.println("[Gateway] Shard " + shard + " left out: no answer within " + SEARCH_DEADLINE_MS + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Interrupted while waiting for the shards", e);
+            }
+        }
+        if (answers.isEmpty()) {
+            throw new BarrelUnavailableException("No Barrel available for search.");
+        }
+        return answers;
+    }
+
+    /**
+     * Turns a query into the terms sent to the Barrels: lower-cased, distinct and sorted.
+     * Ranking does not depend on term order or repetition, so equivalent queries share a cache entry.
+     *
+     * @param query search query string
+     * @return normalised terms
+     */
+    private static List<String> normalize(String query) {
+        return Arrays.stream(query.toLowerCase().split("\\s+"))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Searches for pages matching the given query in every shard.
+     *
+     * Each shard is queried on its least loaded replica, falling back to the others
+     * and hedging slow requests (see {@link ShardRequest}). Results of repeated queries are served from
+     * the query cache (see {@link #topResults}). Updates search counts and barrel metrics.
+     * Results are ranked by BM25 relevance and limited to the best {@value #MAX_SEARCH_RESULTS} of all shards.
      *
      * @param query search query string
      * @return list of matching pages
      * @throws RemoteException if no Barrel is available or if an RMI error occurs
      */
     @Override
-    public List<PageInfo> search(String query) throws RemoteException {
-        List<String> terms = List.of(query.toLowerCase().split("\\s+"));
-        List<PageInfo> results = new ArrayList<>();
+    public List<SearchResult> search(String query) throws RemoteException {
+        List<String> terms = normalize(query);
 
         // Increment search count
-        Arrays.stream(query.toLowerCase().split("\\s+"))
-                .forEach(globalStats::incrementSearchCount);
+        terms.forEach(globalStats::incrementSearchCount);
 
-        // Reconnect if necessary
-        if (barrel1 == null) reconnectBarrel1();
-        if (barrel2 == null) reconnectBarrel2();
+        return new ArrayList<>(topResults(terms).getResults());
+    }
 
+    /**
+     * Searches for one window of results matching the given query in every shard.
+     *
+     * Windows within the best {@value #MAX_SEARCH_RESULTS} results are sliced from the cached top results
+     * of the query (see {@link #topResults}); deeper windows are requested from the shards directly.
+     * Search counts are only incremented for the first page, since following pages are not new searches.
+     *
+     * @param query  search query string
+     * @param offset index of the first result (0-based)
+     * @param limit  maximum number of results
+     * @return window of ranked results with the total hit count
+     * @throws RemoteException if no Barrel is available or if an RMI error occurs
+     */
+    @Override
+    public SearchResultPage search(String query, int offset, int limit) throws RemoteException {
+        List<String> terms = normalize(query);
+
+        if (offset == 0) {
+            terms.forEach(globalStats::incrementSearchCount);
+        }
+        if (offset < 0 || limit <= 0) {
+            return SearchResultPage.empty(Math.max(offset, 0), limit);
+        }
+
+        if ((long) offset + limit > MAX_SEARCH_RESULTS) {
+            return gather(terms, offset, limit).page();
+        }
+        SearchResultPage top = topResults(terms);
+        int from = Math.min(offset, top.getResults().size());
+        int to = Math.min(offset + limit, top.getResults().size());
+        return new SearchResultPage(top.getResults().subList(from, to), top.getTotalHits(), top.getAvailableHits(), offset, limit);
+    }
+
+    /**
+     * Returns the best {@value #MAX_SEARCH_RESULTS} results of a query, from the query cache if they were
+     * computed since the index last changed. Concurrent misses for the same query wait for one computation.
+     * Results that miss a shard are returned but not cached.
+     *
+     * @param terms normalised search terms
+     * @return top results with the total hit count
+     * @throws RemoteException if no Barrel is available or if an RMI error occurs
+     */
+    private SearchResultPage topResults(List<String> terms) throws RemoteException {
+        if (terms.isEmpty()) {
+            return SearchResultPage.empty(0, MAX_SEARCH_RESULTS);
+        }
+
+        QueryKey key = new QueryKey(terms, indexVersion.get());
+        GatheredPage top;
         try {
-            if (nextBarrel == 1 && barrel1 != null) {
-                long startTime = System.currentTimeMillis();
-                results.addAll(barrel1.searchPages(terms));
-                long duration = System.currentTimeMillis() - startTime;
-                globalStats.updateBarrelMetrics(barrel1Name, barrel1.getPagesInfoMap().size(), duration);
-                nextBarrel = 2;
-                return results;
-            } else if (nextBarrel == 2 && barrel2 != null) {
-                long startTime = System.currentTimeMillis();
-                results.addAll(barrel2.searchPages(terms));
-                long duration = System.currentTimeMillis() - startTime;
-                globalStats.updateBarrelMetrics(barrel2Name, barrel2.getPagesInfoMap().size(), duration);
-                nextBarrel = 1;
-                return results;
-            }
+            top = queryCache.get(key, () -> gather(terms, 0, MAX_SEARCH_RESULTS));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RemoteException remote) throw remote;
+            throw new RemoteException("Search failed", e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw new RemoteException("Search failed", e.getCause());
+        }
+        if (!top.complete()) {
+            queryCache.invalidate(key);
+        }
+        return top.page();
+    }
 
-            // Fallback
-            if (barrel1 != null) {
-                long startTime = System.currentTimeMillis();
-                results.addAll(barrel1.searchPages(terms));
-                long duration = System.currentTimeMillis() - startTime;
-                globalStats.updateBarrelMetrics(barrel1Name, barrel1.getPagesInfoMap().size(), duration);
-                nextBarrel = 2;
-            } else if (barrel2 != null) {
-                long startTime = System.currentTimeMillis();
-                results.addAll(barrel2.searchPages(terms));
-                long duration = System.currentTimeMillis() - startTime;
-                globalStats.updateBarrelMetrics(barrel2Name, barrel2.getPagesInfoMap().size(), duration);
-                nextBarrel = 1;
-            } else {
-                throw new RemoteException("No Barrel available for search.");
-            }
+    /**
+     * Requests one window of results from every shard and merges them.
+     * With several shards, each one returns its best {@code offset + limit} hits, which contain the
+     * requested window of the merged ranking; the total and available hit counts are the sums of the shards' counts.
+     *
+     * @param terms  normalised search terms
+     * @param offset index of the first result (0-based)
+     * @param limit  maximum number of results
+     * @return window of ranked results, and whether every shard answered
+     * @throws RemoteException if no Barrel is available or if an RMI error occurs
+     */
+    private GatheredPage gather(List<String> terms, int offset, int limit) throws RemoteException {
+        boolean sharded = shardMap.shardCount() > 1;
+        int window = sharded ? (int) Math.min((long) offset + limit, Integer.MAX_VALUE) : limit;
+        List<SearchResultPage> pages = scatter((replica, barrel) -> {
+            long startTime = System.currentTimeMillis();
+            SearchResultPage page = barrel.searchPage(terms, sharded ? 0 : offset, window);
+            long duration = System.currentTimeMillis() - startTime;
+            IndexStats stats = indexStats.get(replica.name());
+            globalStats.updateBarrelMetrics(replica.name(), stats == null ? 0 : stats.getDocumentCount(), duration);
+            return page;
+        });
+        if (!sharded) {
+            return new GatheredPage(pages.get(0), true);
+        }
 
-        } catch (Exception e) {
-            System.err.println("[Gateway] Error during search: " + e.getMessage());
+        List<SearchResult> merged = new ArrayList<>();
+        int totalHits = 0;
+        int availableHits = 0;
+        for (SearchResultPage page : pages) {
+            merged.addAll(page.getResults());
+            totalHits += page.getTotalHits();
+            availableHits += page.getAvailableHits();
         }
+        merged.sort(BY_SCORE);
+        int from = Math.min(offset, merged.size());
+        int to = Math.min(window, merged.size());
+        return new GatheredPage(new SearchResultPage(merged.subList(from, to), totalHits, availableHits, offset, limit),
+                pages.size() == shardMap.shardCount());
+    }
 
-        return results;
+    /**
+     * Polls the change log position of every connected Barrel and, if any moved, starts a new index version:
+     * cached results are dropped and results computed from then on are cached under the new version.
+     * Runs every {@value #INDEX_VERSION_REFRESH_MS} ms, which bounds how long a cached result can be stale.
+     */
+    private void refreshIndexVersion() {
+        boolean changed = false;
+        for (Map.Entry<String, BarrelIndex> entry : barrels.entrySet()) {
+            try {
+                long position = entry.getValue().getChangePosition();
+                Long previous = changePositions.put(entry.getKey(), position);
+                changed |= previous == null || previous != position;
+            } catch (Exception e) {
+                // Unreachable Barrels are detected and reconnected by the requests themselves
+                if (DebugConfig.DEBUG_ALL) {
+                    System.err.println("[DEBUG]: Could not read change position of " + entry.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+        if (changed) {
+            indexVersion.incrementAndGet();
+            queryCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Polls the index statistics of every connected Barrel, so searches and statistics requests
+     * read the last known values instead of calling the Barrels.
+     * Runs every {@value #INDEX_STATS_REFRESH_MS} ms; a Barrel that does not answer keeps its last statistics.
+     */
+    private void refreshIndexStats() {
+        for (Map.Entry<String, BarrelIndex> entry : barrels.entrySet()) {
+            try {
+                indexStats.put(entry.getKey(), entry.getValue().getIndexStats());
+            } catch (Exception e) {
+                if (DebugConfig.DEBUG_ALL) {
+                    System.err.println("[DEBUG]: Could not read index statistics of " + entry.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
     }
 
     /**
      * Retrieves aggregated system statistics from all connected Barrels.
-     * Combines top searches from the Gateway and metrics from each Barrel.
+     * Combines top searches, query cache metrics and the last polled index statistics from the Gateway
+     * and metrics from each Barrel.
      *
      * @return combined system statistics
      * @throws RemoteException if an RMI error occurs
@@ -195,25 +596,22 @@ public class Gateway extends UnicastRemoteObject implements GatewayInterface {
             }
         });
 
+        CacheStats cacheStats = queryCache.stats();
+        combined.updateQueryCacheMetrics(cacheStats.hitCount(), cacheStats.missCount(),
+                cacheStats.evictionCount(), queryCache.size());
+        indexStats.values().forEach(combined::updateIndexStats);
+
         // Use Barrels as source of truth for response times
-        if (barrel1 != null) {
-            try {
-                SystemStats b1Stats = barrel1.getStats();
-                b1Stats.getBarrelMetrics().forEach((name, metrics) ->
-                        combined.updateBarrelMetrics(name, metrics.getIndexSize(), metrics.getAvgResponseTimeMs())
-                );
-            } catch (Exception e) {
-                System.err.println("Error fetching stats from Barrel1");
-            }
-        }
-        if (barrel2 != null) {
+        for (Map.Entry<String, BarrelIndex> entry : barrels.entrySet()) {
             try {
-                SystemStats b2Stats = barrel2.getStats();
-                b2Stats.getBarrelMetrics().forEach((name, metrics) ->
-                        combined.updateBarrelMetrics(name, metrics.getIndexSize(), metrics.getAvgResponseTimeMs())
-                );
+                SystemStats barrelStats = entry.getValue().getStats();
+                barrelStats.getBarrelMetrics().forEach((name, metrics) -> {
+                    combined.updateBarrelMetrics(name, metrics.getIndexSize(), metrics.getAvgResponseTimeMs());
+                    combined.updateSeenUrlMetrics(name, metrics.getSeenUrls(),
+                            metrics.getSeenUrlFilterBytes(), metrics.getSeenUrlFilterFpp());
+                });
             } catch (Exception e) {
-                System.err.println("Error fetching stats from Barrel2");
+                System.err.println("Error fetching stats from " + entry.getKey());
             }
         }
 
@@ -221,65 +619,66 @@ public class Gateway extends UnicastRemoteObject implements GatewayInterface {
     }
 
     /**
-     * Adds a URL to the indexing queue of all available Barrels
-     * The URL is assigned a sequence number and stored in history for re-transmission if needed.
+     * Adds a URL to the indexing queue of the Barrels of its shard.
+     * The URL is first canonicalised with {@link UrlCanonicalizer}, so variants of an indexed URL are recognised.
+     * It is then assigned a sequence number and stored in history for re-transmission if needed.
+     * The URL is sent to every Barrel, so each one receives every sequence number, but only the Barrels
+     * of the URL's shard queue it.
+     * Every {@value #ACK_INTERVAL} URLs the Barrels are asked which URLs they received, so the history can be released.
      *
      * @param url the URL to index
      * @throws RemoteException              if an RMI error occurs
-     * @throws BarrelUnavailableException   if no Barrel is available
-     * @throws UrlAlreadyIndexedException   if the URL is rejected by all Barrels
+     * @throws BarrelUnavailableException   if no Barrel of the URL's shard is available
+     * @throws UrlAlreadyIndexedException   if the URL is rejected by all Barrels of its shard
+     * @throws InvalidUrlException          if the URL is not a valid http or https URL
      */
     @Override
     public void addUrl(String url) throws RemoteException {
-        if (DebugConfig.DEBUG_URL_INDEXAR || DebugConfig.DEBUG_MULTICAST_GATEWAY || DebugConfig.DEBUG_ALL) {
-            System.out.println("[DEBUG]: Adding URL: " + url + " with SeqNumber: " + currentSeqNumber);
+        String canonical = UrlCanonicalizer.canonicalize(url);
+        if (canonical == null) {
+            throw new InvalidUrlException("Not a valid http or https URL: " + url);
         }
+        url = canonical;
+        int shard = shardMap.shardOf(url);
 
-        boolean anySuccess = false;
-        boolean barrel1Available = false;
-        boolean barrel2Available = false;
+        int seqNumber;
+        synchronized (urlHistory) {
+            seqNumber = currentSeqNumber++;
+            urlHistory.append(seqNumber, url);
+        }
 
-        urlHistory.put(currentSeqNumber, url);
+        if (DebugConfig.DEBUG_URL_INDEXAR || DebugConfig.DEBUG_MULTICAST_GATEWAY || DebugConfig.DEBUG_ALL) {
+            System.out.println("[DEBUG]: Adding URL: " + url + " with SeqNumber: " + seqNumber + " (shard " + shard + ")");
+        }
 
-        if (barrel1 == null) reconnectBarrel1();
+        boolean anySuccess = false;
+        boolean shardAvailable = false;
 
-        if (barrel1 != null) {
-            barrel1Available = true;
-            try {
-                boolean added1 = barrel1.addUrlToQueue(url, currentSeqNumber, name, gatewayIp, gatewayPort);
-                if (DebugConfig.DEBUG_URL_INDEXAR) {
-                    System.out.println("[DEBUG]: URL " + url + (added1 ? " added" : " not added") + " to Barrel1 queue.");
-                }
-                anySuccess = added1;
-            } catch (Exception e) {
-                System.err.println("Error adding to Barrel1: " + e.getMessage());
-                barrel1 = null;
-                barrel1Available = false;
+        for (ShardMap.Replica replica : shardMap.replicas()) {
+            BarrelIndex barrel = barrel(replica);
+            if (barrel == null) {
+                System.err.println(replica.name() + " not available");
+                continue;
             }
-        } else {
-            System.err.println("Barrel1 not available");
-        }
-
-        if (barrel2 != null) {
-            barrel2Available = true;
             try {
-                boolean added2 = barrel2.addUrlToQueue(url, currentSeqNumber, name, gatewayIp, gatewayPort);
+                boolean added = barrel.addUrlToQueue(url, seqNumber, name, gatewayIp, gatewayPort);
+                if (replica.shard() != shard) continue;
+                shardAvailable = true;
                 if (DebugConfig.DEBUG_URL_INDEXAR) {
-                    System.out.println("[DEBUG]: URL " + url + (added2 ? " added" : " not added") + " to Barrel2 queue.");
+                    System.out.println("[DEBUG]: URL " + url + (added ? " added" : " not added") + " to " + replica.name() + " queue.");
                 }
-                anySuccess = anySuccess || added2;
+                anySuccess = anySuccess || added;
             } catch (Exception e) {
-                System.err.println("Error adding to Barrel2: " + e.getMessage());
-                barrel2 = null;
-                barrel2Available = false;
+                System.err.println("Error adding to " + replica.name() + ": " + e.getMessage());
+                barrels.remove(replica.name(), barrel);
             }
-        } else {
-            System.err.println("Barrel2 not available");
         }
 
-        currentSeqNumber++;
+        if (seqNumber % ACK_INTERVAL == ACK_INTERVAL - 1) {
+            refreshAcknowledgements();
+        }
 
-        if (!barrel1Available && !barrel2Available) {
+        if (!shardAvailable) {
             throw new BarrelUnavailableException("No Barrel available at this time.");
         }
 
@@ -288,12 +687,26 @@ public class Gateway extends UnicastRemoteObject implements GatewayInterface {
         }
     }
 
+    /**
+     * Asks each connected Barrel for the next sequence number it expects and releases the URLs all received.
+     */
+    private void refreshAcknowledgements() {
+        for (Map.Entry<String, BarrelIndex> entry : barrels.entrySet()) {
+            try {
+                urlHistory.acknowledge(entry.getKey(), entry.getValue().getAcknowledgedSeqNumber(name));
+            } catch (Exception e) {
+                System.err.println("Error fetching acknowledgement from " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Re-sends a URL with the specified sequence number to a specific Barrel.
      * Used for recovering from lost messages in multicast scenarios. Retries up to 3 times.
      *
      * @param missingSeqNumber the sequence number of the missing URL
      * @param receiver         the Barrel that should receive the URL
+     * @throws MessageTooOldException if the URL is no longer in the history and the Barrel must resync
      * @throws RemoteException if an RMI error occurs
      */
     public void reSendURL(int missingSeqNumber, BarrelIndex receiver) throws RemoteException {
@@ -301,28 +714,32 @@ public class Gateway extends UnicastRemoteObject implements GatewayInterface {
             System.out.println("[DEBUG]: Resending URL with SeqNumber: " + missingSeqNumber);
         }
 
+        String url = urlHistory.get(missingSeqNumber);
+        if (url == null) {
+            System.err.println("[Gateway] URL with SeqNumber " + missingSeqNumber + " not found in history.");
+            return;
+        }
+
+        ShardMap.Replica replica = null;
+        for (Map.Entry<String, BarrelIndex> entry : barrels.entrySet()) {
+            if (entry.getValue().equals(receiver)) {
+                replica = shardMap.replica(entry.getKey());
+                break;
+            }
+        }
+
         int tryNumber = 0;
-        while (tryNumber < 3) {
+        while (tryNumber < 3 && receiver != null) {
             try {
-                String url = urlHistory.get(missingSeqNumber);
-                if (url != null) {
-                    receiver.addUrlToQueue(url, missingSeqNumber, name, gatewayIp, gatewayPort);
-                    return;
-                } else {
-                    System.err.println("[Gateway] URL with SeqNumber " + missingSeqNumber + " not found in history.");
-                    return;
-                }
+                receiver.addUrlToQueue(url, missingSeqNumber, name, gatewayIp, gatewayPort);
+                return;
             } catch (Exception e) {
                 System.err.println("[Gateway] Error resending URL with SeqNumber " + missingSeqNumber + ": " + e.getMessage());
                 tryNumber++;
 
                 // Attempt reconnect
-                if (receiver == barrel1) {
-                    reconnectBarrel1();
-                    receiver = barrel1;
-                } else if (receiver == barrel2) {
-                    reconnectBarrel2();
-                    receiver = barrel2;
+                if (replica != null) {
+                    receiver = connect(replica);
                 }
             }
         }
@@ -330,37 +747,22 @@ public class Gateway extends UnicastRemoteObject implements GatewayInterface {
 
     /**
      * Searches for all pages that link to the given URL (inbound links).
-     * Alternates between Barrel 1 and Barrel 2 using round robin.
+     * Inlinks are stored by the shard of the target URL, so only that shard is queried,
+     * on its least loaded replica, with the same hedging and deadline as searches.
      *
      * @param url the target URL to find inlinks for
      * @return list of URLs that link to the given URL
-     * @throws RemoteException if no Barrel is available or if an RMI error occurs
+     * @throws RemoteException if an RMI error occurs
      */
     @Override
     public List<String> searchInlinks(String url) throws RemoteException {
         List<String> inlinks = new ArrayList<>();
-
-        // Reconnect if necessary
-        if (barrel1 == null) reconnectBarrel1();
-        if (barrel2 == null) reconnectBarrel2();
+        String canonical = UrlCanonicalizer.canonicalize(url);
+        String target = canonical == null ? url : canonical;
 
         try {
-            if (nextBarrel == 1 && barrel1 != null) {
-                inlinks.addAll(barrel1.getInLinks(url));
-                nextBarrel = 2;
-            } else if (nextBarrel == 2 && barrel2 != null) {
-                inlinks.addAll(barrel2.getInLinks(url));
-                nextBarrel = 1;
-            } else if (barrel1 != null) {
-                inlinks.addAll(barrel1.getInLinks(url));
-                nextBarrel = 2;
-            } else if (barrel2 != null) {
-                inlinks.addAll(barrel2.getInLinks(url));
-                nextBarrel = 1;
-            } else {
-                throw new RemoteException("No Barrel available to query inlinks.");
-            }
-
+            inlinks.addAll(new ShardRequest<>(shardMap.shardOf(target), (replica, barrel) -> barrel.getInLinks(target))
+                    .start().get(SEARCH_DEADLINE_MS, TimeUnit.MILLISECONDS));
         } catch (Exception e) {
             System.err.println("[Gateway] Error fetching inlinks: " + e.getMessage());
         }
@@ -12,22 +12,36 @@ public interface GatewayInterface extends Remote {
     /**
      * Pesquisa páginas que contêm os termos fornecidos.
      * @param query consulta de pesquisa (palavras separadas por espaços)
-     * @return lista de PageInfo correspondentes
+     * @return lista de resultados correspondentes (título, URL e excerto)
      * @throws RemoteException em caso de falha de comunicação RMI
      */
-    List<PageInfo> search(String query) throws RemoteException;
+    List<SearchResult> search(String query) throws RemoteException;
+
+    /**
+     * Pesquisa páginas que contêm os termos fornecidos e devolve apenas uma janela dos resultados.
+     * Só a janela pedida atravessa o RMI, juntamente com o número total de resultados.
+     * @param query consulta de pesquisa (palavras separadas por espaços)
+     * @param offset índice do primeiro resultado (começa em 0)
+     * @param limit número máximo de resultados a devolver
+     * @return janela de resultados ordenada por relevância
+     * @throws RemoteException em caso de falha de comunicação RMI
+     */
+    SearchResultPage search(String query, int offset, int limit) throws RemoteException;
 
     /**
      * Reenvia mensagens em falta para o Barrel especificado.
      * @param missingSeqNumber número de sequência da primeira mensagem em falta
      * @param receiver Barrel que deve receber as mensagens reenviadas
+     * @throws MessageTooOldException se a mensagem já não estiver no histórico e o Barrel tiver de ressincronizar
      * @throws RemoteException em caso de falha de comunicação RMI
      */
     void reSendURL(int missingSeqNumber, BarrelIndex receiver) throws RemoteException;
 
     /**
      * Adiciona uma nova URL para ser indexada.
+     * A URL é normalizada para a forma canónica antes de ser enviada aos Barrels.
      * @param url URL a ser indexada
+     * @throws InvalidUrlException se a URL não for um endereço http ou https válido
      * @throws RemoteException em caso de falha de comunicação RMI
      */
     void addUrl(String url) throws RemoteException;
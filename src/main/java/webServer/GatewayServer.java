@@ -11,7 +11,7 @@ import java.util.List;
  * <ul>
  *     <li>Reads configuration from a file</li>
  *     <li>Creates or reuses a local RMI registry on the specified port</li>
- *     <li>Instantiates a Gateway with connection details for two Barrels</li>
+ *     <li>Instantiates a Gateway with connection details for the Barrels of every shard (see {@link ShardMap})</li>
  *     <li>Binds the Gateway object in the RMI registry</li>
  * </ul>
  *
@@ -30,10 +30,9 @@ public class GatewayServer {
 
         try {
             List<String> gatewayCfg = FileManipulation.lineSplitter(filename, 1, ";");
-            List<String> barrel1Cfg = FileManipulation.lineSplitter(filename, 2, ";");
-            List<String> barrel2Cfg = FileManipulation.lineSplitter(filename, 3, ";");
+            ShardMap shardMap = ShardMap.load(filename);
 
-            if (gatewayCfg.size() < 3 || barrel1Cfg.size() < 3 || barrel2Cfg.size() < 3) {
+            if (gatewayCfg.size() < 3) {
                 System.err.println("Error: Incomplete configuration. Each line must contain Name;IP;Port");
                 return;
             }
@@ -42,22 +41,11 @@ public class GatewayServer {
             String gatewayIp = gatewayCfg.get(1).trim();
             int gatewayPort = Integer.parseInt(gatewayCfg.get(2).trim());
 
-            String barrel1Name = barrel1Cfg.get(0).trim();
-            String barrel1Ip = barrel1Cfg.get(1).trim();
-            int barrel1Port = Integer.parseInt(barrel1Cfg.get(2).trim());
-
-            String barrel2Name = barrel2Cfg.get(0).trim();
-            String barrel2Ip = barrel2Cfg.get(1).trim();
-            int barrel2Port = Integer.parseInt(barrel2Cfg.get(2).trim());
-
             System.setProperty("java.rmi.server.hostname", gatewayIp);
 
             // Create Gateway with connection info
-            Gateway gateway = new Gateway(
-                    barrel1Name, barrel1Ip, barrel1Port,
-                    barrel2Name, barrel2Ip, barrel2Port,
-                    gatewayIp, gatewayPort
-            );
+            Gateway gateway = new Gateway(shardMap, gatewayIp, gatewayPort);
+            System.out.printf("[GatewayServer] %d Barrels in %d shards%n", shardMap.replicas().size(), shardMap.shardCount());
 
             try {
                 LocateRegistry.createRegistry(gatewayPort);
@@ -7,11 +7,17 @@ import java.util.List;
  *
  * Each HistoryMessage represents a parsed web page and its extracted links,
  * associated with a sequence number. This allows the Downloader to re-send lost messages
- * to Barrels upon request.
+ * to Barrels upon request. Batches of messages are also sent to Barrels as one
+ * group-committed ingest call (see {@link BarrelIndex#receiveMessages(List, String, String, Integer)}).
  *
  * Thread-safety: This class is immutable and thread-safe.
  */
 public class HistoryMessage implements Serializable {
+    /**
+     * Sequence number assigned by the Downloader.
+     */
+    private final int seqNumber;
+
     /**
      * Information about the indexed web page (title, URL, words, snippet).
      */
@@ -25,14 +31,24 @@ public class HistoryMessage implements Serializable {
     /**
      * createsa new history message with page information and extracted links.
      *
+     * @param seqNumber the sequence number of this message
      * @param page the page information (title, URL, words, snippet)
      * @param urls the list of URLs found on this page
      */
-    public HistoryMessage(PageInfo page, List<String> urls) {
+    public HistoryMessage(int seqNumber, PageInfo page, List<String> urls) {
+        this.seqNumber = seqNumber;
         this.page = page;
         this.urls = urls;
     }
 
+    /**
+     * Returns the sequence number of this message.
+     * @return the sequence number assigned by the Downloader
+     */
+    public int getSeqNumber() {
+        return seqNumber;
+    }
+
     /**
      * Returns the page information.
      * @return the {@link PageInfo} object containing page metadata
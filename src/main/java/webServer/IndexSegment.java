@@ -0,0 +1,211 @@
+package webServer;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, memory-mapped file of posting lists sorted by term.
+ *
+ * <p>File layout (big-endian):
+ * <pre>
+ *     [magic: int]
+ *     [term length: int][term: UTF-8][posting length: int][posting: bytes]   (one record per term, sorted by term)
+ *     [record offsets: long * termCount]
+ *     [termCount: int][offsets start: long]
+ * </pre>
+ * The offsets table at the end lets a lookup binary-search the terms directly in the mapped
+ * file, so opening a segment costs nothing and postings are read from the page cache
+ * without deserialising anything. Postings use the {@link PostingList} encoding.
+ *
+ * <p>Segments are written once (by a memtable flush or a merge, see {@link SegmentStore}) and never
+ * modified afterwards. Files are limited to 2 GiB, the size of a single mapped buffer.
+ *
+ * Thread-safety: Immutable; every read uses its own view of the mapped buffer.
+ */
+public final class IndexSegment {
+
+    private static final int MAGIC = 0x53454731; // "SEG1"
+    private static final int FOOTER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int termCount;
+    private final int offsetsStart;
+
+    private IndexSegment(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+
+        if (buffer.capacity() < Integer.BYTES + FOOTER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an index segment: " + file);
+        }
+        this.termCount = buffer.getInt(buffer.capacity() - FOOTER_BYTES);
+        this.offsetsStart = (int) buffer.getLong(buffer.capacity() - Long.BYTES);
+    }
+
+    /**
+     * Maps an existing segment file.
+     *
+     * @param file segment file
+     * @return the opened segment
+     * @throws IOException if the file cannot be read or is not a segment
+     */
+    public static IndexSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment larger than 2 GiB: " + file);
+            }
+            return new IndexSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a segment file from entries sorted by term and forces it to disk.
+     * If two consecutive entries have the same term the second one is dropped; callers merge
+     * duplicate terms beforehand.
+     *
+     * @param file    destination file (overwritten)
+     * @param entries entries sorted by term
+     * @throws IOException if writing fails
+     */
+    public static void write(Path file, Iterator<Map.Entry<String, byte[]>> entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream channelOut = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(channelOut, 1 << 16));
+
+            long[] offsets = new long[1024];
+            int count = 0;
+            String previous = null;
+
+            out.writeInt(MAGIC);
+            while (entries.hasNext()) {
+                Map.Entry<String, byte[]> entry = entries.next();
+                if (entry.getKey().equals(previous)) continue;
+                previous = entry.getKey();
+
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count++] = out.size();
+
+                byte[] term = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                byte[] posting = entry.getValue();
+                out.writeInt(term.length);
+                out.write(term);
+                out.writeInt(posting.length);
+                out.write(posting);
+            }
+
+            long offsetsStart = out.size();
+            for (int i = 0; i < count; i++) {
+                out.writeLong(offsets[i]);
+            }
+            out.writeInt(count);
+            out.writeLong(offsetsStart);
+            out.flush();
+
+            // DataOutputStream counts in an int, so it overflows exactly when the file exceeds 2 GiB
+            if (out.size() < 0) {
+                throw new IOException("Segment larger than 2 GiB: " + file);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Returns the encoded posting list of a term.
+     *
+     * @param term lower-cased term
+     * @return encoded posting list, or null if the term is not in this segment
+     */
+    public byte[] get(String term) {
+        int lo = 0;
+        int hi = termCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int record = recordOffset(mid);
+            int cmp = termAt(record).compareTo(term);
+            if (cmp < 0) lo = mid + 1;
+            else if (cmp > 0) hi = mid - 1;
+            else return postingAt(record);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the entries of this segment in term order.
+     * @return iterator of terms and their encoded posting lists
+     */
+    public Iterator<Map.Entry<String, byte[]>> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < termCount;
+            }
+
+            @Override
+            public Map.Entry<String, byte[]> next() {
+                if (next >= termCount) throw new NoSuchElementException();
+                int record = recordOffset(next++);
+                return new AbstractMap.SimpleImmutableEntry<>(termAt(record), postingAt(record));
+            }
+        };
+    }
+
+    /**
+     * Returns the number of terms in this segment.
+     * @return term count
+     */
+    public int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Returns the size of the segment file.
+     * @return size in bytes
+     */
+    public long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Returns the segment file.
+     * @return file path
+     */
+    public Path file() {
+        return file;
+    }
+
+    private int recordOffset(int index) {
+        return (int) buffer.getLong(offsetsStart + index * Long.BYTES);
+    }
+
+    private String termAt(int record) {
+        int length = buffer.getInt(record);
+        byte[] bytes = new byte[length];
+        buffer.get(record + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] postingAt(int record) {
+        int postingStart = record + Integer.BYTES + buffer.getInt(record);
+        byte[] posting = new byte[buffer.getInt(postingStart)];
+        buffer.get(postingStart + Integer.BYTES, posting);
+        return posting;
+    }
+}
@@ -0,0 +1,88 @@
+package webServer;
+import java.io.Serializable;
+
+/**
+ * Size and growth of one Barrel's index, as reported by {@link BarrelIndex#getIndexStats()}.
+ *
+ * <p>Every value comes from counters the Barrel keeps up to date, so reading them costs a few
+ * bytes over RMI whatever the size of the index. The Gateway polls them in the background and
+ * never on the search path.
+ *
+ * Thread-safety: This class is immutable and thread-safe.
+ */
+public class IndexStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String barrelName;
+    private final int documentCount;
+    private final int termCount;
+    private final long diskBytes;
+    private final double ingestRate;
+
+    /**
+     * Creates index statistics.
+     *
+     * @param barrelName    name of the Barrel
+     * @param documentCount number of stored documents
+     * @param termCount     approximate number of indexed terms
+     * @param diskBytes     size of the Barrel's files on disk
+     * @param ingestRate    pages stored per second, over the last measurement interval
+     */
+    public IndexStats(String barrelName, int documentCount, int termCount, long diskBytes, double ingestRate) {
+        this.barrelName = barrelName;
+        this.documentCount = documentCount;
+        this.termCount = termCount;
+        this.diskBytes = diskBytes;
+        this.ingestRate = ingestRate;
+    }
+
+    /**
+     * Returns the name of the Barrel.
+     * @return Barrel name
+     */
+    public String getBarrelName() {
+        return barrelName;
+    }
+
+    /**
+     * Returns the number of stored documents.
+     * @return document count
+     */
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Returns the number of indexed terms; a term stored in several index segments is counted once per segment.
+     * @return approximate term count
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * Returns the size of the Barrel's files on disk (documents, index segments, frontier and Bloom filter).
+     * @return size in bytes
+     */
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Returns the number of pages stored per second, new or updated.
+     * @return ingest rate in pages per second
+     */
+    public double getIngestRate() {
+        return ingestRate;
+    }
+
+    /**
+     * To string method.
+     * @return formatted string like "Docs: 170 | Terms: 5120 | Disk: 12.3 MiB | Ingest: 4.2 pages/s"
+     */
+    @Override
+    public String toString() {
+        return String.format("Docs: %d | Terms: %d | Disk: %.1f MiB | Ingest: %.1f pages/s",
+                documentCount, termCount, diskBytes / (1024.0 * 1024.0), ingestRate);
+    }
+}
@@ -0,0 +1,11 @@
+package webServer;
+import java.rmi.RemoteException;
+
+/**
+ * Exceção lançada quando uma URL submetida não é um endereço http ou https válido
+ */
+public class InvalidUrlException extends RemoteException {
+    public InvalidUrlException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,444 @@
+package webServer;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToIntFunction;
+
+import com.google.common.util.concurrent.Striped;
+import org.mapdb.DB;
+import org.mapdb.Serializer;
+
+/**
+ * Inverted index of a Barrel: term posting lists, the document dictionary and BM25 ranking.
+ *
+ * <p>Storage is log-structured. New postings go to a small mutable memtable (a MapDB map, so it is
+ * persisted by the Barrel's transaction commits). When the memtable reaches
+ * {@link #MEMTABLE_FLUSH_BYTES}, the next {@link #flushIfNeeded()} writes it out as an immutable, sorted, memory-mapped
+ * {@link IndexSegment} and cleared, and a background merge keeps the number of segments small
+ * (see {@link SegmentStore}). Ingest cost therefore depends on the memtable size, not on the size
+ * of the whole index, and queries read postings straight from the mapped segment files, folded
+ * with the memtable.
+ *
+ * <p>Concurrency model:
+ * <ul>
+ *     <li>Posting lists are immutable byte arrays (see {@link PostingList}); an update replaces the
+ *     whole value in the concurrent map, so a reader always sees a complete list.</li>
+ *     <li>Writers serialise per term through lock striping, so two pages only contend when they
+ *     share a term that hashes to the same stripe. There is no index-wide write lock.</li>
+ *     <li>Searches take no locks at all. A document becomes visible atomically: its length is
+ *     recorded only after all its postings are written, and queries ignore documents without
+ *     a recorded length. Concurrent ingest therefore never exposes a half-indexed page.</li>
+ * </ul>
+ *
+ * Thread-safety: All public methods are thread-safe.
+ */
+public class InvertedIndex {
+
+    /** Number of lock stripes used for posting list updates. */
+    private static final int POSTING_STRIPES = 256;
+    /** Encoded size of the memtable postings above which they are flushed to a segment. */
+    private static final long MEMTABLE_FLUSH_BYTES = 8L * 1024 * 1024;
+
+    private final ConcurrentMap<String, byte[]> memtable;
+    private final SegmentStore segments;
+    private final DocumentDictionary documents;
+    private final Striped<Lock> postingLocks = Striped.lock(POSTING_STRIPES);
+    private final Bm25Scorer scorer;
+
+    // Writers share the read lock; a flush takes the write lock to freeze the memtable
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final AtomicLong memtableBytes = new AtomicLong();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    /**
+     * A ranked search hit.
+     *
+     * @param url   document URL
+     * @param score relevance score
+     */
+    public record Hit(String url, double score) {
+    }
+
+    /**
+     * Best documents of a ranked query plus the total number of matching documents.
+     *
+     * @param top       best hits, best first
+     * @param totalHits number of documents matching all terms
+     */
+    public record RankedHits(List<Hit> top, int totalHits) {
+    }
+
+    /**
+     * Opens (or creates) the index: the memtable and dictionary inside the given MapDB database and
+     * the segment files inside the given directory.
+     *
+     * @param db               open MapDB database
+     * @param segmentDirectory directory holding the segment files
+     * @throws IOException if the segments cannot be opened
+     */
+    public InvertedIndex(DB db, Path segmentDirectory) throws IOException {
+        this(db, segmentDirectory, new Bm25Scorer());
+    }
+
+    /**
+     * Opens (or creates) the index with a custom scorer.
+     *
+     * @param db               open MapDB database
+     * @param segmentDirectory directory holding the segment files
+     * @param scorer           relevance scorer
+     * @throws IOException if the segments cannot be opened
+     */
+    public InvertedIndex(DB db, Path segmentDirectory, Bm25Scorer scorer) throws IOException {
+        this.memtable = db.hashMap("postings", Serializer.STRING, Serializer.BYTE_ARRAY).createOrOpen();
+        this.segments = new SegmentStore(segmentDirectory);
+        this.documents = new DocumentDictionary(db);
+        this.scorer = scorer;
+        // IDs referenced by segments are never handed out again, even if their assignment was not committed
+        documents.reserve(segments.idWatermark());
+
+        long bytes = 0;
+        for (byte[] posting : memtable.values()) bytes += posting.length;
+        memtableBytes.set(bytes);
+    }
+
+    /**
+     * Indexes (or re-indexes) a document.
+     * Each distinct lower-cased word gets the document ID and its term frequency added to its posting list.
+     *
+     * @param url   document URL
+     * @param words words of the document, in order
+     */
+    public void addDocument(String url, List<String> words) {
+        flushLock.readLock().lock();
+        try {
+            int docId = documents.getOrAssign(url);
+
+            Map<String, Integer> termFrequencies = new HashMap<>();
+            for (String word : words) {
+                termFrequencies.merge(word.toLowerCase(), 1, Integer::sum);
+            }
+
+            for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+                String term = entry.getKey();
+                Lock lock = postingLocks.get(term);
+                lock.lock();
+                try {
+                    putMemtable(term, PostingList.add(memtable.get(term), docId, entry.getValue()));
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            // Publish: the document is only matched by queries once its length is known
+            documents.setLength(docId, words.size());
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a batch of documents in one pass.
+     * Postings of the whole batch are accumulated in memory first, so each term's posting list is
+     * read and rewritten once per batch instead of once per page.
+     *
+     * @param pages map of document URLs to their words
+     */
+    public void addDocuments(Map<String, List<String>> pages) {
+        flushLock.readLock().lock();
+        try {
+            addBatch(pages);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    private void addBatch(Map<String, List<String>> pages) {
+        Map<String, List<int[]>> batchPostings = new HashMap<>();
+        Map<Integer, Integer> lengths = new HashMap<>();
+
+        for (Map.Entry<String, List<String>> page : pages.entrySet()) {
+            int docId = documents.getOrAssign(page.getKey());
+            lengths.put(docId, page.getValue().size());
+
+            Map<String, Integer> termFrequencies = new HashMap<>();
+            for (String word : page.getValue()) {
+                termFrequencies.merge(word.toLowerCase(), 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+                batchPostings.computeIfAbsent(entry.getKey(), k -> new ArrayList<>())
+                        .add(new int[]{docId, entry.getValue()});
+            }
+        }
+
+        for (Map.Entry<String, List<int[]>> entry : batchPostings.entrySet()) {
+            List<int[]> entries = entry.getValue();
+            entries.sort(Comparator.comparingInt(e -> e[0]));
+            int[] docIds = new int[entries.size()];
+            int[] freqs = new int[entries.size()];
+            for (int i = 0; i < docIds.length; i++) {
+                docIds[i] = entries.get(i)[0];
+                freqs[i] = entries.get(i)[1];
+            }
+
+            String term = entry.getKey();
+            Lock lock = postingLocks.get(term);
+            lock.lock();
+            try {
+                putMemtable(term, PostingList.addAll(memtable.get(term), docIds, freqs));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Publish the whole batch once all postings are written
+        lengths.forEach(documents::setLength);
+    }
+
+    private void putMemtable(String term, byte[] posting) {
+        byte[] previous = memtable.put(term, posting);
+        memtableBytes.addAndGet(posting.length - (previous == null ? 0 : previous.length));
+    }
+
+    /**
+     * Flushes the memtable if it outgrew {@link #MEMTABLE_FLUSH_BYTES}. Only one caller flushes;
+     * the others carry on (and writers block on the flush lock only while the flush runs).
+     * Callers invoke it after committing their changes, so a flush never splits a batch.
+     */
+    public void flushIfNeeded() {
+        if (memtableBytes.get() < MEMTABLE_FLUSH_BYTES || !flushing.compareAndSet(false, true)) return;
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Error flushing index memtable: " + e.getMessage());
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    /**
+     * Writes the memtable to a new immutable segment and clears it.
+     *
+     * <p>The MapDB transaction is not committed here: it belongs to the Barrel, which commits whole
+     * batches. The segment may therefore hold postings of documents whose IDs a crash rolls back;
+     * the manifest records the next free ID with the segment, so those IDs are reserved on restart
+     * and never given to another URL. Their documents have no committed length and stay invisible.
+     * The segment is published before the memtable is cleared: a concurrent query may see a term in
+     * both (the fold removes the duplicates) but never in neither. If the process dies before the
+     * next commit, the memtable comes back with postings that are already in the segment, which is
+     * harmless for the same reason.
+     *
+     * @throws IOException if the segment cannot be written
+     */
+    public void flush() throws IOException {
+        flushLock.writeLock().lock();
+        try {
+            if (memtable.isEmpty()) return;
+            // Writers assign IDs under the read lock, so every ID in the memtable is below this
+            segments.addSegment(new TreeMap<>(memtable).entrySet().iterator(), documents.size());
+            memtable.clear();
+            memtableBytes.set(0);
+            if (DebugConfig.DEBUG_FICHEIROS || DebugConfig.DEBUG_ALL) {
+                System.out.println("[DEBUG] Memtable flushed, " + segments.segments().size() + " index segments");
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the posting list of a term, folded over all segments and the memtable.
+     *
+     * @param term lower-cased term
+     * @return encoded posting list, or null if the term is unknown
+     */
+    private byte[] postingsOf(String term) {
+        // Read the memtable first: a flush publishes its segment before clearing the memtable
+        byte[] recent = memtable.get(term);
+        return PostingList.merge(segments.get(term), recent);
+    }
+
+    /**
+     * Returns the URLs of all visible documents containing every term.
+     *
+     * @param terms search terms (case-insensitive)
+     * @return matching URLs, in document ID order
+     */
+    public List<String> matchAll(List<String> terms) {
+        List<String> urls = new ArrayList<>();
+        if (terms == null || terms.isEmpty()) return urls;
+
+        List<int[]> lists = new ArrayList<>();
+        for (String term : new HashSet<>(terms)) {
+            lists.add(PostingList.decode(postingsOf(term.toLowerCase())));
+        }
+        lists.sort(Comparator.comparingInt(p -> p.length));
+
+        int[] resultIds = lists.get(0);
+        for (int i = 1; i < lists.size() && resultIds.length > 0; i++) {
+            resultIds = PostingList.intersect(resultIds, lists.get(i));
+        }
+
+        for (int docId : resultIds) {
+            if (!documents.isVisible(docId)) continue;
+            String url = documents.urlOf(docId);
+            if (url != null) urls.add(url);
+        }
+        return urls;
+    }
+
+    /**
+     * Intersects the posting lists of the terms and keeps the {@code k} best documents by BM25 score,
+     * blended with the inlink count of each document.
+     *
+     * @param terms   search terms (case-insensitive, at least one)
+     * @param k       number of documents to keep
+     * @param inlinks function returning the number of incoming links of a URL
+     * @return best hits (best first) and the total number of matches
+     */
+    public RankedHits rank(List<String> terms, int k, ToIntFunction<String> inlinks) {
+        List<String> distinctTerms = terms.stream().map(String::toLowerCase).distinct().toList();
+        int[][] docIds = new int[distinctTerms.size()][];
+        int[][] freqs = new int[distinctTerms.size()][];
+
+        for (int t = 0; t < distinctTerms.size(); t++) {
+            byte[] posting = postingsOf(distinctTerms.get(t));
+            docIds[t] = PostingList.decode(posting);
+            freqs[t] = PostingList.decodeFrequencies(posting);
+        }
+
+        int[] candidates = docIds[0];
+        for (int t = 1; t < docIds.length && candidates.length > 0; t++) {
+            candidates = PostingList.intersect(candidates, docIds[t]);
+        }
+        if (candidates.length == 0) return new RankedHits(List.of(), 0);
+
+        int docCount = documents.publishedCount();
+        double avgLength = documents.averageLength();
+        double[] idf = new double[distinctTerms.size()];
+        for (int t = 0; t < idf.length; t++) {
+            idf[t] = scorer.idf(docIds[t].length, docCount);
+        }
+
+        TopKCollector collector = new TopKCollector(k);
+        int totalHits = 0;
+        for (int docId : candidates) {
+            if (!documents.isVisible(docId)) continue;
+            totalHits++;
+
+            int length = documents.lengthOf(docId);
+            double score = 0;
+            for (int t = 0; t < docIds.length; t++) {
+                int idx = Arrays.binarySearch(docIds[t], docId);
+                score += scorer.termScore(freqs[t][idx], length, avgLength, idf[t]);
+            }
+            String url = documents.urlOf(docId);
+            score += scorer.inlinkBoost(url == null ? 0 : inlinks.applyAsInt(url));
+            collector.offer(docId, score);
+        }
+
+        List<Hit> top = new ArrayList<>();
+        for (TopKCollector.ScoredDoc scored : collector.results()) {
+            String url = documents.urlOf(scored.docId());
+            if (url != null) top.add(new Hit(url, scored.score()));
+        }
+        return new RankedHits(top, totalHits);
+    }
+
+    /**
+     * Returns the number of terms in the memtable and all segments.
+     * A term stored in several segments is counted once per segment, so this is an upper bound.
+     * @return approximate term count
+     */
+    public int termCount() {
+        int count = memtable.size();
+        for (IndexSegment segment : segments.segments()) count += segment.termCount();
+        return count;
+    }
+
+    /**
+     * Returns the number of documents with an assigned ID.
+     * @return document count
+     */
+    public int documentCount() {
+        return documents.size();
+    }
+
+    /**
+     * Returns a copy of all posting lists, folded over the segments and the memtable, for replication.
+     * @return map of terms to encoded posting lists
+     */
+    public Map<String, byte[]> snapshotPostings() {
+        TreeMap<String, byte[]> recent = new TreeMap<>(memtable);
+        Iterator<Map.Entry<String, byte[]>> merged = SegmentStore.merge(List.of(segments.iterator(), recent.entrySet().iterator()));
+
+        Map<String, byte[]> snapshot = new HashMap<>();
+        while (merged.hasNext()) {
+            Map.Entry<String, byte[]> entry = merged.next();
+            snapshot.put(entry.getKey(), entry.getValue());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the document dictionary, for replication.
+     * @return document dictionary
+     */
+    public DocumentDictionary getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Flushes the memtable and opens every segment file for a snapshot transfer.
+     * Once flushed, the segments hold all posting lists of the index.
+     *
+     * @return open channels by segment file name, oldest first
+     * @throws IOException if the flush fails or a segment cannot be opened
+     */
+    public LinkedHashMap<String, FileChannel> openSnapshotSegments() throws IOException {
+        flush();
+        return segments.openFiles();
+    }
+
+    /**
+     * Adds segment files received in a snapshot to this index.
+     * The dictionary must already hold the IDs the segments reference.
+     *
+     * @param files segment files, oldest first (moved into the segment directory)
+     * @throws IOException if a segment cannot be moved or opened
+     */
+    public void adoptSegments(List<Path> files) throws IOException {
+        segments.adoptSegments(files, documents.size());
+    }
+
+    /**
+     * Removes every document and posting list: the dictionary and the memtable, which the caller
+     * commits, and every segment. Used before a snapshot of another Barrel replaces the index.
+     *
+     * @throws IOException if the segment manifest cannot be written
+     */
+    public void clear() throws IOException {
+        flushLock.writeLock().lock();
+        try {
+            segments.clear();
+            memtable.clear();
+            memtableBytes.set(0);
+            documents.clear();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the background segment merge.
+     */
+    public void close() {
+        segments.close();
+    }
+}
@@ -0,0 +1,54 @@
+package webServer;
+import java.util.Arrays;
+
+/**
+ * Latencies of the most recent requests to a service, for percentile estimates.
+ *
+ * <p>Keeps the last {@code capacity} samples in a ring buffer, so the estimates follow changes
+ * in load (ingest bursts, garbage collection) within a few hundred requests.
+ *
+ * Thread-safety: All public methods are synchronized.
+ */
+public class LatencyTracker {
+    /** Number of samples below which no percentile is estimated. */
+    public static final int MIN_SAMPLES = 20;
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    /**
+     * Creates an empty tracker.
+     *
+     * @param capacity number of recent samples kept
+     */
+    public LatencyTracker(int capacity) {
+        if (capacity < MIN_SAMPLES) throw new IllegalArgumentException("capacity must be at least " + MIN_SAMPLES);
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Records the latency of a request.
+     *
+     * @param latencyMs latency in milliseconds
+     */
+    public synchronized void record(long latencyMs) {
+        samples[next] = latencyMs;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    /**
+     * Returns a percentile of the recent latencies.
+     *
+     * @param percentile percentile, from 0 to 1 (e.g. 0.95)
+     * @return latency in milliseconds, or -1 if fewer than {@value #MIN_SAMPLES} samples were recorded
+     */
+    public synchronized long percentile(double percentile) {
+        if (size < MIN_SAMPLES) return -1;
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile * size) - 1;
+        return sorted[Math.max(0, Math.min(rank, size - 1))];
+    }
+}
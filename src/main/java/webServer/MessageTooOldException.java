@@ -0,0 +1,23 @@
+package webServer;
+import java.rmi.RemoteException;
+
+/**
+ * Exceção lançada quando uma mensagem pedida para reenvio já não está no histórico do emissor.
+ * O Barrel deve desistir das mensagens anteriores a {@link #getOldestAvailable()} e ressincronizar.
+ */
+public class MessageTooOldException extends RemoteException {
+    private final int oldestAvailable;
+
+    public MessageTooOldException(String message, int oldestAvailable) {
+        super(message);
+        this.oldestAvailable = oldestAvailable;
+    }
+
+    /**
+     * Devolve o número de sequência mais antigo que o emissor ainda consegue reenviar.
+     * @return número de sequência mais antigo disponível
+     */
+    public int getOldestAvailable() {
+        return oldestAvailable;
+    }
+}
@@ -0,0 +1,127 @@
+package webServer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of page fingerprints ({@link SimHash}) that finds near-duplicates in sub-linear time.
+ *
+ * <p>Two fingerprints within Hamming distance {@code k} agree on at least one of any {@code k + 1}
+ * disjoint bit ranges (pigeonhole principle). The 64 bits are split into {@code k + 1} bands, and every
+ * fingerprint is stored in one table per band, keyed by the value of its bits in that band. A lookup only
+ * compares against the fingerprints that share a band value, which is a small fraction of the pages:
+ * with the default {@code k = 3}, four 16-bit bands, about n / 65536 candidates per band.
+ *
+ * <p>The index is rebuilt from the stored documents when a Barrel starts; it is not persisted.
+ *
+ * Thread-safety: All public methods are synchronized.
+ */
+public class NearDuplicateIndex {
+    /** Default maximum Hamming distance between near-duplicate fingerprints. */
+    public static final int DEFAULT_MAX_DISTANCE = 3;
+
+    private record Entry(String url, long fingerprint) {
+    }
+
+    private final int maxDistance;
+    private final int[] bandShifts;
+    private final long[] bandMasks;
+    private final List<Map<Long, List<Entry>>> tables = new ArrayList<>();
+    private final Map<String, Long> fingerprints = new HashMap<>();
+
+    /**
+     * Creates an empty index with the default maximum distance.
+     */
+    public NearDuplicateIndex() {
+        this(DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * Creates an empty index.
+     *
+     * @param maxDistance maximum Hamming distance between near-duplicate fingerprints, from 0 to 15
+     */
+    public NearDuplicateIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > 15) throw new IllegalArgumentException("maxDistance must be in [0, 15]");
+        this.maxDistance = maxDistance;
+        int bands = maxDistance + 1;
+        this.bandShifts = new int[bands];
+        this.bandMasks = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            int from = band * Long.SIZE / bands;
+            int to = (band + 1) * Long.SIZE / bands;
+            bandShifts[band] = from;
+            bandMasks[band] = to - from == Long.SIZE ? -1L : (1L << (to - from)) - 1;
+            tables.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Adds a page unless it is a near-duplicate of another page in the index.
+     * A page already in the index has its fingerprint replaced and is never reported as a duplicate of itself.
+     *
+     * @param url         URL of the page
+     * @param fingerprint fingerprint of its content
+     * @return the URL of a near-duplicate page in the index, or null if the page was added
+     */
+    public synchronized String addIfUnique(String url, long fingerprint) {
+        String duplicate = find(url, fingerprint);
+        if (duplicate == null) put(url, fingerprint);
+        return duplicate;
+    }
+
+    /**
+     * Adds a page or replaces its fingerprint, even if it is a near-duplicate of another page.
+     *
+     * @param url         URL of the page
+     * @param fingerprint fingerprint of its content
+     */
+    public synchronized void put(String url, long fingerprint) {
+        Long previous = fingerprints.put(url, fingerprint);
+        if (previous != null) {
+            if (previous == fingerprint) return;
+            for (int band = 0; band < tables.size(); band++) {
+                List<Entry> bucket = tables.get(band).get(bandValue(previous, band));
+                if (bucket != null) bucket.removeIf(entry -> entry.url().equals(url));
+            }
+        }
+        Entry entry = new Entry(url, fingerprint);
+        for (int band = 0; band < tables.size(); band++) {
+            tables.get(band).computeIfAbsent(bandValue(fingerprint, band), k -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    /**
+     * Removes every page.
+     */
+    public synchronized void clear() {
+        fingerprints.clear();
+        for (Map<Long, List<Entry>> table : tables) table.clear();
+    }
+
+    /**
+     * Returns the number of indexed pages.
+     * @return page count
+     */
+    public synchronized int size() {
+        return fingerprints.size();
+    }
+
+    private String find(String url, long fingerprint) {
+        for (int band = 0; band < tables.size(); band++) {
+            List<Entry> bucket = tables.get(band).get(bandValue(fingerprint, band));
+            if (bucket == null) continue;
+            for (Entry entry : bucket) {
+                if (SimHash.distance(entry.fingerprint(), fingerprint) <= maxDistance && !entry.url().equals(url)) {
+                    return entry.url();
+                }
+            }
+        }
+        return null;
+    }
+
+    private long bandValue(long fingerprint, int band) {
+        return (fingerprint >>> bandShifts[band]) & bandMasks[band];
+    }
+}
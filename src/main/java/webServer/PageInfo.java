@@ -3,7 +3,11 @@ import java.io.Serializable;
 import java.util.*;
 
 /**
- * Immutable container for indexed web page information.
+ * Immutable container for a scraped web page, as sent from a Downloader to the Barrels.
+ *
+ * <p>This is the ingest message: its word list is only used to build the inverted index.
+ * Barrels persist the compact {@link StoredDocument} form instead, and search responses use
+ * {@link SearchResult}, so the full token stream never goes back over RMI.
  *
  * Stores essential metadata about a web page:
  * <ul>
@@ -11,17 +15,22 @@ import java.util.*;
  *     <li>Full URL</li>
  *     <li>List of words extracted from the page text</li>
  *     <li>Short text snippet (preview)</li>
+ *     <li>SimHash fingerprint of the content, computed by the Downloader (see {@link SimHash})</li>
  * </ul>
  *
  */
 public class PageInfo implements Serializable {
+    // Value computed for the first version, so pages stored by it still deserialize
+    private static final long serialVersionUID = -9101324247116396805L;
+
     private final String title;
     private final String url;
     private final List<String> words;
     private final String smallText;
+    private final long simHash;
 
     /**
-     * Constructs a new page information object.
+     * Constructs a new page information object without a content fingerprint.
      *
      * @param title     the page title
      * @param url       the full URL of the page
@@ -29,10 +38,24 @@ public class PageInfo implements Serializable {
      * @param smallText short preview text (typically first few sentences)
      */
     public PageInfo(String title, String url, List<String> words, String smallText) {
+        this(title, url, words, smallText, SimHash.NONE);
+    }
+
+    /**
+     * Constructs a new page information object.
+     *
+     * @param title     the page title
+     * @param url       the full URL of the page
+     * @param words     list of words extracted from the page text
+     * @param smallText short preview text (typically first few sentences)
+     * @param simHash   SimHash fingerprint of the words, or {@link SimHash#NONE}
+     */
+    public PageInfo(String title, String url, List<String> words, String smallText, long simHash) {
         this.title = title;
         this.url = url;
         this.words = words;
         this.smallText = smallText;
+        this.simHash = simHash;
     }
 
     /**
@@ -66,4 +89,12 @@ public class PageInfo implements Serializable {
     public String getSmallText() {
         return smallText;
     }
+
+    /**
+     * Returns the SimHash fingerprint of the page content.
+     * @return fingerprint, or {@link SimHash#NONE} if the sender did not compute one
+     */
+    public long getSimHash() {
+        return simHash;
+    }
 }
@@ -0,0 +1,299 @@
+package webServer;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact encoding and set operations for inverted index posting lists.
+ *
+ * <p>A posting list is the sorted set of document IDs that contain a term, each paired with the
+ * number of times the term occurs in that document. It is stored as a byte array with the layout:
+ * <pre>
+ *     [count: varint][last docId: varint][delta 1: varint][tf 1: varint] ... [delta n: varint][tf n: varint]
+ * </pre>
+ * where each delta is the gap to the previous document ID (the first delta is the ID itself).
+ * Keeping the last ID in the header lets {@link #add(byte[], int, int)} append a newer document
+ * without decoding the whole list, which is the common case since IDs are assigned in ingest order.
+ *
+ * <p>Thread-safety: All methods are stateless. Encoded arrays are never modified in place.
+ */
+public final class PostingList {
+
+    /**
+     * Size ratio above which {@link #intersect(int[], int[])} switches from a linear merge to galloping.
+     */
+    private static final int GALLOP_RATIO = 8;
+
+    private static final int[] EMPTY = new int[0];
+
+    private PostingList() {
+    }
+
+    /**
+     * Encodes a sorted array of distinct document IDs with their term frequencies.
+     *
+     * @param docIds sorted, duplicate-free document IDs
+     * @param freqs  term frequency of each document, aligned with {@code docIds}
+     * @return encoded posting list
+     */
+    public static byte[] encode(int[] docIds, int[] freqs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(docIds.length * 2 + 8);
+        writeVarInt(out, docIds.length);
+        writeVarInt(out, docIds.length == 0 ? 0 : docIds[docIds.length - 1]);
+        int previous = 0;
+        for (int i = 0; i < docIds.length; i++) {
+            writeVarInt(out, docIds[i] - previous);
+            writeVarInt(out, freqs[i]);
+            previous = docIds[i];
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a posting list into its sorted document IDs.
+     *
+     * @param encoded encoded posting list, may be null
+     * @return sorted document IDs (empty if {@code encoded} is null)
+     */
+    public static int[] decode(byte[] encoded) {
+        return decode(encoded, false);
+    }
+
+    /**
+     * Decodes the term frequencies of a posting list.
+     *
+     * @param encoded encoded posting list, may be null
+     * @return term frequencies aligned with {@link #decode(byte[])}
+     */
+    public static int[] decodeFrequencies(byte[] encoded) {
+        return decode(encoded, true);
+    }
+
+    private static int[] decode(byte[] encoded, boolean frequencies) {
+        if (encoded == null || encoded.length == 0) return EMPTY;
+
+        int[] pos = {0};
+        int count = readVarInt(encoded, pos);
+        readVarInt(encoded, pos); // last docId, implied by the deltas
+
+        int[] values = new int[count];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readVarInt(encoded, pos);
+            int tf = readVarInt(encoded, pos);
+            values[i] = frequencies ? tf : previous;
+        }
+        return values;
+    }
+
+    /**
+     * Returns the number of documents in an encoded posting list without decoding it.
+     *
+     * @param encoded encoded posting list, may be null
+     * @return number of document IDs
+     */
+    public static int size(byte[] encoded) {
+        if (encoded == null || encoded.length == 0) return 0;
+        return readVarInt(encoded, new int[]{0});
+    }
+
+    /**
+     * Returns a posting list that also contains {@code docId} with term frequency {@code tf}.
+     * Appending an ID greater than the current last ID does not decode the existing entries.
+     * If the ID is already present its frequency is replaced (the page was re-indexed).
+     *
+     * @param encoded existing posting list, may be null
+     * @param docId   document ID to add
+     * @param tf      number of occurrences of the term in the document
+     * @return new encoded posting list, or {@code encoded} itself if nothing changed
+     */
+    public static byte[] add(byte[] encoded, int docId, int tf) {
+        if (encoded == null || encoded.length == 0) {
+            return encode(new int[]{docId}, new int[]{tf});
+        }
+
+        int[] pos = {0};
+        int count = readVarInt(encoded, pos);
+        int last = readVarInt(encoded, pos);
+
+        if (count == 0 || docId > last) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length + 10);
+            writeVarInt(out, count + 1);
+            writeVarInt(out, docId);
+            out.write(encoded, pos[0], encoded.length - pos[0]);
+            writeVarInt(out, docId - (count == 0 ? 0 : last));
+            writeVarInt(out, tf);
+            return out.toByteArray();
+        }
+
+        // Out-of-order insert or re-index (e.g. replicated data): fall back to decode/insert/encode
+        int[] docIds = decode(encoded);
+        int[] freqs = decodeFrequencies(encoded);
+        int idx = Arrays.binarySearch(docIds, docId);
+        if (idx >= 0) {
+            if (freqs[idx] == tf) return encoded;
+            freqs[idx] = tf;
+            return encode(docIds, freqs);
+        }
+
+        int insertAt = -idx - 1;
+        int[] mergedIds = new int[docIds.length + 1];
+        int[] mergedFreqs = new int[docIds.length + 1];
+        System.arraycopy(docIds, 0, mergedIds, 0, insertAt);
+        System.arraycopy(freqs, 0, mergedFreqs, 0, insertAt);
+        mergedIds[insertAt] = docId;
+        mergedFreqs[insertAt] = tf;
+        System.arraycopy(docIds, insertAt, mergedIds, insertAt + 1, docIds.length - insertAt);
+        System.arraycopy(freqs, insertAt, mergedFreqs, insertAt + 1, docIds.length - insertAt);
+        return encode(mergedIds, mergedFreqs);
+    }
+
+    /**
+     * Returns a posting list that also contains all the given documents, merged in one pass.
+     * If every new ID is greater than the current last ID the existing entries are copied without decoding.
+     * Frequencies of IDs already present are replaced.
+     *
+     * @param encoded existing posting list, may be null
+     * @param docIds  sorted, duplicate-free document IDs to add
+     * @param freqs   term frequency of each new document, aligned with {@code docIds}
+     * @return new encoded posting list
+     */
+    public static byte[] addAll(byte[] encoded, int[] docIds, int[] freqs) {
+        if (docIds.length == 0) return encoded;
+        if (encoded == null || encoded.length == 0) {
+            return encode(docIds, freqs);
+        }
+
+        int[] pos = {0};
+        int count = readVarInt(encoded, pos);
+        int last = readVarInt(encoded, pos);
+
+        if (count == 0 || docIds[0] > last) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length + docIds.length * 3);
+            writeVarInt(out, count + docIds.length);
+            writeVarInt(out, docIds[docIds.length - 1]);
+            out.write(encoded, pos[0], encoded.length - pos[0]);
+            int previous = count == 0 ? 0 : last;
+            for (int i = 0; i < docIds.length; i++) {
+                writeVarInt(out, docIds[i] - previous);
+                writeVarInt(out, freqs[i]);
+                previous = docIds[i];
+            }
+            return out.toByteArray();
+        }
+
+        // Overlapping ranges: merge the two sorted lists
+        int[] oldIds = decode(encoded);
+        int[] oldFreqs = decodeFrequencies(encoded);
+        int[] mergedIds = new int[oldIds.length + docIds.length];
+        int[] mergedFreqs = new int[mergedIds.length];
+        int i = 0, j = 0, n = 0;
+        while (i < oldIds.length || j < docIds.length) {
+            if (j >= docIds.length || (i < oldIds.length && oldIds[i] < docIds[j])) {
+                mergedIds[n] = oldIds[i];
+                mergedFreqs[n++] = oldFreqs[i++];
+            } else {
+                if (i < oldIds.length && oldIds[i] == docIds[j]) i++;
+                mergedIds[n] = docIds[j];
+                mergedFreqs[n++] = freqs[j++];
+            }
+        }
+        return encode(Arrays.copyOf(mergedIds, n), Arrays.copyOf(mergedFreqs, n));
+    }
+
+    /**
+     * Merges two posting lists of the same term. Entries of {@code newer} replace those of
+     * {@code older} with the same document ID.
+     *
+     * @param older older posting list, may be null
+     * @param newer newer posting list, may be null
+     * @return merged posting list, or null if both are null
+     */
+    public static byte[] merge(byte[] older, byte[] newer) {
+        if (newer == null) return older;
+        if (older == null) return newer;
+        return addAll(older, decode(newer), decodeFrequencies(newer));
+    }
+
+    /**
+     * Intersects two sorted document ID arrays.
+     * Uses a linear merge when the arrays have similar sizes and galloping (exponential) search
+     * through the larger array when one is much smaller than the other.
+     *
+     * @param a sorted document IDs
+     * @param b sorted document IDs
+     * @return sorted IDs present in both arrays
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] tmp = a;
+            a = b;
+            b = tmp;
+        }
+        if (a.length == 0) return EMPTY;
+
+        int[] result = new int[a.length];
+        int n = 0;
+
+        if (b.length / a.length >= GALLOP_RATIO) {
+            int lo = 0;
+            for (int docId : a) {
+                lo = gallop(b, lo, docId);
+                if (lo >= b.length) break;
+                if (b[lo] == docId) result[n++] = docId;
+            }
+        } else {
+            int i = 0, j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) i++;
+                else if (a[i] > b[j]) j++;
+                else {
+                    result[n++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Finds the first index {@code >= from} whose value is {@code >= target}.
+     *
+     * @param sorted sorted array to search
+     * @param from   index to start from
+     * @param target value to find
+     * @return index of the first element not smaller than {@code target}, or {@code sorted.length}
+     */
+    private static int gallop(int[] sorted, int from, int target) {
+        int step = 1;
+        int hi = from;
+        while (hi < sorted.length && sorted[hi] < target) {
+            from = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        int idx = Arrays.binarySearch(sorted, from, Math.min(hi + 1, sorted.length), target);
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] buf, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buf[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,79 @@
+package webServer;
+
+/**
+ * Load estimate of one Barrel replica, used by the Gateway to send each request to the replica
+ * most likely to answer first.
+ *
+ * <p>The estimate combines the number of requests in flight, known at once, with an exponentially
+ * weighted moving average (EWMA) of the replica's latency, which reflects its recent speed. The
+ * cost of a replica is {@code (ewma + 1) * (outstanding + 1)}: a replica twice as slow gets about half
+ * the requests, and one that starts to queue requests stops being chosen before its latency shows it.
+ *
+ * <p>A failed request counts as a latency of {@link #FAILURE_PENALTY_MS}. The average fades with
+ * half-life {@link #IDLE_HALF_LIFE_MS} while the replica gets no request, so a replica avoided for
+ * being slow (e.g. while bootstrapping) is tried again later instead of being avoided forever.
+ *
+ * Thread-safety: All public methods are thread-safe.
+ */
+public class ReplicaLoad {
+    /** Weight of a new latency sample in the moving average. */
+    public static final double EWMA_ALPHA = 0.3;
+    /** Latency recorded for a failed request. */
+    public static final long FAILURE_PENALTY_MS = 3000;
+    /** Time without requests after which the moving average counts for half. */
+    public static final long IDLE_HALF_LIFE_MS = 5000;
+
+    private int outstanding;
+    private double ewmaMs;
+    private long lastUpdateNanos = System.nanoTime();
+
+    /**
+     * Records the start of a request to the replica.
+     */
+    public synchronized void begin() {
+        outstanding++;
+    }
+
+    /**
+     * Records the end of a request to the replica.
+     *
+     * @param latencyMs latency of the request in milliseconds
+     * @param failed    whether the request failed
+     */
+    public synchronized void end(long latencyMs, boolean failed) {
+        outstanding--;
+        long now = System.nanoTime();
+        double sample = failed ? Math.max(latencyMs, FAILURE_PENALTY_MS) : latencyMs;
+        ewmaMs = EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * decayed(now);
+        lastUpdateNanos = now;
+    }
+
+    /**
+     * Returns the expected cost of sending one more request to the replica.
+     * @return cost, lower is better
+     */
+    public synchronized double cost() {
+        return (decayed(System.nanoTime()) + 1) * (outstanding + 1);
+    }
+
+    /**
+     * Returns the number of requests in flight.
+     * @return outstanding requests
+     */
+    public synchronized int outstanding() {
+        return outstanding;
+    }
+
+    /**
+     * Returns the moving average latency, faded by the time without requests.
+     * @return average latency in milliseconds
+     */
+    public synchronized double averageLatencyMs() {
+        return decayed(System.nanoTime());
+    }
+
+    private double decayed(long now) {
+        double idleMs = (now - lastUpdateNanos) / 1_000_000.0;
+        return ewmaMs * Math.pow(0.5, idleMs / IDLE_HALF_LIFE_MS);
+    }
+}
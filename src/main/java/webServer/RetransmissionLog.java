@@ -0,0 +1,125 @@
+package webServer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded history of sent messages kept for re-transmission, indexed by sequence number.
+ *
+ * <p>Messages are stored in a ring buffer of fixed capacity. Each known receiver acknowledges the
+ * next sequence number it expects (everything below it was received), and messages acknowledged by
+ * every receiver are released. If the buffer is full the oldest message is dropped even if it was
+ * not acknowledged, so memory stays bounded while a receiver is down or far behind; a receiver
+ * asking for a dropped message gets a {@link MessageTooOldException} and resynchronises instead.
+ *
+ * Thread-safety: All methods are synchronized.
+ *
+ * @param <T> message type
+ */
+public class RetransmissionLog<T> {
+    private final Object[] ring;
+    private final Map<String, Integer> acknowledged = new HashMap<>();
+
+    // Oldest retained sequence number and next sequence number to append
+    private int first;
+    private int next;
+    private long dropped;
+
+    /**
+     * Creates an empty log whose first message will have sequence number 0.
+     *
+     * @param capacity maximum number of retained messages
+     */
+    public RetransmissionLog(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.ring = new Object[capacity];
+    }
+
+    /**
+     * Registers a receiver that must acknowledge messages before they are released.
+     * A new receiver has acknowledged nothing that is still retained.
+     *
+     * @param receiver receiver name
+     */
+    public synchronized void register(String receiver) {
+        acknowledged.putIfAbsent(receiver, first);
+    }
+
+    /**
+     * Appends the next message.
+     *
+     * @param seqNumber sequence number of the message, must be the next one
+     * @param message   message to retain
+     */
+    public synchronized void append(int seqNumber, T message) {
+        if (seqNumber != next) {
+            throw new IllegalArgumentException("Expected seqNumber " + next + ", got " + seqNumber);
+        }
+        if (next - first == ring.length) {
+            ring[slot(first++)] = null;
+            dropped++;
+        }
+        ring[slot(next++)] = message;
+    }
+
+    /**
+     * Returns a retained message.
+     *
+     * @param seqNumber sequence number
+     * @return the message, or null if it was not sent yet
+     * @throws MessageTooOldException if the message is no longer retained
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T get(int seqNumber) throws MessageTooOldException {
+        if (seqNumber < first) {
+            throw new MessageTooOldException("Message " + seqNumber + " is no longer retained (oldest is " + first + "), resync required.", first);
+        }
+        if (seqNumber >= next) return null;
+        return (T) ring[slot(seqNumber)];
+    }
+
+    /**
+     * Records the next sequence number a receiver expects and releases the messages every receiver has received.
+     *
+     * @param receiver  receiver name, registered if unknown
+     * @param watermark next sequence number expected by the receiver
+     */
+    public synchronized void acknowledge(String receiver, int watermark) {
+        acknowledged.put(receiver, watermark);
+
+        int releaseBelow = next;
+        for (int ack : acknowledged.values()) {
+            releaseBelow = Math.min(releaseBelow, ack);
+        }
+        while (first < releaseBelow) {
+            ring[slot(first++)] = null;
+        }
+    }
+
+    /**
+     * Returns the oldest sequence number that can still be re-sent.
+     * @return oldest retained sequence number
+     */
+    public synchronized int first() {
+        return first;
+    }
+
+    /**
+     * Returns the number of retained messages.
+     * @return message count
+     */
+    public synchronized int size() {
+        return next - first;
+    }
+
+    /**
+     * Returns how many messages were dropped before every receiver acknowledged them.
+     * @return dropped message count
+     */
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    private int slot(int seqNumber) {
+        return Math.floorMod(seqNumber, ring.length);
+    }
+}
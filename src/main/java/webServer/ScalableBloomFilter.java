@@ -0,0 +1,589 @@
+package webServer;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Persistent Bloom filter of seen URLs that grows with the number of URLs added.
+ *
+ * <p>A plain Bloom filter is sized for an expected number of insertions; past it the false-positive
+ * rate climbs towards 1 and new URLs are wrongly reported as seen. This filter is a chain of stages
+ * (a scalable Bloom filter): URLs are added to the last stage, and once it holds its capacity a new
+ * stage is opened with twice the capacity and a false-positive rate {@value #TIGHTENING_RATIO} times
+ * lower. A URL might be contained if any stage might contain it, so the compound false-positive
+ * rate is bounded by the sum of the stage rates, which converges to the target rate.
+ *
+ * <p>Each stage is a file mapped in full, so added URLs survive a process crash, but the caller's queue
+ * of those URLs may not: {@link #open} therefore restores the filter as of the last committed checkpoint
+ * rather than trusting the stage files. Only the last stage receives URLs, so {@link #prepareCheckpoint()}
+ * forces the full stages and copies the last one to a pending file, which {@link #commitCheckpoint()}
+ * atomically makes the {@code CHECKPOINT}. A caller that commits only after saving its queue never
+ * restores as seen a URL that is not queued. File layout (big-endian):
+ * <pre>
+ *     stage:      [magic: int][hash functions: int][capacity: long][fpp: double][bits: long][count: long] (padded to 64 bytes)
+ *                 [bit array: longs]
+ *     checkpoint: [magic: int][chain: int][stages: int][copy of the last stage]
+ * </pre>
+ * The stages of a filter form a chain, named after its number. {@link #readFrom(InputStream)},
+ * {@link #importGuavaFilter} and {@link #clear()} write a new chain and commit a checkpoint for it; the
+ * files of the old chain are deleted after that or, while still mapped (Windows cannot delete a mapped
+ * file), on the next {@code open}.
+ *
+ * <p>Bits are set with the same hashing as Guava's {@code BloomFilter} ({@code MURMUR128_MITZ_64} over the
+ * URL's chars), so a filter written by Guava can be adopted as the first stage.
+ *
+ * <p>Adding is a put-if-absent: {@link #put(String)} and {@link #putAll(Collection)} report a URL as
+ * added only if no other call added it before. Calls for the same URL are serialised by a lock stripe
+ * chosen by its hash; calls for different URLs run in parallel and set bits with atomic ORs, so
+ * admission scales with the number of threads. Lookups take no locks.
+ *
+ * Thread-safety: Thread-safe; {@link #prepareCheckpoint()} runs concurrently with additions. {@link #readFrom(InputStream)},
+ * {@link #importGuavaFilter} and {@link #clear()} replace the stages and must not run concurrently with other calls.
+ */
+public final class ScalableBloomFilter implements Closeable {
+    /** Capacity of each stage relative to the previous one. */
+    public static final int GROWTH_FACTOR = 2;
+    /** False-positive rate of each stage relative to the previous one. */
+    public static final double TIGHTENING_RATIO = 0.8;
+    /** Largest bit array of a single stage, in bytes; stages stop growing at this size. */
+    public static final long MAX_STAGE_BYTES = 1L << 30;
+
+    private static final int STAGE_MAGIC = 0x53424631; // "SBF1"
+    private static final int CHAIN_MAGIC = 0x53424331; // "SBC1"
+    private static final int HEADER_BYTES = 64;
+    private static final int COUNT_OFFSET = 32;
+    private static final int CHECKPOINT_MAGIC = 0x53424b31; // "SBK1"
+    private static final int CHECKPOINT_HEADER_BYTES = 12;
+    private static final String SUFFIX = ".bloom";
+    private static final String CHECKPOINT_FILE = "CHECKPOINT";
+    private static final String PENDING_FILE = "CHECKPOINT.tmp";
+    // Guava's serialized strategy ordinal for MURMUR128_MITZ_64
+    private static final int GUAVA_MURMUR128_MITZ_64 = 1;
+    private static final int COPY_CHUNK = 1 << 16;
+    private static final int LOCK_STRIPES = 1024;
+    // Atomic access to the longs of a mapped stage; offsets are multiples of 8 in a page-aligned mapping
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final class Stage {
+        final int numHashes;
+        final long capacity;
+        final double fpp;
+        final long bitSize;
+        final MappedByteBuffer buffer;
+
+        Stage(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+            this.numHashes = buffer.getInt(Integer.BYTES);
+            this.capacity = buffer.getLong(8);
+            this.fpp = buffer.getDouble(16);
+            this.bitSize = buffer.getLong(24);
+        }
+
+        boolean mightContain(long hash1, long hash2) {
+            long combined = hash1;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitSize;
+                if (((long) LONGS.getAcquire(buffer, wordOffset(bit)) & (1L << bit)) == 0) return false;
+                combined += hash2;
+            }
+            return true;
+        }
+
+        void put(long hash1, long hash2) {
+            long combined = hash1;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitSize;
+                LONGS.getAndBitwiseOrRelease(buffer, wordOffset(bit), 1L << bit);
+                combined += hash2;
+            }
+            LONGS.getAndAdd(buffer, COUNT_OFFSET, 1L);
+        }
+
+        long count() {
+            return (long) LONGS.getVolatile(buffer, COUNT_OFFSET);
+        }
+
+        // False-positive rate at the current fill, (1 - e^(-kn/m))^k
+        double currentFpp() {
+            return Math.pow(1 - Math.exp(-(double) numHashes * count() / bitSize), numHashes);
+        }
+
+        static int wordOffset(long bit) {
+            return HEADER_BYTES + (int) (bit >>> 6) * Long.BYTES;
+        }
+    }
+
+    private final Path directory;
+    private final long initialCapacity;
+    private final double targetFpp;
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+    // Replaced as a whole when a stage is added, under the filter's monitor
+    private volatile Stage[] stages = new Stage[0];
+    // Chain of the current stage files and highest chain number used; guarded by the filter's monitor
+    private int chain;
+    private int lastChain;
+    private boolean checkpointPending;
+    // Files of replaced chains that could not be deleted yet because they are still mapped
+    private final List<Path> pendingDeletes = new ArrayList<>();
+
+    private ScalableBloomFilter(Path directory, long initialCapacity, double targetFpp) {
+        this.directory = directory;
+        this.initialCapacity = initialCapacity;
+        this.targetFpp = targetFpp;
+    }
+
+    /**
+     * Opens the filter stored in a directory as of its last committed checkpoint, creating an empty one
+     * if there is none. URLs added after that checkpoint are discarded.
+     *
+     * @param directory       directory of the stage and checkpoint files (created if missing)
+     * @param initialCapacity number of URLs of the first stage
+     * @param targetFpp       bound on the compound false-positive rate
+     * @return the opened filter
+     * @throws IOException if the stage or checkpoint files cannot be read
+     */
+    public static ScalableBloomFilter open(Path directory, long initialCapacity, double targetFpp) throws IOException {
+        if (initialCapacity <= 0) throw new IllegalArgumentException("initialCapacity must be positive");
+        if (targetFpp <= 0 || targetFpp >= 1) throw new IllegalArgumentException("targetFpp must be in (0, 1)");
+
+        Files.createDirectories(directory);
+        ScalableBloomFilter filter = new ScalableBloomFilter(directory, initialCapacity, targetFpp);
+        Files.deleteIfExists(directory.resolve(PENDING_FILE));
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) {
+            filter.restore(checkpoint);
+        } else {
+            // Stages written before checkpoints were kept are adopted as they are
+            List<Stage> stages = new ArrayList<>();
+            for (int i = 0; Files.exists(directory.resolve(String.format("%04d", i) + SUFFIX)); i++) {
+                Files.move(directory.resolve(String.format("%04d", i) + SUFFIX), filter.stageFile(i));
+                stages.add(filter.mapStage(i));
+            }
+            filter.stages = stages.toArray(new Stage[0]);
+        }
+        filter.deleteUnusedFiles();
+        if (filter.stages.length == 0) filter.addStage();
+        if (!Files.exists(checkpoint)) filter.checkpoint();
+        return filter;
+    }
+
+    /**
+     * Adds a URL unless it might already be contained.
+     *
+     * @param url URL to add
+     * @return true if the URL was added, false if it might already be contained
+     * @throws IOException if a new stage cannot be created
+     */
+    public boolean put(String url) throws IOException {
+        return put(hash(url));
+    }
+
+    /**
+     * Adds the URLs of a batch that might not already be contained.
+     *
+     * @param urls URLs to add
+     * @return the URLs that were added, in iteration order; a URL repeated in the batch is added once
+     * @throws IOException if a new stage cannot be created
+     */
+    public List<String> putAll(Collection<String> urls) throws IOException {
+        List<String> added = new ArrayList<>();
+        for (String url : urls) {
+            if (put(hash(url))) added.add(url);
+        }
+        return added;
+    }
+
+    /**
+     * Checks whether a URL might have been added.
+     *
+     * @param url URL to check
+     * @return true if the URL might have been added, false if it definitely was not
+     */
+    public boolean mightContain(String url) {
+        return mightContain(stages, hash(url));
+    }
+
+    /**
+     * Returns the number of URLs added.
+     * @return URL count
+     */
+    public long approximateElementCount() {
+        long count = 0;
+        for (Stage stage : stages) count += stage.count();
+        return count;
+    }
+
+    /**
+     * Returns the size of the bit arrays of every stage.
+     * @return size in bytes
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Stage stage : stages) bytes += stage.bitSize / Byte.SIZE;
+        return bytes;
+    }
+
+    /**
+     * Returns the probability that a URL never added is reported as possibly contained,
+     * estimated from the current fill of each stage.
+     *
+     * @return compound false-positive rate
+     */
+    public double expectedFpp() {
+        double none = 1;
+        for (Stage stage : stages) none *= 1 - stage.currentFpp();
+        return 1 - none;
+    }
+
+    /**
+     * Returns the number of stages.
+     * @return stage count
+     */
+    public int stageCount() {
+        return stages.length;
+    }
+
+    /**
+     * Writes every stage to a stream, to be loaded with {@link #readFrom(InputStream)}.
+     * URLs added while the stages are written may be partially included.
+     *
+     * @param out stream to write to (not closed)
+     * @throws IOException if writing fails
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(CHAIN_MAGIC);
+        data.writeInt(stages.length);
+        byte[] chunk = new byte[COPY_CHUNK];
+        for (Stage stage : stages) {
+            int end = HEADER_BYTES + (int) (stage.bitSize / Byte.SIZE);
+            for (int offset = 0; offset < end; offset += chunk.length) {
+                int length = Math.min(chunk.length, end - offset);
+                stage.buffer.get(offset, chunk, 0, length);
+                data.write(chunk, 0, length);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Replaces the contents of this filter with the stages written by {@link #writeTo(OutputStream)}.
+     *
+     * @param in stream to read from (not closed)
+     * @throws IOException if the stream is not a filter or the stage files cannot be written
+     */
+    public synchronized void readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != CHAIN_MAGIC) throw new IOException("Not a scalable Bloom filter");
+        int count = data.readInt();
+
+        replaceStages(() -> {
+            List<Stage> read = new ArrayList<>();
+            byte[] header = new byte[HEADER_BYTES];
+            byte[] chunk = new byte[COPY_CHUNK];
+            for (int i = 0; i < count; i++) {
+                data.readFully(header);
+                ByteBuffer fields = ByteBuffer.wrap(header);
+                if (fields.getInt(0) != STAGE_MAGIC) throw new IOException("Corrupted stage " + i + " in Bloom filter stream");
+                long bitSize = fields.getLong(24);
+
+                MappedByteBuffer buffer = map(i, bitSize);
+                buffer.put(0, header);
+                int end = HEADER_BYTES + (int) (bitSize / Byte.SIZE);
+                for (int offset = HEADER_BYTES; offset < end; offset += chunk.length) {
+                    int length = Math.min(chunk.length, end - offset);
+                    data.readFully(chunk, 0, length);
+                    buffer.put(offset, chunk, 0, length);
+                }
+                read.add(new Stage(buffer));
+            }
+            stages = read.toArray(new Stage[0]);
+        });
+    }
+
+    /**
+     * Removes every URL, leaving a single empty stage.
+     *
+     * @throws IOException if the new stage or its checkpoint cannot be written
+     */
+    public synchronized void clear() throws IOException {
+        replaceStages(this::addStage);
+    }
+
+    /**
+     * Replaces this filter, which must be empty, with a Guava {@code BloomFilter<CharSequence>} written by
+     * its {@code writeTo} method using {@code Funnels.unencodedCharsFunnel()}. The Guava filter becomes
+     * the first stage; its element count is estimated from the number of set bits.
+     *
+     * @param in           stream to read from (not closed)
+     * @param capacity     expected insertions the Guava filter was created with
+     * @param fpp          false-positive rate the Guava filter was created with
+     * @throws IOException if the stream is not a Guava filter or the stage file cannot be written
+     */
+    public synchronized void importGuavaFilter(InputStream in, long capacity, double fpp) throws IOException {
+        if (approximateElementCount() != 0) throw new IllegalStateException("Filter is not empty");
+
+        DataInputStream data = new DataInputStream(in);
+        int strategy = data.readByte();
+        int numHashes = Byte.toUnsignedInt(data.readByte());
+        int words = data.readInt();
+        if (strategy != GUAVA_MURMUR128_MITZ_64 || numHashes == 0 || words <= 0) {
+            throw new IOException("Unsupported Guava Bloom filter (strategy " + strategy + ")");
+        }
+
+        long bitSize = (long) words * Long.SIZE;
+        replaceStages(() -> {
+            long setBits = 0;
+            MappedByteBuffer buffer = map(0, bitSize);
+            for (int i = 0; i < words; i++) {
+                long word = data.readLong();
+                buffer.putLong(HEADER_BYTES + i * Long.BYTES, word);
+                setBits += Long.bitCount(word);
+            }
+            // Inverse of the expected fill: n = -m/k * ln(1 - X/m)
+            long count = Math.round(-(double) bitSize / numHashes * Math.log1p(-(double) setBits / bitSize));
+            writeHeader(buffer, numHashes, capacity, fpp, bitSize, count);
+            stages = new Stage[]{new Stage(buffer)};
+        });
+    }
+
+    /**
+     * Writes a checkpoint of the filter to a pending file, to be made current by {@link #commitCheckpoint()}.
+     * URLs added while it is written may be partially included; a URL added after this call returns is not.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public synchronized void prepareCheckpoint() throws IOException {
+        Stage[] current = stages;
+        // Full stages no longer change and are restored from their own files
+        for (int i = 0; i < current.length - 1; i++) current[i].buffer.force();
+
+        Stage last = current[current.length - 1];
+        try (FileChannel out = FileChannel.open(directory.resolve(PENDING_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_HEADER_BYTES)
+                    .putInt(CHECKPOINT_MAGIC).putInt(chain).putInt(current.length).flip();
+            writeFully(out, header);
+            writeFully(out, last.buffer.slice(0, HEADER_BYTES + (int) (last.bitSize / Byte.SIZE)));
+            out.force(true);
+        }
+        checkpointPending = true;
+    }
+
+    /**
+     * Makes the checkpoint written by the last {@link #prepareCheckpoint()} the one restored by {@link #open}.
+     * Does nothing if there is no pending checkpoint.
+     *
+     * @throws IOException if the checkpoint cannot be replaced
+     */
+    public synchronized void commitCheckpoint() throws IOException {
+        if (!checkpointPending) return;
+        Files.move(directory.resolve(PENDING_FILE), directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpointPending = false;
+        pendingDeletes.removeIf(ScalableBloomFilter::delete);
+    }
+
+    /**
+     * Releases nothing: the stages are unmapped when the filter is garbage collected, and URLs added after
+     * the last committed checkpoint are discarded by the next {@link #open} whether or not they reached disk.
+     */
+    @Override
+    public void close() {
+    }
+
+    private boolean put(long[] hash) throws IOException {
+        Lock lock = locks.getAt(Math.floorMod((int) hash[1], LOCK_STRIPES));
+        lock.lock();
+        try {
+            Stage[] current = stages;
+            if (mightContain(current, hash)) return false;
+
+            Stage active = current[current.length - 1];
+            if (active.count() >= active.capacity) active = grow(active);
+            active.put(hash[0], hash[1]);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean mightContain(Stage[] stages, long[] hash) {
+        for (int i = stages.length - 1; i >= 0; i--) {
+            if (stages[i].mightContain(hash[0], hash[1])) return true;
+        }
+        return false;
+    }
+
+    // Opens the next stage unless another thread already replaced the full one
+    private synchronized Stage grow(Stage full) throws IOException {
+        Stage last = stages[stages.length - 1];
+        return last == full ? addStage() : last;
+    }
+
+    private Stage addStage() throws IOException {
+        int index = stages.length;
+        double fpp = targetFpp * (1 - TIGHTENING_RATIO) * Math.pow(TIGHTENING_RATIO, index);
+        long capacity = initialCapacity;
+        for (int i = 0; i < index && optimalBits(capacity * GROWTH_FACTOR, fpp) / Byte.SIZE <= MAX_STAGE_BYTES; i++) {
+            capacity *= GROWTH_FACTOR;
+        }
+        long bitSize = optimalBits(capacity, fpp);
+        int numHashes = (int) Math.max(1, Math.round((double) bitSize / capacity * Math.log(2)));
+
+        MappedByteBuffer buffer = map(index, bitSize);
+        writeHeader(buffer, numHashes, capacity, fpp, bitSize, 0);
+        Stage stage = new Stage(buffer);
+        Stage[] grown = Arrays.copyOf(stages, index + 1);
+        grown[index] = stage;
+        stages = grown;
+        return stage;
+    }
+
+    // Bits for a capacity and false-positive rate, -n ln p / (ln 2)^2, rounded up to whole longs
+    private static long optimalBits(long capacity, double fpp) {
+        long bits = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        return Math.max(Long.SIZE, (bits + Long.SIZE - 1) / Long.SIZE * Long.SIZE);
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer, int numHashes, long capacity, double fpp, long bitSize, long count) {
+        buffer.putInt(0, STAGE_MAGIC);
+        buffer.putInt(Integer.BYTES, numHashes);
+        buffer.putLong(8, capacity);
+        buffer.putDouble(16, fpp);
+        buffer.putLong(24, bitSize);
+        buffer.putLong(COUNT_OFFSET, count);
+    }
+
+    // Same hash pair as Guava's MURMUR128_MITZ_64 strategy
+    private static long[] hash(String url) {
+        ByteBuffer bytes = ByteBuffer.wrap(Hashing.murmur3_128().hashUnencodedChars(url).asBytes())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        return new long[]{bytes.getLong(0), bytes.getLong(8)};
+    }
+
+    private Stage mapStage(int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(stageFile(index), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (channel.size() < HEADER_BYTES || buffer.getInt(0) != STAGE_MAGIC) {
+                throw new IOException("Not a Bloom filter stage: " + stageFile(index));
+            }
+            return new Stage(buffer);
+        }
+    }
+
+    private MappedByteBuffer map(int index, long bitSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(stageFile(index),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + bitSize / Byte.SIZE);
+        }
+    }
+
+    // Writes a new chain of stages and checkpoints it; the current stages are kept if writing fails
+    private void replaceStages(StageWriter writer) throws IOException {
+        Stage[] previous = stages;
+        int previousChain = chain;
+        chain = ++lastChain;
+        stages = new Stage[0];
+        try {
+            writer.write();
+            if (stages.length == 0) addStage();
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            stages = previous;
+            chain = previousChain;
+            throw e;
+        }
+        for (int i = 0; i < previous.length; i++) {
+            Path file = stageFile(previousChain, i);
+            if (!delete(file)) pendingDeletes.add(file);
+        }
+    }
+
+    private void checkpoint() throws IOException {
+        prepareCheckpoint();
+        commitCheckpoint();
+    }
+
+    // Restores the stages of a checkpoint; the last one received URLs after it, so its copy replaces it
+    private void restore(Path checkpoint) throws IOException {
+        try (FileChannel in = FileChannel.open(checkpoint, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_HEADER_BYTES);
+            if (in.read(header, 0) < CHECKPOINT_HEADER_BYTES || header.getInt(0) != CHECKPOINT_MAGIC || header.getInt(8) <= 0) {
+                throw new IOException("Not a Bloom filter checkpoint: " + checkpoint);
+            }
+            chain = lastChain = header.getInt(4);
+            int count = header.getInt(8);
+
+            List<Stage> restored = new ArrayList<>();
+            for (int i = 0; i < count - 1; i++) restored.add(mapStage(i));
+            try (FileChannel out = FileChannel.open(stageFile(count - 1),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (long position = CHECKPOINT_HEADER_BYTES; position < in.size(); ) {
+                    position += in.transferTo(position, in.size() - position, out);
+                }
+            }
+            restored.add(mapStage(count - 1));
+            stages = restored.toArray(new Stage[0]);
+        }
+    }
+
+    // Deletes the stage files that are not part of the current stages; none of them is mapped yet
+    private void deleteUnusedFiles() throws IOException {
+        List<Path> used = new ArrayList<>();
+        for (int i = 0; i < stages.length; i++) used.add(stageFile(i));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (!used.contains(file)) Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private Path stageFile(int index) {
+        return stageFile(chain, index);
+    }
+
+    private Path stageFile(int chain, int index) {
+        return directory.resolve(String.format("%04d-%04d", chain, index) + SUFFIX);
+    }
+
+    // Writes the stages of a new chain into the filter
+    private interface StageWriter {
+        void write() throws IOException;
+    }
+}
@@ -0,0 +1,66 @@
+package webServer;
+import java.io.Serializable;
+
+/**
+ * Lightweight search hit returned to clients.
+ *
+ * <p>Carries only what a result list renders (title, URL, snippet) plus the relevance score,
+ * so search responses do not ship the page's full word list over RMI.
+ *
+ * Thread-safety: This class is immutable and thread-safe.
+ */
+public class SearchResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String title;
+    private final String url;
+    private final String smallText;
+    private final double score;
+
+    /**
+     * Creates a new search hit.
+     *
+     * @param title     the page title
+     * @param url       the full URL of the page
+     * @param smallText short preview text
+     * @param score     relevance score (higher is better)
+     */
+    public SearchResult(String title, String url, String smallText, double score) {
+        this.title = title;
+        this.url = url;
+        this.smallText = smallText;
+        this.score = score;
+    }
+
+    /**
+     * Returns the page title.
+     * @return the title of the web page
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the full URL of the page.
+     * @return the page URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns a short text snippet from the page.
+     * @return preview text
+     */
+    public String getSmallText() {
+        return smallText;
+    }
+
+    /**
+     * Returns the relevance score of the hit.
+     * @return score (higher is better)
+     */
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,110 @@
+package webServer;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page (window) of ranked search results together with the total number of hits.
+ *
+ * <p>Only the requested window of results crosses RMI; the total hit count lets clients
+ * render pagination without fetching the remaining results. Search only ranks up to a bounded
+ * depth, so the number of hits that can actually be paged through may be lower than the total.
+ *
+ * Thread-safety: This class is immutable and thread-safe.
+ */
+public class SearchResultPage implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final List<SearchResult> results;
+    private final int totalHits;
+    private final int availableHits;
+    private final int offset;
+    private final int limit;
+
+    /**
+     * Creates a result page whose hits can all be paged through.
+     *
+     * @param results   hits in this window, best first
+     * @param totalHits total number of documents matching the query
+     * @param offset    index of the first hit of this window
+     * @param limit     requested window size
+     */
+    public SearchResultPage(List<SearchResult> results, int totalHits, int offset, int limit) {
+        this(results, totalHits, totalHits, offset, limit);
+    }
+
+    /**
+     * Creates a result page.
+     *
+     * @param results       hits in this window, best first
+     * @param totalHits     total number of documents matching the query
+     * @param availableHits number of hits that can be paged through, at most {@code totalHits}
+     * @param offset        index of the first hit of this window
+     * @param limit         requested window size
+     */
+    public SearchResultPage(List<SearchResult> results, int totalHits, int availableHits, int offset, int limit) {
+        this.results = List.copyOf(results);
+        this.totalHits = totalHits;
+        this.availableHits = Math.min(availableHits, totalHits);
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Creates an empty result page.
+     *
+     * @param offset requested offset
+     * @param limit  requested window size
+     * @return page with no results and zero hits
+     */
+    public static SearchResultPage empty(int offset, int limit) {
+        return new SearchResultPage(List.of(), 0, offset, limit);
+    }
+
+    /**
+     * Returns the hits in this window.
+     * @return immutable list of results, best first
+     */
+    public List<SearchResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Returns the total number of documents matching the query.
+     * @return total hit count
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * Returns the number of hits that can be paged through; hits past it are counted but never returned.
+     * @return available hit count
+     */
+    public int getAvailableHits() {
+        return availableHits;
+    }
+
+    /**
+     * Returns the index of the first hit of this window.
+     * @return offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the requested window size.
+     * @return limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Indicates whether there are more hits after this window that can be returned.
+     * @return true if another page exists
+     */
+    public boolean hasNext() {
+        return offset + results.size() < availableHits;
+    }
+}
@@ -0,0 +1,421 @@
+package webServer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ordered set of immutable {@link IndexSegment} files plus the background merge that compacts them.
+ *
+ * <p>The list of live segments, oldest first, is recorded in a {@code MANIFEST} file that is
+ * replaced atomically (write to a temporary file, then rename). A segment file only becomes part of
+ * the index once the manifest lists it, so files left behind by a crash during a flush or merge are
+ * deleted when the store is opened.
+ *
+ * <p>The manifest also records a document ID watermark: every document ID referenced by a segment is
+ * below it. Segments are written without committing the MapDB transaction that assigned those IDs,
+ * so after a crash the dictionary reserves every ID below the watermark (see
+ * {@link DocumentDictionary#reserve(int)}) instead of handing one out again for another URL.
+ *
+ * <p>A term may appear in several segments. Reads fold its posting lists from the oldest to the
+ * newest segment with {@link PostingList#merge(byte[], byte[])}, so newer term frequencies win.
+ *
+ * <p>Merge policy: when more than {@link #MAX_SEGMENTS} segments exist, the background thread merges
+ * the {@link #MERGE_FACTOR} adjacent segments with the smallest combined size into one. Merging
+ * adjacent segments keeps the oldest-to-newest order, and choosing the smallest window merges
+ * recent small flushes together long before large segments are rewritten, so every posting is
+ * rewritten a logarithmic number of times.
+ *
+ * Thread-safety: Reads take no locks and use a volatile snapshot of the segment list. Changes to the
+ * list are serialised on the manifest lock.
+ */
+public class SegmentStore {
+
+    private static final String MANIFEST = "MANIFEST";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String ID_WATERMARK_PREFIX = "ids ";
+
+    /** Number of segments above which a merge is started. */
+    private static final int MAX_SEGMENTS = 10;
+    /** Number of adjacent segments merged together. */
+    private static final int MERGE_FACTOR = 4;
+    /** Segments are never merged beyond this size (a mapped buffer is limited to 2 GiB). */
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final Path directory;
+    private volatile List<IndexSegment> segments;
+    private volatile int idWatermark;
+    private long nextGeneration;
+
+    private final Object manifestLock = new Object();
+    // Files of segments removed from the manifest that could not be deleted yet
+    private final List<Path> pendingDeletes = new ArrayList<>();
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean(false);
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "segment-merger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Opens (or creates) a segment directory and maps every segment listed in its manifest.
+     *
+     * @param directory directory holding the segment files
+     * @throws IOException if the directory or a listed segment cannot be read
+     */
+    public SegmentStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        Path manifest = directory.resolve(MANIFEST);
+        List<String> names = Files.exists(manifest)
+                ? Files.readAllLines(manifest, StandardCharsets.UTF_8) : List.of();
+
+        List<IndexSegment> opened = new ArrayList<>();
+        Set<String> live = new HashSet<>();
+        for (String name : names) {
+            if (name.isBlank()) continue;
+            if (name.startsWith(ID_WATERMARK_PREFIX)) {
+                idWatermark = Integer.parseInt(name.substring(ID_WATERMARK_PREFIX.length()).trim());
+                continue;
+            }
+            opened.add(IndexSegment.open(directory.resolve(name.trim())));
+            live.add(name.trim());
+            nextGeneration = Math.max(nextGeneration, generationOf(name.trim()) + 1);
+        }
+
+        // Remove files of flushes or merges that never reached the manifest
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.equals(MANIFEST) || live.contains(name)) continue;
+                if (name.endsWith(SEGMENT_SUFFIX) || name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        this.segments = List.copyOf(opened);
+        if (DebugConfig.DEBUG_FICHEIROS || DebugConfig.DEBUG_ALL) {
+            System.out.println("[DEBUG] " + segments.size() + " index segments opened from " + directory);
+        }
+    }
+
+    /**
+     * Returns the posting list of a term folded over all segments.
+     *
+     * @param term lower-cased term
+     * @return encoded posting list, or null if no segment contains the term
+     */
+    public byte[] get(String term) {
+        byte[] result = null;
+        for (IndexSegment segment : segments) {
+            result = PostingList.merge(result, segment.get(term));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current segments, oldest first.
+     * @return immutable snapshot of the segment list
+     */
+    public List<IndexSegment> segments() {
+        return segments;
+    }
+
+    /**
+     * Returns the document ID watermark: every document ID referenced by a segment is below it.
+     * @return first document ID not referenced by any segment
+     */
+    public int idWatermark() {
+        return idWatermark;
+    }
+
+    /**
+     * Writes sorted entries to a new segment and publishes it as the newest one.
+     * The segment is on disk and listed in the manifest when this method returns.
+     *
+     * @param entries     entries sorted by term, without duplicate terms
+     * @param idWatermark a document ID above every ID in the entries
+     * @throws IOException if writing the segment or the manifest fails
+     */
+    public void addSegment(Iterator<Map.Entry<String, byte[]>> entries, int idWatermark) throws IOException {
+        Path file = newSegmentFile();
+        IndexSegment.write(file, entries);
+        IndexSegment segment = IndexSegment.open(file);
+
+        synchronized (manifestLock) {
+            List<IndexSegment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            this.idWatermark = Math.max(this.idWatermark, idWatermark);
+            writeManifest(updated);
+            segments = List.copyOf(updated);
+        }
+        retire(List.of());
+        scheduleMerge();
+    }
+
+    /**
+     * Moves segment files received from another Barrel into this store, as the newest segments.
+     *
+     * @param files       segment files, oldest first
+     * @param idWatermark a document ID above every ID in the files
+     * @throws IOException if a file cannot be moved or is not a segment
+     */
+    public void adoptSegments(List<Path> files, int idWatermark) throws IOException {
+        for (Path source : files) {
+            Path file = newSegmentFile();
+            Files.move(source, file, StandardCopyOption.REPLACE_EXISTING);
+            IndexSegment segment = IndexSegment.open(file);
+
+            synchronized (manifestLock) {
+                List<IndexSegment> updated = new ArrayList<>(segments);
+                updated.add(segment);
+                this.idWatermark = Math.max(this.idWatermark, idWatermark);
+                writeManifest(updated);
+                segments = List.copyOf(updated);
+            }
+        }
+        scheduleMerge();
+    }
+
+    /**
+     * Removes every segment and resets the document ID watermark.
+     *
+     * @throws IOException if the manifest cannot be written
+     */
+    public void clear() throws IOException {
+        List<IndexSegment> removed;
+        synchronized (manifestLock) {
+            removed = segments;
+            idWatermark = 0;
+            writeManifest(List.of());
+            segments = List.of();
+        }
+        retire(removed);
+    }
+
+    /**
+     * Opens a read channel on every current segment file, for snapshot transfer.
+     * Channels are opened under the manifest lock, so a concurrent merge cannot delete a listed
+     * file first; files merged away later stay readable through their open channel.
+     *
+     * @return open channels by file name, oldest segment first
+     * @throws IOException if a file cannot be opened
+     */
+    public LinkedHashMap<String, FileChannel> openFiles() throws IOException {
+        LinkedHashMap<String, FileChannel> channels = new LinkedHashMap<>();
+        synchronized (manifestLock) {
+            try {
+                for (IndexSegment segment : segments) {
+                    channels.put(segment.file().getFileName().toString(), FileChannel.open(segment.file(), StandardOpenOption.READ));
+                }
+            } catch (IOException e) {
+                for (FileChannel channel : channels.values()) channel.close();
+                throw e;
+            }
+        }
+        return channels;
+    }
+
+    /**
+     * Returns every term of all segments in term order, with its posting lists already folded.
+     * @return merged iterator over all segments
+     */
+    public Iterator<Map.Entry<String, byte[]>> iterator() {
+        List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>();
+        for (IndexSegment segment : segments) {
+            sources.add(segment.iterator());
+        }
+        return merge(sources);
+    }
+
+    /**
+     * Stops the background merge thread, waiting for a running merge to finish.
+     */
+    public void close() {
+        merger.shutdown();
+        try {
+            merger.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Merges sorted entry iterators into one sorted iterator. Entries with the same term are folded
+     * with {@link PostingList#merge(byte[], byte[])} in source order, so later sources win.
+     *
+     * @param sources sorted iterators, oldest first
+     * @return sorted iterator without duplicate terms
+     */
+    public static Iterator<Map.Entry<String, byte[]>> merge(List<Iterator<Map.Entry<String, byte[]>>> sources) {
+        PriorityQueue<Head> heap = new PriorityQueue<>(Comparator
+                .comparing((Head h) -> h.entry().getKey())
+                .thenComparingInt(Head::source));
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).hasNext()) heap.add(new Head(sources.get(i).next(), i));
+        }
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heap.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<String, byte[]> next() {
+                if (heap.isEmpty()) throw new NoSuchElementException();
+                String term = heap.peek().entry().getKey();
+                byte[] posting = null;
+                while (!heap.isEmpty() && heap.peek().entry().getKey().equals(term)) {
+                    Head head = heap.poll();
+                    posting = PostingList.merge(posting, head.entry().getValue());
+                    Iterator<Map.Entry<String, byte[]>> source = sources.get(head.source());
+                    if (source.hasNext()) heap.add(new Head(source.next(), head.source()));
+                }
+                return new AbstractMap.SimpleImmutableEntry<>(term, posting);
+            }
+        };
+    }
+
+    /**
+     * Current entry of one source of a k-way merge.
+     *
+     * @param entry  current entry
+     * @param source index of the source, lower is older
+     */
+    private record Head(Map.Entry<String, byte[]> entry, int source) {
+    }
+
+    private void scheduleMerge() {
+        if (segments.size() <= MAX_SEGMENTS || !mergeScheduled.compareAndSet(false, true)) return;
+        try {
+            merger.execute(() -> {
+                try {
+                    while (segments.size() > MAX_SEGMENTS && mergeOnce()) {
+                        // keep merging until the segment count is back under the limit
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error merging index segments: " + e.getMessage());
+                } finally {
+                    mergeScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mergeScheduled.set(false); // store closed
+        }
+    }
+
+    /**
+     * Merges the cheapest window of adjacent segments into one.
+     *
+     * @return true if a merge happened, false if no window fits under {@link #MAX_SEGMENT_BYTES}
+     * @throws IOException if writing the merged segment fails
+     */
+    private boolean mergeOnce() throws IOException {
+        List<IndexSegment> current = segments;
+        int best = -1;
+        long bestBytes = Long.MAX_VALUE;
+        for (int start = 0; start + MERGE_FACTOR <= current.size(); start++) {
+            long bytes = 0;
+            for (int i = start; i < start + MERGE_FACTOR; i++) bytes += current.get(i).sizeBytes();
+            if (bytes < bestBytes && bytes <= MAX_SEGMENT_BYTES) {
+                best = start;
+                bestBytes = bytes;
+            }
+        }
+        if (best < 0) return false;
+
+        List<IndexSegment> window = current.subList(best, best + MERGE_FACTOR);
+        List<Iterator<Map.Entry<String, byte[]>>> sources = new ArrayList<>();
+        for (IndexSegment segment : window) sources.add(segment.iterator());
+
+        Path file = newSegmentFile();
+        IndexSegment.write(file, merge(sources));
+        IndexSegment merged = IndexSegment.open(file);
+
+        synchronized (manifestLock) {
+            // Flushes only append, so the window is still contiguous in the latest list
+            List<IndexSegment> updated = new ArrayList<>(segments);
+            int at = updated.indexOf(window.get(0));
+            if (at < 0) {
+                // The store was cleared during the merge
+                retire(List.of(merged));
+                return false;
+            }
+            updated.subList(at, at + MERGE_FACTOR).clear();
+            updated.add(at, merged);
+            writeManifest(updated);
+            segments = List.copyOf(updated);
+        }
+
+        retire(window);
+        if (DebugConfig.DEBUG_FICHEIROS || DebugConfig.DEBUG_ALL) {
+            System.out.println("[DEBUG] Merged " + MERGE_FACTOR + " index segments (" + bestBytes + " bytes) into " + file.getFileName());
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the files of segments removed from the manifest, and retries those a previous call could
+     * not delete. Queries may still read the removed segments through their mappings: POSIX systems
+     * keep the mapped pages of a deleted file, but Windows refuses to delete a mapped file. Such files
+     * are retried on later flushes and merges, and otherwise deleted when the store is next opened,
+     * since the manifest no longer lists them.
+     *
+     * @param removed segments no longer in the manifest
+     */
+    private void retire(List<IndexSegment> removed) {
+        synchronized (pendingDeletes) {
+            for (IndexSegment segment : removed) pendingDeletes.add(segment.file());
+            pendingDeletes.removeIf(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                    return true;
+                } catch (IOException e) {
+                    return false;
+                }
+            });
+        }
+    }
+
+    private Path newSegmentFile() {
+        synchronized (manifestLock) {
+            return directory.resolve(String.format("segment-%08d%s", nextGeneration++, SEGMENT_SUFFIX));
+        }
+    }
+
+    private void writeManifest(List<IndexSegment> list) throws IOException {
+        List<String> names = new ArrayList<>();
+        names.add(ID_WATERMARK_PREFIX + idWatermark);
+        for (IndexSegment segment : list) names.add(segment.file().getFileName().toString());
+
+        Path tmp = directory.resolve(MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(String.join("\n", names).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long generationOf(String name) {
+        try {
+            return Long.parseLong(name.substring(name.indexOf('-') + 1, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package webServer;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+
+/**
+ * Received sequence numbers of one sender (Downloader or Gateway), kept in constant space.
+ *
+ * <p>Instead of every number ever received, the window stores a watermark (the next expected
+ * number; everything below it was received) and a bitset of the numbers received out of order
+ * above it. Duplicate checks are O(1), and the state only grows with the number of messages in
+ * flight, never with the number of messages received.
+ *
+ * <p>The bitset covers at most {@link #MAX_WINDOW} numbers. A number further ahead moves the
+ * watermark forward and the oldest gaps are given up (they are no longer requested for resend).
+ *
+ * Thread-safety: Not thread-safe; the Barrel guards every window with its message lock.
+ */
+public class SequenceWindow implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Maximum distance above the watermark that is tracked. */
+    public static final int MAX_WINDOW = 1 << 16;
+
+    private int watermark;
+    // Bit i set: watermark + i was received
+    private BitSet received;
+
+    /**
+     * Creates an empty window expecting sequence number 0.
+     */
+    public SequenceWindow() {
+        this(0);
+    }
+
+    /**
+     * Creates an empty window expecting the given sequence number; lower numbers count as received.
+     *
+     * @param watermark next expected sequence number
+     */
+    public SequenceWindow(int watermark) {
+        this(watermark, new BitSet());
+    }
+
+    private SequenceWindow(int watermark, BitSet received) {
+        this.watermark = watermark;
+        this.received = received;
+    }
+
+    /**
+     * Indicates whether a sequence number was already received.
+     *
+     * @param seqNumber sequence number
+     * @return true if it is a duplicate
+     */
+    public boolean contains(int seqNumber) {
+        return seqNumber < watermark || received.get(seqNumber - watermark);
+    }
+
+    /**
+     * Records a sequence number and advances the watermark over any contiguous run.
+     *
+     * @param seqNumber sequence number
+     * @return false if it was already received
+     */
+    public boolean add(int seqNumber) {
+        if (contains(seqNumber)) return false;
+
+        if (seqNumber - watermark >= MAX_WINDOW) {
+            int skipped = seqNumber - MAX_WINDOW + 1 - watermark;
+            System.out.println("Sequence window full: giving up on " + skipped + " missing numbers below " + (watermark + skipped));
+            shift(skipped);
+        }
+        received.set(seqNumber - watermark);
+        shift(received.nextClearBit(0));
+        return true;
+    }
+
+    /**
+     * Gives up on every number below {@code seqNumber}, e.g. after the sender no longer retains them.
+     *
+     * @param seqNumber new lower bound
+     * @return true if the watermark moved
+     */
+    public boolean skipTo(int seqNumber) {
+        if (seqNumber <= watermark) return false;
+        shift(seqNumber - watermark);
+        shift(received.nextClearBit(0));
+        return true;
+    }
+
+    /**
+     * Returns the next expected sequence number; all numbers below it were received.
+     * @return the watermark
+     */
+    public int expected() {
+        return watermark;
+    }
+
+    /**
+     * Returns the numbers between the watermark and {@code seqNumber} (exclusive) that were not received.
+     *
+     * @param seqNumber upper bound (exclusive)
+     * @return missing sequence numbers, ascending
+     */
+    public List<Integer> missingBelow(int seqNumber) {
+        List<Integer> missing = new ArrayList<>();
+        int limit = Math.min(seqNumber - watermark, MAX_WINDOW);
+        for (int i = received.nextClearBit(0); i < limit; i = received.nextClearBit(i + 1)) {
+            missing.add(watermark + i);
+        }
+        return missing;
+    }
+
+    /**
+     * Returns an independent copy of this window.
+     * @return copy
+     */
+    public SequenceWindow copy() {
+        return new SequenceWindow(watermark, (BitSet) received.clone());
+    }
+
+    private void shift(int distance) {
+        if (distance <= 0) return;
+        received = received.get(distance, Math.max(distance, received.length()));
+        watermark += distance;
+    }
+
+    /**
+     * MapDB serializer writing the watermark and the bitset words.
+     */
+    public static class WindowSerializer implements Serializer<SequenceWindow> {
+
+        @Override
+        public void serialize(DataOutput2 out, SequenceWindow window) throws IOException {
+            long[] words = window.received.toLongArray();
+            out.packInt(window.watermark);
+            out.packInt(words.length);
+            for (long word : words) out.writeLong(word);
+        }
+
+        @Override
+        public SequenceWindow deserialize(DataInput2 in, int available) throws IOException {
+            int watermark = in.unpackInt();
+            long[] words = new long[in.unpackInt()];
+            for (int i = 0; i < words.length; i++) words[i] = in.readLong();
+            return new SequenceWindow(watermark, BitSet.valueOf(words));
+        }
+    }
+}
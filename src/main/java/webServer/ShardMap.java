@@ -0,0 +1,155 @@
+package webServer;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Assignment of documents to Barrel shards.
+ *
+ * <p>The index is partitioned by document: every page, its inlinks and its frontier entry belong to
+ * the shard {@code hash(url) mod shardCount}, where the URL is in canonical form (see {@link UrlCanonicalizer}).
+ * Each shard is served by one or more Barrels that hold the same data (replicas). The Gateway sends a search
+ * to one replica of every shard and merges their results; Downloaders send each Barrel only the pages
+ * and links of its shard.
+ *
+ * <p>Barrels are the lines of the configuration file whose name starts with {@value #BARREL_PREFIX}, with
+ * an optional fourth field giving the shard number (default 0), e.g.
+ * <pre>
+ * Barrel1; 10.0.0.1; 1100; 0
+ * Barrel2; 10.0.0.2; 1099; 0
+ * Barrel3; 10.0.0.3; 1104; 1
+ * Barrel4; 10.0.0.4; 1105; 1
+ * </pre>
+ * Shard numbers must be 0 to N-1 with no gaps. Without shard fields every Barrel is a full replica of
+ * one shard, as before sharding. Barrels added to the original two should be listed at the end of the file,
+ * since the other servers read their own configuration from fixed lines.
+ *
+ * <p>The number of shards fixes where every document lives: changing it requires re-indexing.
+ *
+ * Thread-safety: This class is immutable and thread-safe.
+ */
+public class ShardMap {
+    /** Name prefix of the Barrel lines in the configuration file. */
+    public static final String BARREL_PREFIX = "Barrel";
+
+    private static final HashFunction HASH = Hashing.murmur3_32_fixed();
+
+    /**
+     * A Barrel serving one shard.
+     *
+     * @param name  name of the Barrel in its RMI registry
+     * @param ip    IP address of the Barrel
+     * @param port  RMI registry port of the Barrel
+     * @param shard shard the Barrel serves
+     */
+    public record Replica(String name, String ip, int port, int shard) {
+    }
+
+    private final List<List<Replica>> shards;
+
+    /**
+     * Creates a shard map.
+     *
+     * @param replicas Barrels with their shards; shard numbers must be 0 to N-1 with no gaps
+     * @throws IllegalArgumentException if there is no Barrel or a shard has none
+     */
+    public ShardMap(List<Replica> replicas) {
+        TreeMap<Integer, List<Replica>> byShard = new TreeMap<>();
+        for (Replica replica : replicas) {
+            byShard.computeIfAbsent(replica.shard(), k -> new ArrayList<>()).add(replica);
+        }
+        if (byShard.isEmpty()) throw new IllegalArgumentException("No Barrel configured");
+        if (byShard.firstKey() != 0 || byShard.lastKey() != byShard.size() - 1) {
+            throw new IllegalArgumentException("Shard numbers must be 0 to N-1 with no gaps, got " + byShard.keySet());
+        }
+
+        List<List<Replica>> shards = new ArrayList<>();
+        for (List<Replica> shardReplicas : byShard.values()) {
+            shards.add(List.copyOf(shardReplicas));
+        }
+        this.shards = Collections.unmodifiableList(shards);
+    }
+
+    /**
+     * Reads the Barrels of a configuration file.
+     *
+     * @param filename path to the configuration file
+     * @return the shard map
+     * @throws FileNotFoundException if the file does not exist
+     * @throws IllegalArgumentException if a Barrel line is incomplete or the shard numbers have gaps
+     * @throws NumberFormatException if a port or shard number is not a number
+     */
+    public static ShardMap load(String filename) throws FileNotFoundException {
+        List<Replica> replicas = new ArrayList<>();
+        for (String line : FileManipulation.readFile(filename)) {
+            String[] parts = line.split(";");
+            if (!parts[0].trim().startsWith(BARREL_PREFIX)) continue;
+            if (parts.length < 3) {
+                throw new IllegalArgumentException("Incomplete Barrel configuration: " + line);
+            }
+            int shard = parts.length > 3 ? Integer.parseInt(parts[3].trim()) : 0;
+            replicas.add(new Replica(parts[0].trim(), parts[1].trim(), Integer.parseInt(parts[2].trim()), shard));
+        }
+        return new ShardMap(replicas);
+    }
+
+    /**
+     * Returns the number of shards.
+     * @return shard count, at least 1
+     */
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Returns the shard a document belongs to.
+     *
+     * @param url canonical URL of the document
+     * @return shard number, from 0 to {@link #shardCount()} - 1
+     */
+    public int shardOf(String url) {
+        if (shards.size() == 1) return 0;
+        return Math.floorMod(HASH.hashString(url, StandardCharsets.UTF_8).asInt(), shards.size());
+    }
+
+    /**
+     * Returns the Barrels serving a shard.
+     *
+     * @param shard shard number
+     * @return replicas of the shard, in configuration order
+     */
+    public List<Replica> replicas(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * Returns every configured Barrel.
+     * @return all replicas, by shard
+     */
+    public List<Replica> replicas() {
+        List<Replica> all = new ArrayList<>();
+        shards.forEach(all::addAll);
+        return all;
+    }
+
+    /**
+     * Finds a Barrel by name.
+     *
+     * @param name name of the Barrel
+     * @return the Barrel, or null if it is not configured
+     */
+    public Replica replica(String name) {
+        for (List<Replica> shardReplicas : shards) {
+            for (Replica replica : shardReplicas) {
+                if (replica.name().equals(name)) return replica;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package webServer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * 64-bit SimHash fingerprints of page content, for near-duplicate detection.
+ *
+ * <p>The features of a page are its shingles of {@value #SHINGLE_SIZE} consecutive words, lower-cased
+ * and stripped of punctuation. Each fingerprint bit is the sign of the sum, over all shingles, of +1
+ * or -1 depending on that bit of the shingle's hash. Pages sharing most of their shingles (mirrors,
+ * printer-friendly versions, pages that differ in a session ID or a date) get fingerprints that
+ * differ in few bits, so near-duplicates are found by Hamming distance (see {@link NearDuplicateIndex}).
+ *
+ * Thread-safety: Stateless; all methods are thread-safe.
+ */
+public final class SimHash {
+    /** Number of consecutive words in a shingle. */
+    public static final int SHINGLE_SIZE = 3;
+    /** Pages with fewer words get no fingerprint: their SimHash is too unstable to compare. */
+    public static final int MIN_WORDS = 20;
+    /** Fingerprint of a page that has none. */
+    public static final long NONE = 0L;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private SimHash() {
+    }
+
+    /**
+     * Computes the fingerprint of a page's words.
+     *
+     * @param words words of the page, in order
+     * @return the fingerprint, or {@link #NONE} if the page has fewer than {@value #MIN_WORDS} words
+     */
+    public static long fingerprint(List<String> words) {
+        long[] hashes = new long[words.size()];
+        int count = 0;
+        for (String word : words) {
+            String token = normalize(word);
+            if (!token.isEmpty()) hashes[count++] = HASH.hashString(token, StandardCharsets.UTF_8).asLong();
+        }
+        if (count < MIN_WORDS) return NONE;
+
+        int[] weights = new int[Long.SIZE];
+        for (int i = 0; i + SHINGLE_SIZE <= count; i++) {
+            long shingle = 0;
+            for (int j = 0; j < SHINGLE_SIZE; j++) shingle = Long.rotateLeft(shingle, 21) ^ hashes[i + j];
+            shingle = mix(shingle);
+            for (int bit = 0; bit < Long.SIZE; bit++) {
+                weights[bit] += (int) ((shingle >>> bit) & 1) * 2 - 1;
+            }
+        }
+
+        long fingerprint = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (weights[bit] > 0) fingerprint |= 1L << bit;
+        }
+        // NONE is reserved; an all-zero fingerprint is practically impossible for real pages
+        return fingerprint == NONE ? 1L : fingerprint;
+    }
+
+    /**
+     * Returns the number of bits in which two fingerprints differ.
+     *
+     * @param a first fingerprint
+     * @param b second fingerprint
+     * @return Hamming distance, from 0 to 64
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static String normalize(String word) {
+        StringBuilder token = null;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                if (token == null) token = new StringBuilder(word.length()).append(word, 0, i);
+            } else if (token != null) {
+                token.append(c);
+            }
+        }
+        return (token == null ? word : token.toString()).toLowerCase(Locale.ROOT);
+    }
+
+    // MurmurHash3 64-bit finalizer, so combined shingle hashes have independent bits
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
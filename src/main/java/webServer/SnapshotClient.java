@@ -0,0 +1,95 @@
+package webServer;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Downloads the files of a snapshot published by a donor's {@link SnapshotServer}.
+ *
+ * <p>Each file is received straight into its destination with {@link FileChannel#transferFrom}.
+ * An interrupted transfer resumes from the bytes already on disk, and every file is checked
+ * against the size and CRC-32 listed in the {@link SnapshotManifest} before it is used.
+ *
+ * Thread-safety: Stateless; the methods can be called concurrently for different directories.
+ */
+public final class SnapshotClient {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long CHUNK_BYTES = 4L * 1024 * 1024;
+
+    private SnapshotClient() {
+    }
+
+    /**
+     * Downloads and verifies all files of a snapshot.
+     *
+     * @param manifest  snapshot to download
+     * @param directory destination directory (created if missing)
+     * @throws IOException if a file cannot be downloaded or fails verification
+     */
+    public static void download(SnapshotManifest manifest, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (SnapshotManifest.FileEntry entry : manifest.getFiles()) {
+            Path target = directory.resolve(entry.name());
+            IOException lastError = null;
+
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                try {
+                    receive(manifest, entry, target);
+                    lastError = null;
+                    break;
+                } catch (IOException e) {
+                    lastError = e;
+                    System.err.println("Snapshot file " + entry.name() + " transfer failed (attempt " + attempt + "): " + e.getMessage());
+                }
+            }
+            if (lastError != null) throw lastError;
+
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ)) {
+                if (channel.size() != entry.size() || SnapshotManifest.checksum(channel) != entry.crc32()) {
+                    Files.deleteIfExists(target);
+                    throw new IOException("Snapshot file " + entry.name() + " failed verification");
+                }
+            }
+        }
+    }
+
+    private static void receive(SnapshotManifest manifest, SnapshotManifest.FileEntry entry, Path target) throws IOException {
+        try (FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             SocketChannel socket = SocketChannel.open(new InetSocketAddress(manifest.getHost(), manifest.getPort()))) {
+
+            // Resume after the bytes received by a previous attempt
+            long offset = Math.min(file.size(), entry.size());
+            file.truncate(offset);
+
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(socket));
+            out.writeUTF(manifest.getSessionId());
+            out.writeUTF(entry.name());
+            out.writeLong(offset);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+            while (header.hasRemaining()) {
+                if (socket.read(header) < 0) throw new IOException("Connection closed by snapshot server");
+            }
+            long remaining = header.flip().getLong();
+            if (remaining < 0) throw new IOException("Snapshot file " + entry.name() + " is not available");
+
+            long position = offset;
+            long end = offset + remaining;
+            while (position < end) {
+                long received = file.transferFrom(socket, position, Math.min(CHUNK_BYTES, end - position));
+                if (received <= 0) throw new IOException("Connection closed by snapshot server");
+                position += received;
+            }
+            file.force(true);
+        }
+    }
+}
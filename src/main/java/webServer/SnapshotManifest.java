@@ -0,0 +1,114 @@
+package webServer;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Description of a Barrel snapshot prepared for a new Barrel (see {@link BarrelIndex#prepareSnapshot()}).
+ *
+ * <p>Lists the files of the snapshot with their sizes and CRC-32 checksums, the address of the
+ * donor's {@link SnapshotServer} that streams them, and the donor's change log position when the
+ * snapshot was taken, from which the new Barrel replays the changes made during the transfer.
+ *
+ * Thread-safety: This class is immutable and thread-safe.
+ */
+public class SnapshotManifest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * One file of a snapshot.
+     *
+     * @param name  file name, unique within the snapshot
+     * @param size  size in bytes
+     * @param crc32 CRC-32 checksum of the contents
+     */
+    public record FileEntry(String name, long size, long crc32) implements Serializable {
+    }
+
+    private final String sessionId;
+    private final String host;
+    private final int port;
+    private final long changePosition;
+    private final List<FileEntry> files;
+
+    /**
+     * Creates a snapshot manifest.
+     *
+     * @param sessionId      identifier of the snapshot session on the donor
+     * @param host           host of the donor's snapshot server
+     * @param port           port of the donor's snapshot server
+     * @param changePosition donor change log position when the snapshot was taken
+     * @param files          snapshot files, in the order they must be applied
+     */
+    public SnapshotManifest(String sessionId, String host, int port, long changePosition, List<FileEntry> files) {
+        this.sessionId = sessionId;
+        this.host = host;
+        this.port = port;
+        this.changePosition = changePosition;
+        this.files = List.copyOf(files);
+    }
+
+    /**
+     * Returns the snapshot session identifier.
+     * @return session id
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Returns the host of the donor's snapshot server.
+     * @return host name or IP address
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the port of the donor's snapshot server.
+     * @return TCP port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the donor's change log position when the snapshot was taken.
+     * @return change log position
+     */
+    public long getChangePosition() {
+        return changePosition;
+    }
+
+    /**
+     * Returns the snapshot files.
+     * @return files, in the order they must be applied
+     */
+    public List<FileEntry> getFiles() {
+        return files;
+    }
+
+    /**
+     * Computes the CRC-32 of a file without moving the channel's position.
+     *
+     * @param channel open file channel
+     * @return CRC-32 of the whole file
+     * @throws IOException if reading fails
+     */
+    public static long checksum(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            buffer.flip();
+            crc.update(buffer);
+            buffer.clear();
+            position += read;
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,201 @@
+package webServer;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams snapshot files from a donor Barrel to a new Barrel over plain TCP.
+ *
+ * <p>{@link #publish} registers a set of open file channels as a session and returns their
+ * manifest. A receiver then opens one connection per file and sends
+ * {@code [session id: UTF][file name: UTF][offset: long]}; the server answers with the number of
+ * bytes that follow ({@code -1} if the session or file is unknown) and sends them with
+ * {@link FileChannel#transferTo}, so file bytes go from the page cache to the socket without
+ * being copied through the Java heap. Transfers run on low-priority threads, in bounded chunks,
+ * throttled to {@link #MAX_BYTES_PER_SECOND} so the donor keeps serving searches normally.
+ *
+ * <p>Sessions hold their files open: segment files merged away on the donor while a transfer is in
+ * progress stay readable until the session is released or expires.
+ *
+ * Thread-safety: All public methods are thread-safe.
+ */
+public class SnapshotServer {
+
+    /** Bytes sent per {@code transferTo} call. */
+    private static final long CHUNK_BYTES = 4L * 1024 * 1024;
+    /** Transfer rate limit of each connection. */
+    private static final long MAX_BYTES_PER_SECOND = 64L * 1024 * 1024;
+    /** Sessions not released after this time are closed. */
+    private static final long SESSION_TTL_MS = 30 * 60 * 1000;
+
+    private final String host;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private ServerSocketChannel server;
+
+    /**
+     * Files of one published snapshot.
+     */
+    private static class Session {
+        final Map<String, FileChannel> files;
+        final List<Path> temporaryFiles;
+        final long expiresAt;
+
+        Session(Map<String, FileChannel> files, List<Path> temporaryFiles, long expiresAt) {
+            this.files = files;
+            this.temporaryFiles = temporaryFiles;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Creates a snapshot server advertising the given host. The socket is opened on first use.
+     *
+     * @param host host name or IP address receivers connect to; null for the local address
+     * @throws IOException if the local address cannot be resolved
+     */
+    public SnapshotServer(String host) throws IOException {
+        this.host = host != null ? host : InetAddress.getLocalHost().getHostAddress();
+    }
+
+    /**
+     * Registers open files as a new snapshot session and computes their checksums.
+     * The session takes ownership of the channels; they are closed when it is released.
+     *
+     * @param changePosition donor change log position when the snapshot was taken
+     * @param files          open channels by file name, in the order they must be applied
+     * @param temporaryFiles files deleted when the session is released
+     * @return manifest describing the session
+     * @throws IOException if the server cannot be started or a file cannot be read
+     */
+    public synchronized SnapshotManifest publish(long changePosition, LinkedHashMap<String, FileChannel> files,
+                                                 List<Path> temporaryFiles) throws IOException {
+        String sessionId = UUID.randomUUID().toString();
+        Session session = new Session(files, temporaryFiles, System.currentTimeMillis() + SESSION_TTL_MS);
+        sessions.put(sessionId, session);
+        try {
+            start();
+            expireSessions();
+
+            List<SnapshotManifest.FileEntry> entries = new ArrayList<>();
+            for (Map.Entry<String, FileChannel> file : files.entrySet()) {
+                FileChannel channel = file.getValue();
+                entries.add(new SnapshotManifest.FileEntry(file.getKey(), channel.size(), SnapshotManifest.checksum(channel)));
+            }
+            return new SnapshotManifest(sessionId, host, server.socket().getLocalPort(), changePosition, entries);
+        } catch (IOException e) {
+            release(sessionId);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the files of a session and deletes its temporary files.
+     *
+     * @param sessionId session to release
+     */
+    public void release(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        if (session == null) return;
+
+        for (FileChannel channel : session.files.values()) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing else to release
+            }
+        }
+        for (Path file : session.temporaryFiles) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Could not delete snapshot file " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void start() throws IOException {
+        if (server != null) return;
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(0));
+
+        Thread acceptor = new Thread(this::acceptLoop, "snapshot-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Snapshot server listening on " + host + ":" + server.socket().getLocalPort());
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel client = server.accept();
+                Thread sender = new Thread(() -> serve(client), "snapshot-transfer");
+                sender.setDaemon(true);
+                sender.setPriority(Thread.MIN_PRIORITY);
+                sender.start();
+            } catch (IOException e) {
+                System.err.println("Snapshot server error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try (client) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+            String sessionId = in.readUTF();
+            String name = in.readUTF();
+            long offset = in.readLong();
+
+            Session session = sessions.get(sessionId);
+            FileChannel file = session == null ? null : session.files.get(name);
+            long remaining = file == null ? -1 : Math.max(0, file.size() - offset);
+
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES).putLong(remaining).flip();
+            while (header.hasRemaining()) client.write(header);
+            if (remaining <= 0) return;
+
+            long position = offset;
+            long end = offset + remaining;
+            long started = System.nanoTime();
+            while (position < end) {
+                position += file.transferTo(position, Math.min(CHUNK_BYTES, end - position), client);
+                throttle(position - offset, started);
+            }
+            if (DebugConfig.DEBUG_FICHEIROS || DebugConfig.DEBUG_ALL) {
+                System.out.println("[DEBUG] Snapshot file " + name + " sent (" + remaining + " bytes)");
+            }
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Error sending snapshot file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sleeps as long as needed to keep the average rate under {@link #MAX_BYTES_PER_SECOND}.
+     */
+    private static void throttle(long bytesSent, long startedNanos) throws InterruptedException {
+        long expectedMillis = bytesSent * 1000 / MAX_BYTES_PER_SECOND;
+        long elapsedMillis = (System.nanoTime() - startedNanos) / 1_000_000;
+        if (expectedMillis > elapsedMillis) {
+            Thread.sleep(expectedMillis - elapsedMillis);
+        }
+    }
+
+    private void expireSessions() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().expiresAt < now) {
+                System.out.println("Snapshot session " + entry.getKey() + " expired.");
+                release(entry.getKey());
+            }
+        }
+    }
+}
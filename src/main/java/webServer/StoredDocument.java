@@ -0,0 +1,135 @@
+package webServer;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Compact record of an indexed page, as persisted by a Barrel.
+ *
+ * <p>Unlike {@link PageInfo}, which carries the full token stream from the Downloader and is
+ * only needed while the page is being indexed, a stored document keeps just what results
+ * render plus a few small attributes:
+ * <ul>
+ *     <li>Page title and URL</li>
+ *     <li>Short text snippet (preview)</li>
+ *     <li>Length of the page in words</li>
+ *     <li>Hash of the page content, to detect unchanged pages on re-crawl</li>
+ *     <li>SimHash fingerprint of the content, to detect near-duplicates of other pages</li>
+ * </ul>
+ *
+ * Thread-safety: This class is immutable and thread-safe.
+ */
+public class StoredDocument implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String title;
+    private final String url;
+    private final String smallText;
+    private final int length;
+    private final long contentHash;
+    private final long simHash;
+
+    /**
+     * Constructs a new stored document without a content fingerprint.
+     *
+     * @param title       the page title
+     * @param url         the full URL of the page
+     * @param smallText   short preview text
+     * @param length      number of words in the page
+     * @param contentHash hash of the page words
+     */
+    public StoredDocument(String title, String url, String smallText, int length, long contentHash) {
+        this(title, url, smallText, length, contentHash, SimHash.NONE);
+    }
+
+    /**
+     * Constructs a new stored document.
+     *
+     * @param title       the page title
+     * @param url         the full URL of the page
+     * @param smallText   short preview text
+     * @param length      number of words in the page
+     * @param contentHash hash of the page words
+     * @param simHash     SimHash fingerprint of the page words, or {@link SimHash#NONE}
+     */
+    public StoredDocument(String title, String url, String smallText, int length, long contentHash, long simHash) {
+        this.title = title;
+        this.url = url;
+        this.smallText = smallText;
+        this.length = length;
+        this.contentHash = contentHash;
+        this.simHash = simHash;
+    }
+
+    /**
+     * Builds the stored form of a page received from a Downloader, dropping its word list.
+     *
+     * @param page page information received at ingest
+     * @return compact stored document
+     */
+    public static StoredDocument from(PageInfo page) {
+        long hash = Hashing.murmur3_128()
+                .hashString(String.join(" ", page.getWords()), StandardCharsets.UTF_8)
+                .asLong();
+        return new StoredDocument(page.getTitle(), page.getUrl(), page.getSmallText(), page.getWords().size(), hash, page.getSimHash());
+    }
+
+    /**
+     * Returns the page title.
+     * @return the title of the web page
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the full URL of the page.
+     * @return the page URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns a short text snippet from the page.
+     * @return preview text
+     */
+    public String getSmallText() {
+        return smallText;
+    }
+
+    /**
+     * Returns the length of the page.
+     * @return number of words in the page
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the hash of the page content.
+     * @return 64-bit hash of the page words
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Returns the SimHash fingerprint of the page content.
+     * @return fingerprint, or {@link SimHash#NONE} if none was computed
+     */
+    public long getSimHash() {
+        return simHash;
+    }
+
+    /**
+     * Converts this document into a search hit.
+     *
+     * @param score relevance score of the hit
+     * @return lightweight search result
+     */
+    public SearchResult toSearchResult(double score) {
+        return new SearchResult(title, url, smallText, score);
+    }
+}
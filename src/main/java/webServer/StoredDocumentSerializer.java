@@ -0,0 +1,52 @@
+package webServer;
+import java.io.IOException;
+
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+
+/**
+ * Compact MapDB serializer for {@link StoredDocument} values.
+ *
+ * <p>Writes the fields as raw bytes instead of Java serialization, which would store the class
+ * descriptor and field names with every page:
+ * <pre>
+ *     [version: byte][url: prefix code + UTF-8][title: UTF-8][smallText: UTF-8][length: packed int][contentHash: long][simHash: long]
+ * </pre>
+ * Version 1 records, written before fingerprints were stored, have no {@code simHash} and are still read.
+ * The URL's scheme and {@code www.} prefix are stored as a one-byte code
+ * (see {@link UrlSetSerializer#writeUrl}).
+ *
+ * Thread-safety: Stateless and thread-safe.
+ */
+public class StoredDocumentSerializer implements Serializer<StoredDocument> {
+
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_SIMHASH = 1;
+
+    @Override
+    public void serialize(DataOutput2 out, StoredDocument document) throws IOException {
+        out.writeByte(VERSION);
+        UrlSetSerializer.writeUrl(out, document.getUrl());
+        UrlSetSerializer.writeString(out, document.getTitle());
+        UrlSetSerializer.writeString(out, document.getSmallText());
+        out.packInt(document.getLength());
+        out.writeLong(document.getContentHash());
+        out.writeLong(document.getSimHash());
+    }
+
+    @Override
+    public StoredDocument deserialize(DataInput2 in, int available) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION && version != VERSION_WITHOUT_SIMHASH) {
+            throw new IOException("Unknown StoredDocument format version: " + version);
+        }
+        String url = UrlSetSerializer.readUrl(in);
+        String title = UrlSetSerializer.readString(in);
+        String smallText = UrlSetSerializer.readString(in);
+        int length = in.unpackInt();
+        long contentHash = in.readLong();
+        long simHash = version == VERSION ? in.readLong() : SimHash.NONE;
+        return new StoredDocument(title, url, smallText, length, contentHash, simHash);
+    }
+}
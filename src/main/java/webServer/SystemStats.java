@@ -11,7 +11,9 @@ import java.util.stream.Collectors;
  * <p>This class keeps:
  * <ul>
  *     <li>search counts per keyword (used to build top searches)</li>
- *     <li>per-barrel metrics (index size and response time history)</li>
+ *     <li>per-barrel metrics (index size, response time history and seen-URL filter size)</li>
+ *     <li>query cache metrics of the Gateway (hits, misses, evictions and size)</li>
+ *     <li>index statistics of each barrel (documents, terms, disk size and ingest rate)</li>
  * </ul>
  *
  * <p>Designed to be thread-safe using concurrent collections and synchronized lists.
@@ -24,9 +26,17 @@ public class SystemStats implements Serializable {
 
     private final ConcurrentMap<String, BarrelMetrics> barrelMetrics;
 
+    private final ConcurrentMap<String, IndexStats> indexStats;
+
+    private long queryCacheHits;
+    private long queryCacheMisses;
+    private long queryCacheEvictions;
+    private long queryCacheSize;
+
     public SystemStats() {
         this.searchCounts = new ConcurrentHashMap<>();
         this.barrelMetrics = new ConcurrentHashMap<>();
+        this.indexStats = new ConcurrentHashMap<>();
     }
 
     // ===== SEARCHES =====
@@ -84,6 +94,100 @@ public class SystemStats implements Serializable {
         });
     }
 
+    /**
+     * Update the seen-URL Bloom filter metrics of a barrel whose metrics already exist.
+     *
+     * @param barrelName  barrel identifier (non-null)
+     * @param seenUrls    number of URLs added to the filter
+     * @param filterBytes size of the filter's bit arrays in bytes
+     * @param filterFpp   estimated false-positive rate of the filter
+     * @throws NullPointerException if barrelName is null
+     */
+    public void updateSeenUrlMetrics(String barrelName, long seenUrls, long filterBytes, double filterFpp) {
+        Objects.requireNonNull(barrelName, "barrelName cannot be null");
+        barrelMetrics.computeIfPresent(barrelName, (k, metrics) -> {
+            metrics.updateSeenUrls(seenUrls, filterBytes, filterFpp);
+            return metrics;
+        });
+    }
+
+    // ===== QUERY CACHE =====
+    /**
+     * Replace the query cache metrics.
+     *
+     * @param hits      number of searches answered from the cache
+     * @param misses    number of searches sent to the Barrels
+     * @param evictions number of entries evicted because the cache was full
+     * @param size      number of cached queries
+     */
+    public synchronized void updateQueryCacheMetrics(long hits, long misses, long evictions, long size) {
+        this.queryCacheHits = hits;
+        this.queryCacheMisses = misses;
+        this.queryCacheEvictions = evictions;
+        this.queryCacheSize = size;
+    }
+
+    /**
+     * Returns the number of searches answered from the query cache.
+     * @return cache hits
+     */
+    public synchronized long getQueryCacheHits() {
+        return queryCacheHits;
+    }
+
+    /**
+     * Returns the number of searches sent to the Barrels because they were not cached.
+     * @return cache misses
+     */
+    public synchronized long getQueryCacheMisses() {
+        return queryCacheMisses;
+    }
+
+    /**
+     * Returns the number of query cache entries evicted because the cache was full.
+     * @return cache evictions
+     */
+    public synchronized long getQueryCacheEvictions() {
+        return queryCacheEvictions;
+    }
+
+    /**
+     * Returns the number of cached queries.
+     * @return cache size
+     */
+    public synchronized long getQueryCacheSize() {
+        return queryCacheSize;
+    }
+
+    /**
+     * Returns the fraction of searches answered from the query cache.
+     * @return hit rate, from 0 to 1 (0 if there were no searches)
+     */
+    public synchronized double getQueryCacheHitRate() {
+        long requests = queryCacheHits + queryCacheMisses;
+        return requests == 0 ? 0.0 : (double) queryCacheHits / requests;
+    }
+
+    // ===== INDEX =====
+    /**
+     * Replace the index statistics of a barrel.
+     *
+     * @param stats index statistics (non-null), keyed by their barrel name
+     * @throws NullPointerException if stats is null
+     */
+    public void updateIndexStats(IndexStats stats) {
+        Objects.requireNonNull(stats, "stats cannot be null");
+        indexStats.put(stats.getBarrelName(), stats);
+    }
+
+    /**
+     * Returns a copy of the index statistics map
+     * @return copy of index statistics by barrel name
+     */
+    public Map<String, IndexStats> getIndexStats() {
+        return new HashMap<>(indexStats);
+    }
+
     /**
      * Returns a shallow copy of the current barrel metrics map
      * @return copy of barrel metrics map
@@ -100,6 +204,9 @@ public class SystemStats implements Serializable {
 
         private int indexSize;
         private final List<Long> responseTimes;
+        private long seenUrls;
+        private long seenUrlFilterBytes;
+        private double seenUrlFilterFpp;
 
         /**
          * Constructor mehtod to create a new BarrelMetrics instance with an initial index size and response time.
@@ -134,6 +241,43 @@ public class SystemStats implements Serializable {
             responseTimes.add(time);
         }
 
+        /**
+         * Replace the seen-URL Bloom filter metrics.
+         *
+         * @param seenUrls    number of URLs added to the filter
+         * @param filterBytes size of the filter's bit arrays in bytes
+         * @param filterFpp   estimated false-positive rate of the filter
+         */
+        public void updateSeenUrls(long seenUrls, long filterBytes, double filterFpp) {
+            this.seenUrls = seenUrls;
+            this.seenUrlFilterBytes = filterBytes;
+            this.seenUrlFilterFpp = filterFpp;
+        }
+
+        /**
+         * Returns the number of URLs added to the seen-URL filter.
+         * @return seen URL count
+         */
+        public long getSeenUrls() {
+            return seenUrls;
+        }
+
+        /**
+         * Returns the size of the seen-URL filter.
+         * @return filter size in bytes
+         */
+        public long getSeenUrlFilterBytes() {
+            return seenUrlFilterBytes;
+        }
+
+        /**
+         * Returns the estimated false-positive rate of the seen-URL filter.
+         * @return false-positive rate
+         */
+        public double getSeenUrlFilterFpp() {
+            return seenUrlFilterFpp;
+        }
+
         /**
          * Returns the last known index size.
          * @return index size (pages)
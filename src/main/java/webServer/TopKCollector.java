@@ -0,0 +1,69 @@
+package webServer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the {@code k} highest scoring documents seen so far using a bounded min-heap.
+ *
+ * <p>Memory is O(k) regardless of how many candidates are offered, so broad queries with
+ * hundreds of thousands of hits never materialise or sort the full result list.
+ *
+ * Thread-safety: Not thread-safe; use one collector per query.
+ */
+public class TopKCollector {
+
+    /**
+     * A document ID paired with its relevance score.
+     */
+    public record ScoredDoc(int docId, double score) {
+    }
+
+    private final int k;
+    private final PriorityQueue<ScoredDoc> heap;
+
+    /**
+     * Creates a collector that keeps at most {@code k} documents.
+     *
+     * @param k maximum number of documents to keep (must be &gt; 0)
+     */
+    public TopKCollector(int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        this.k = k;
+        this.heap = new PriorityQueue<>(Math.min(k, 1024), TopKCollector::compareAscending);
+    }
+
+    /**
+     * Offers a candidate document. It is kept only if it beats the current k-th best.
+     *
+     * @param docId document ID
+     * @param score relevance score
+     */
+    public void offer(int docId, double score) {
+        if (heap.size() < k) {
+            heap.add(new ScoredDoc(docId, score));
+        } else if (compareAscending(new ScoredDoc(docId, score), heap.peek()) > 0) {
+            heap.poll();
+            heap.add(new ScoredDoc(docId, score));
+        }
+    }
+
+    /**
+     * Returns the collected documents, best first.
+     * @return list of at most k documents sorted by descending score
+     */
+    public List<ScoredDoc> results() {
+        List<ScoredDoc> sorted = new ArrayList<>(heap);
+        sorted.sort(Collections.reverseOrder(TopKCollector::compareAscending));
+        return sorted;
+    }
+
+    /**
+     * Orders by score, breaking ties by lower document ID (older pages first) for stable results.
+     */
+    private static int compareAscending(ScoredDoc a, ScoredDoc b) {
+        int cmp = Double.compare(a.score(), b.score());
+        return cmp != 0 ? cmp : Integer.compare(b.docId(), a.docId());
+    }
+}
@@ -0,0 +1,217 @@
+package webServer;
+import java.net.IDN;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Rewrites URLs to a canonical form, so that variants of the same page are crawled, queued and
+ * indexed once. Applied to user-submitted URLs by the Gateway, to extracted links by the
+ * Downloader and to every URL admitted to a Barrel's frontier.
+ *
+ * <p>Rules:
+ * <ul>
+ *     <li>only {@code http} and {@code https} URLs are accepted; a URL without a scheme gets {@code http://}</li>
+ *     <li>scheme and host are lowercased, internationalised hosts are converted to ASCII and
+ *     a trailing dot is dropped; user info is dropped</li>
+ *     <li>the default port (80 for http, 443 for https) is removed</li>
+ *     <li>the path is normalised: {@code .} and {@code ..} segments resolved, repeated slashes
+ *     collapsed, the trailing slash of a non-root path removed, an empty path becomes {@code /}</li>
+ *     <li>percent-escapes of unreserved characters are decoded, the remaining ones uppercased, and
+ *     characters not allowed in a URL are escaped</li>
+ *     <li>tracking parameters ({@code utm_*}, {@code gclid}, {@code fbclid}, ...) and empty parameters are
+ *     removed, and the remaining parameters are sorted by name</li>
+ *     <li>the fragment is removed</li>
+ * </ul>
+ *
+ * Thread-safety: Stateless; all methods are thread-safe.
+ */
+public final class UrlCanonicalizer {
+
+    private static final Set<String> TRACKING_PARAMETERS = Set.of(
+            "gclid", "gclsrc", "dclid", "fbclid", "msclkid", "yclid", "igshid", "twclid", "ttclid",
+            "mc_cid", "mc_eid", "_ga", "_gl", "_hsenc", "_hsmi", "mkt_tok", "oly_anon_id", "oly_enc_id",
+            "vero_id", "wickedid", "rb_clickid", "s_cid", "spm", "ref_src", "ref_url");
+    private static final String TRACKING_PREFIX = "utm_";
+    private static final String HEX = "0123456789ABCDEF";
+
+    private UrlCanonicalizer() {
+    }
+
+    /**
+     * Returns the canonical form of a URL.
+     *
+     * @param url absolute URL, or a host and path without scheme
+     * @return the canonical URL, or null if it is not a valid http or https URL
+     */
+    public static String canonicalize(String url) {
+        if (url == null) return null;
+        String trimmed = url.strip();
+        if (trimmed.isEmpty()) return null;
+        if (!trimmed.contains("://")) {
+            if (trimmed.indexOf(':') >= 0 && !trimmed.matches("^[^/:]+:\\d+(/.*)?$")) return null; // mailto:, javascript:, ...
+            trimmed = "http://" + trimmed;
+        }
+
+        URI uri;
+        try {
+            uri = new URI(escapeIllegal(asciiHost(trimmed)));
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+
+        String scheme = uri.getScheme() == null ? null : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!"http".equals(scheme) && !"https".equals(scheme)) return null;
+
+        String host = uri.getHost();
+        if (host == null) return null;
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.endsWith(".")) host = host.substring(0, host.length() - 1);
+        if (host.isEmpty()) return null;
+
+        int port = uri.getPort();
+        if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) port = -1;
+
+        StringBuilder canonical = new StringBuilder(trimmed.length());
+        canonical.append(scheme).append("://").append(host);
+        if (port != -1) canonical.append(':').append(port);
+        canonical.append(normalizePath(uri.getRawPath()));
+
+        String query = normalizeQuery(uri.getRawQuery());
+        if (!query.isEmpty()) canonical.append('?').append(query);
+        return canonical.toString();
+    }
+
+    /**
+     * Canonicalises a collection of URLs, dropping invalid ones and duplicates.
+     *
+     * @param urls URLs to canonicalise
+     * @return distinct canonical URLs, in the order of their first occurrence
+     */
+    public static List<String> canonicalizeAll(Collection<String> urls) {
+        Set<String> canonical = new LinkedHashSet<>();
+        for (String url : urls) {
+            String c = canonicalize(url);
+            if (c != null) canonical.add(c);
+        }
+        return new ArrayList<>(canonical);
+    }
+
+    // Converts an internationalised host to its ASCII (punycode) form, which java.net.URI requires
+    private static String asciiHost(String url) {
+        int start = url.indexOf("://") + 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) end++;
+        String authority = url.substring(start, end);
+        if (authority.chars().allMatch(c -> c < 0x80)) return url;
+
+        int hostStart = authority.lastIndexOf('@') + 1;
+        int hostEnd = authority.lastIndexOf(':');
+        if (hostEnd < hostStart || authority.endsWith("]")) hostEnd = authority.length();
+        String host = IDN.toASCII(authority.substring(hostStart, hostEnd));
+        return url.substring(0, start + hostStart) + host + url.substring(start + hostEnd);
+    }
+
+    private static String normalizePath(String rawPath) {
+        if (rawPath == null || rawPath.isEmpty()) return "/";
+
+        List<String> segments = new ArrayList<>();
+        for (String segment : rawPath.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) continue;
+            if (segment.equals("..")) {
+                if (!segments.isEmpty()) segments.remove(segments.size() - 1);
+                continue;
+            }
+            segments.add(normalizeEscapes(segment));
+        }
+        if (segments.isEmpty()) return "/";
+
+        StringBuilder path = new StringBuilder(rawPath.length());
+        for (String segment : segments) path.append('/').append(segment);
+        return path.toString();
+    }
+
+    private static String normalizeQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) return "";
+
+        List<String[]> parameters = new ArrayList<>();
+        for (String parameter : rawQuery.split("&")) {
+            if (parameter.isEmpty()) continue;
+            int eq = parameter.indexOf('=');
+            String name = normalizeEscapes(eq < 0 ? parameter : parameter.substring(0, eq));
+            String value = eq < 0 ? null : normalizeEscapes(parameter.substring(eq + 1));
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            if (name.isEmpty() || lowerName.startsWith(TRACKING_PREFIX) || TRACKING_PARAMETERS.contains(lowerName)) continue;
+            parameters.add(new String[]{name, value});
+        }
+        // Stable sort: repeated names keep their relative order, which may be significant
+        parameters.sort(Comparator.comparing(p -> p[0]));
+
+        StringBuilder query = new StringBuilder(rawQuery.length());
+        for (String[] parameter : parameters) {
+            if (query.length() > 0) query.append('&');
+            query.append(parameter[0]);
+            if (parameter[1] != null) query.append('=').append(parameter[1]);
+        }
+        return query.toString();
+    }
+
+    // Decodes escapes of unreserved characters (RFC 3986 2.3) and uppercases the hex digits of the others
+    private static String normalizeEscapes(String component) {
+        if (component.indexOf('%') < 0) return component;
+
+        StringBuilder out = new StringBuilder(component.length());
+        for (int i = 0; i < component.length(); i++) {
+            char c = component.charAt(i);
+            if (c == '%' && i + 2 < component.length()
+                    && Character.digit(component.charAt(i + 1), 16) >= 0
+                    && Character.digit(component.charAt(i + 2), 16) >= 0) {
+                int value = Integer.parseInt(component.substring(i + 1, i + 3), 16);
+                if (isUnreserved((char) value)) {
+                    out.append((char) value);
+                } else {
+                    out.append('%').append(HEX.charAt(value >> 4)).append(HEX.charAt(value & 0xF));
+                }
+                i += 2;
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    // Percent-encodes (as UTF-8) the characters java.net.URI rejects, keeping valid escapes
+    private static String escapeIllegal(String url) {
+        StringBuilder out = null;
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            boolean legal = c > 0x20 && c < 0x7F && "\"<>\\^`{|}".indexOf(c) < 0
+                    && (c != '%' || (i + 2 < url.length()
+                        && Character.digit(url.charAt(i + 1), 16) >= 0
+                        && Character.digit(url.charAt(i + 2), 16) >= 0));
+            if (legal) {
+                if (out != null) out.append(c);
+                continue;
+            }
+            if (out == null) out = new StringBuilder(url.length() + 16).append(url, 0, i);
+            int end = Character.isHighSurrogate(c) && i + 1 < url.length() ? i + 2 : i + 1;
+            for (byte b : url.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                out.append('%').append(HEX.charAt((b >> 4) & 0xF)).append(HEX.charAt(b & 0xF));
+            }
+            i = end - 1;
+        }
+        return out == null ? url : out.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package webServer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+
+/**
+ * Compact MapDB serializer for sets of URLs (the adjacency list values of a Barrel).
+ *
+ * <p>URLs are written in sorted order with front coding: each one stores only the number of
+ * leading characters it shares with the previous URL and the remaining suffix. Links into the
+ * same page mostly come from the same sites, so the scheme, host and common path prefix are
+ * written once per set instead of once per URL, and no Java serialization descriptors are stored.
+ * <pre>
+ *     [count: packed int] ([shared prefix: packed int][suffix length: packed int][suffix: UTF-8])*
+ * </pre>
+ *
+ * <p>Also provides the shared string and URL encodings used by {@link StoredDocumentSerializer}.
+ *
+ * Thread-safety: Stateless and thread-safe.
+ */
+public class UrlSetSerializer implements Serializer<Set<String>> {
+
+    /** Common URL prefixes encoded as a one-byte code by {@link #writeUrl}; longest first. */
+    private static final String[] URL_PREFIXES = {"https://www.", "http://www.", "https://", "http://"};
+
+    @Override
+    public void serialize(DataOutput2 out, Set<String> urls) throws IOException {
+        String[] sorted = urls.toArray(new String[0]);
+        Arrays.sort(sorted);
+
+        out.packInt(sorted.length);
+        String previous = "";
+        for (String url : sorted) {
+            int shared = sharedPrefix(previous, url);
+            out.packInt(shared);
+            writeString(out, url.substring(shared));
+            previous = url;
+        }
+    }
+
+    @Override
+    public Set<String> deserialize(DataInput2 in, int available) throws IOException {
+        int count = in.unpackInt();
+        Set<String> urls = ConcurrentHashMap.newKeySet(count);
+        String previous = "";
+        for (int i = 0; i < count; i++) {
+            int shared = in.unpackInt();
+            String url = previous.substring(0, shared) + readString(in);
+            urls.add(url);
+            previous = url;
+        }
+        return urls;
+    }
+
+    /**
+     * Writes a URL, replacing a common scheme/host prefix by a one-byte code.
+     *
+     * @param out output
+     * @param url URL to write
+     * @throws IOException if writing fails
+     */
+    static void writeUrl(DataOutput2 out, String url) throws IOException {
+        for (int code = 0; code < URL_PREFIXES.length; code++) {
+            if (url.startsWith(URL_PREFIXES[code])) {
+                out.writeByte(code + 1);
+                writeString(out, url.substring(URL_PREFIXES[code].length()));
+                return;
+            }
+        }
+        out.writeByte(0);
+        writeString(out, url);
+    }
+
+    /**
+     * Reads a URL written by {@link #writeUrl}.
+     *
+     * @param in input
+     * @return the URL
+     * @throws IOException if reading fails
+     */
+    static String readUrl(DataInput2 in) throws IOException {
+        int code = in.readUnsignedByte();
+        String rest = readString(in);
+        return code == 0 ? rest : URL_PREFIXES[code - 1] + rest;
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by the bytes. Unlike {@code writeUTF} there is
+     * no 64 KiB limit, and ASCII text takes one byte per character.
+     *
+     * @param out   output
+     * @param value string to write, may be null
+     * @throws IOException if writing fails
+     */
+    static void writeString(DataOutput2 out, String value) throws IOException {
+        if (value == null) {
+            out.packInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.packInt(bytes.length + 1);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     *
+     * @param in input
+     * @return the string, or null if null was written
+     * @throws IOException if reading fails
+     */
+    static String readString(DataInput2 in) throws IOException {
+        int length = in.unpackInt();
+        if (length == 0) return null;
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int sharedPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) i++;
+        // Never split a surrogate pair between the prefix and the suffix
+        if (i > 0 && Character.isHighSurrogate(b.charAt(i - 1))) i--;
+        return i;
+    }
+}
@@ -18,7 +18,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import webServer.BarrelIndex;
-import webServer.FileManipulation;
+import webServer.ShardMap;
+import webServer.UrlCanonicalizer;
 
 import java.net.URI;
 import java.net.URL;
@@ -103,68 +104,39 @@ public class HackerNewsController {
     private void indexLinksInBarrel(List<String> links) {
         try {
             System.out.println("A adicionar n de links: " + links.size());
-            List<String> barrel1Config = FileManipulation.lineSplitter("config.txt", 2, ";");
-            List<String> barrel2Config = FileManipulation.lineSplitter("config.txt", 3, ";");
-
-            if (barrel1Config.size() < 3 || barrel2Config.size() < 3) {
-                logger.error("Barrel configuration is incomplete");
-                return;
-            }
-
-            BarrelIndex barrel1 = null;
-            BarrelIndex barrel2 = null;
-
-            // Tentar conectar ao Barrel 1
-            try {
-                String barrel1Name = barrel1Config.get(0).trim();
-                String barrel1Ip = barrel1Config.get(1).trim();
-                int barrel1Port = Integer.parseInt(barrel1Config.get(2).trim());
-
-                Registry registry1 = LocateRegistry.getRegistry(barrel1Ip, barrel1Port);
-                barrel1 = (BarrelIndex) registry1.lookup(barrel1Name);
-                logger.info("Connected to Barrel1");
-            } catch (Exception e) {
-                logger.warn("Failed to connect to Barrel1: " + e.getMessage());
-            }
-
-            // Tentar conectar ao Barrel 2
-            try {
-                String barrel2Name = barrel2Config.get(0).trim();
-                String barrel2Ip = barrel2Config.get(1).trim();
-                int barrel2Port = Integer.parseInt(barrel2Config.get(2).trim());
-
-                Registry registry2 = LocateRegistry.getRegistry(barrel2Ip, barrel2Port);
-                barrel2 = (BarrelIndex) registry2.lookup(barrel2Name);
-                logger.info("Connected to Barrel2");
-            } catch (Exception e) {
-                logger.warn("Failed to connect to Barrel2: " + e.getMessage());
+            ShardMap shardMap = ShardMap.load("config.txt");
+
+            // Tentar conectar a todos os Barrels
+            Map<String, BarrelIndex> barrels = new HashMap<>();
+            for (ShardMap.Replica replica : shardMap.replicas()) {
+                try {
+                    Registry registry = LocateRegistry.getRegistry(replica.ip(), replica.port());
+                    barrels.put(replica.name(), (BarrelIndex) registry.lookup(replica.name()));
+                    logger.info("Connected to " + replica.name());
+                } catch (Exception e) {
+                    logger.warn("Failed to connect to " + replica.name() + ": " + e.getMessage());
+                }
             }
 
-            if (barrel1 == null && barrel2 == null) {
+            if (barrels.isEmpty()) {
                 logger.error("Could not connect to any Barrel");
                 return;
             }
 
-            // Adicionar links aos Barrels disponíveis
-            for (String url : links) {
-                if (url != null && !url.isEmpty()) {
-                    if (barrel1 != null) {
-                        try {
-                            barrel1.addUrlToQueue(url);
-                            logger.info("URL added to Barrel1: " + url);
-                        } catch (Exception e) {
-                            logger.error("Error adding to Barrel1: " + e.getMessage());
-                        }
-                    }
-
-                    if (barrel2 != null) {
-                        try {
-                            barrel2.addUrlToQueue(url);
-                            logger.info("URL added to Barrel2: " + url);
-                        } catch (Exception e) {
-                            logger.error("Error adding to Barrel2: " + e.getMessage());
-                            // Continua com próxima URL
-                        }
+            // Adicionar cada link aos Barrels disponíveis do seu shard
+            for (String link : links) {
+                String url = UrlCanonicalizer.canonicalize(link);
+                if (url == null) continue;
+
+                for (ShardMap.Replica replica : shardMap.replicas(shardMap.shardOf(url))) {
+                    BarrelIndex barrel = barrels.get(replica.name());
+                    if (barrel == null) continue;
+                    try {
+                        barrel.addUrlToQueue(url);
+                        logger.info("URL added to " + replica.name() + ": " + url);
+                    } catch (Exception e) {
+                        logger.error("Error adding to " + replica.name() + ": " + e.getMessage());
+                        // Continua com próxima URL
                     }
                 }
             }
@@ -10,9 +10,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
-import java.util.Collections;
 import webServer.GatewayInterface;
-import webServer.PageInfo;
+import webServer.SearchResultPage;
 import webServer.SystemStats;
 import webServer.FileManipulation;
 import webServer.webSock.StatsNotifierService;
@@ -20,7 +19,6 @@ import webServer.webSock.StatsNotifierService;
 import java.io.IOException;
 import java.util.List;
 import java.util.Properties;
-import java.lang.Math;
 
 /**
  * Controlador principal da aplicação web que gere todas as interações entre
@@ -177,7 +175,7 @@ public class MenuController {
 
     /**
      * Navega para página seguinte/anterior de resultados de pesquisa.
-     * Re-executa a pesquisa no Gateway e retorna apenas a página solicitada.
+     * Pede ao Gateway apenas a janela de resultados da página solicitada.
      *
      * @param termos Termos de pesquisa originais
      * @param page Número da página (0-indexed)
@@ -199,10 +197,9 @@ public class MenuController {
      *
      * <p>Fluxo:
      * <ol>
-     *   <li>Consulta Gateway via RMI (`gateway.search(termos)`)</li>
+     *   <li>Consulta Gateway via RMI apenas pela página atual (`gateway.search(termos, offset, PAGE_SIZE)`)</li>
      *   <li>Gera análise contextualizada com Gemini (`callGeminiAnalysis(termos)`)</li>
-     *   <li>Extrai subconjunto de 10 resultados para a página atual</li>
-     *   <li>Calcula variáveis de navegação (hasNext/hasPrev)</li>
+     *   <li>Calcula variáveis de navegação (hasNext/hasPrev) a partir do total de resultados</li>
      *   <li>Renderiza view com resultados e análise</li>
      * </ol>
      *
@@ -216,26 +213,16 @@ public class MenuController {
             if (gateway == null) connectToGateway();
             if (gateway == null) throw new RemoteException("Gateway indisponível.");
 
-            List<PageInfo> allResults = gateway.search(termos);
+            SearchResultPage resultPage = gateway.search(termos, currentPage * PAGE_SIZE, PAGE_SIZE);
             statsNotifierService.sendImmediateStatsUpdate();
             String analysis = callGeminiAnalysis(termos);
 
-            int start = currentPage * PAGE_SIZE;
-            int end = Math.min(start + PAGE_SIZE, allResults.size());
-
-            List<PageInfo> pageResults;
-            if (start < end) {
-                pageResults = allResults.subList(start, end);
-            } else {
-                pageResults = Collections.emptyList();
-            }
-
-            boolean hasNext = end < allResults.size();
+            boolean hasNext = resultPage.hasNext();
             boolean hasPrev = currentPage > 0;
 
-            model.addAttribute("mensagem", "Pesquisa realizada: " + termos);
+            model.addAttribute("mensagem", "Pesquisa realizada: " + termos + " (" + resultPage.getTotalHits() + " resultados)");
             model.addAttribute("tipo", "sucesso");
-            model.addAttribute("resultados", pageResults);
+            model.addAttribute("resultados", resultPage.getResults());
             model.addAttribute("terms", List.of(termos.split(" ")));
             model.addAttribute("analise", analysis);
             model.addAttribute("termos", termos);
@@ -0,0 +1,114 @@
+package webServer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Contention benchmark for link admission into the Barrel's seen-URL filter and crawl frontier:
+ * measures links admitted per second with 8 to 32 ingest threads, each admitting the outgoing
+ * links of one page at a time, as concurrent Downloader batches do.
+ *
+ * <ul>
+ *     <li>locked: one lock around check, queue and insert of every link (the former admission path)</li>
+ *     <li>batched: one put-if-absent call on the {@link ScalableBloomFilter} per page and one
+ *     {@link CrawlFrontier#addAll(Map)} call with the new links</li>
+ * </ul>
+ *
+ * <p>Run with {@code java -cp <test classpath> webServer.AdmissionBenchmark [seconds] [links per page]}.
+ */
+public class AdmissionBenchmark {
+
+    private static final int URL_SPACE = 50_000_000;
+    private static final int HOSTS = 10_000;
+
+    private interface Admission {
+        void admit(List<String> links) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int linksPerPage = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        System.out.printf("cores=%d duration=%ds links/page=%d%n",
+                Runtime.getRuntime().availableProcessors(), seconds, linksPerPage);
+        System.out.printf("%-10s %10s %15s %15s%n", "path", "threads", "links/s", "admitted/s");
+
+        for (int threads : new int[]{8, 16, 32}) {
+            run("locked", threads, seconds, linksPerPage, (filter, frontier) -> {
+                Object lock = new Object();
+                return links -> {
+                    for (String link : links) {
+                        synchronized (lock) {
+                            if (filter.mightContain(link)) continue;
+                            frontier.add(link, 0);
+                            filter.put(link);
+                        }
+                    }
+                };
+            });
+            run("batched", threads, seconds, linksPerPage, (filter, frontier) -> links -> {
+                Map<String, Integer> priorities = new LinkedHashMap<>();
+                for (String link : filter.putAll(links)) priorities.put(link, 0);
+                if (!priorities.isEmpty()) frontier.addAll(priorities);
+            });
+        }
+    }
+
+    private interface AdmissionFactory {
+        Admission create(ScalableBloomFilter filter, CrawlFrontier frontier);
+    }
+
+    private static void run(String name, int threadCount, int seconds, int linksPerPage, AdmissionFactory factory) throws Exception {
+        Path directory = Files.createTempDirectory("admission-benchmark");
+        ScalableBloomFilter filter = ScalableBloomFilter.open(directory.resolve("bloom"), 100_000, 0.01);
+        CrawlFrontier frontier = new CrawlFrontier(directory.resolve("frontier"));
+        Admission admission = factory.create(filter, frontier);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder links = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                List<String> page = new ArrayList<>(linksPerPage);
+                try {
+                    while (running.get()) {
+                        page.clear();
+                        for (int l = 0; l < linksPerPage; l++) page.add(url(random.nextInt(URL_SPACE)));
+                        admission.admit(page);
+                        links.add(linksPerPage);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread t : threads) t.join();
+
+        System.out.printf("%-10s %10d %15d %15d%n", name, threadCount,
+                links.sum() / seconds, filter.approximateElementCount() / seconds);
+
+        frontier.close();
+        filter.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(file);
+        }
+    }
+
+    private static String url(int id) {
+        return "https://host" + (id % HOSTS) + ".example.com/page/" + id;
+    }
+}
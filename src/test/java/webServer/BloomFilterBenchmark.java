@@ -0,0 +1,89 @@
+package webServer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Compares the Barrel's seen-URL filters as the number of URLs grows: the former fixed Guava
+ * {@code BloomFilter} sized for 100k URLs at 1% false positives, and the {@link ScalableBloomFilter}
+ * with the same initial parameters. Reports insert and lookup throughput, memory, the estimated
+ * false-positive rate and the rate observed on URLs that were never added.
+ *
+ * <p>Run with {@code java -Xmx4g -cp <test classpath> webServer.BloomFilterBenchmark [urls...]}
+ * (default 10M and 100M URLs).
+ */
+public class BloomFilterBenchmark {
+
+    private static final int EXPECTED_INSERTIONS = 100_000;
+    private static final double FPP = 0.01;
+    private static final int PROBES = 1_000_000;
+    private static final int HOSTS = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        long[] sizes = args.length > 0 ? new long[args.length] : new long[]{10_000_000L, 100_000_000L};
+        for (int i = 0; i < args.length; i++) sizes[i] = Long.parseLong(args[i]);
+
+        System.out.printf("%-10s %12s %12s %12s %10s %12s %12s %8s%n",
+                "filter", "urls", "put/s", "get/s", "MiB", "est. fpp", "obs. fpp", "stages");
+        for (long urls : sizes) {
+            runGuava(urls);
+            runScalable(urls);
+        }
+    }
+
+    private static void runGuava(long urls) {
+        BloomFilter<CharSequence> filter = BloomFilter.create(Funnels.unencodedCharsFunnel(), EXPECTED_INSERTIONS, FPP);
+
+        long start = System.nanoTime();
+        for (long i = 0; i < urls; i++) filter.put(url(i));
+        double putSeconds = (System.nanoTime() - start) / 1e9;
+
+        long falsePositives = 0;
+        start = System.nanoTime();
+        for (long i = 0; i < PROBES; i++) {
+            if (filter.mightContain(url(urls + i))) falsePositives++;
+        }
+        double getSeconds = (System.nanoTime() - start) / 1e9;
+
+        // Guava does not expose its size; the optimal bit count for its parameters is what it allocates
+        double mib = -EXPECTED_INSERTIONS * Math.log(FPP) / (Math.log(2) * Math.log(2)) / 8 / (1024.0 * 1024.0);
+        print("guava", urls, putSeconds, getSeconds, mib, filter.expectedFpp(), falsePositives, 1);
+    }
+
+    private static void runScalable(long urls) throws Exception {
+        Path directory = Files.createTempDirectory("bloom-benchmark");
+        try (ScalableBloomFilter filter = ScalableBloomFilter.open(directory, EXPECTED_INSERTIONS, FPP)) {
+            long start = System.nanoTime();
+            for (long i = 0; i < urls; i++) filter.put(url(i));
+            double putSeconds = (System.nanoTime() - start) / 1e9;
+
+            long falsePositives = 0;
+            start = System.nanoTime();
+            for (long i = 0; i < PROBES; i++) {
+                if (filter.mightContain(url(urls + i))) falsePositives++;
+            }
+            double getSeconds = (System.nanoTime() - start) / 1e9;
+
+            print("scalable", urls, putSeconds, getSeconds, filter.memoryBytes() / (1024.0 * 1024.0),
+                    filter.expectedFpp(), falsePositives, filter.stageCount());
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static void print(String name, long urls, double putSeconds, double getSeconds, double mib,
+                              double expectedFpp, long falsePositives, int stages) {
+        System.out.printf("%-10s %12d %12.0f %12.0f %10.1f %12.6f %12.6f %8d%n",
+                name, urls, urls / putSeconds, PROBES / getSeconds, mib,
+                expectedFpp, (double) falsePositives / PROBES, stages);
+    }
+
+    private static String url(long i) {
+        return "https://host" + (i % HOSTS) + ".example.com/page/" + i;
+    }
+}
@@ -0,0 +1,112 @@
+package webServer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link CrawlFrontier}: per-host politeness delay, priorities, lease expiry and recovery.
+ */
+class CrawlFrontierTest {
+
+    private static final long DELAY_MS = 200;
+    private static final long LEASE_TIMEOUT_MS = 300;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void leasesAtMostOneUrlPerHostUntilItsDelayPasses() throws Exception {
+        try (CrawlFrontier frontier = new CrawlFrontier(directory, DELAY_MS, LEASE_TIMEOUT_MS, 1000)) {
+            frontier.add("http://a.com/1", 1);
+            frontier.add("http://a.com/2", 1);
+            frontier.add("http://b.com/1", 1);
+
+            List<String> first = frontier.lease(10, 0);
+            assertEquals(Set.of("http://a.com/1", "http://b.com/1"), new HashSet<>(first));
+            assertEquals(List.of(), frontier.lease(10, 0));
+
+            long start = System.nanoTime();
+            assertEquals(List.of("http://a.com/2"), frontier.lease(10, 5 * DELAY_MS));
+            assertTrue((System.nanoTime() - start) / 1_000_000 >= DELAY_MS / 2, "leased before the politeness delay");
+        }
+    }
+
+    @Test
+    void leasesTheBestUrlOfEachHostFirst() throws Exception {
+        try (CrawlFrontier frontier = new CrawlFrontier(directory, 0, LEASE_TIMEOUT_MS, 1000)) {
+            frontier.add("http://a.com/low", 1);
+            frontier.add("http://a.com/high", 5);
+            frontier.add("http://b.com/seed", CrawlFrontier.SEED_PRIORITY);
+            frontier.add("http://c.com/mid", 3);
+
+            assertEquals(List.of("http://b.com/seed", "http://a.com/high", "http://c.com/mid"), frontier.lease(10, 0));
+            assertEquals(List.of("http://a.com/low"), frontier.lease(10, 0));
+        }
+    }
+
+    @Test
+    void reissuesUrlsWhoseLeaseExpired() throws Exception {
+        try (CrawlFrontier frontier = new CrawlFrontier(directory, 0, LEASE_TIMEOUT_MS, 1000)) {
+            frontier.add("http://a.com/done", 1);
+            frontier.add("http://b.com/lost", 1);
+            List<String> leased = frontier.lease(10, 0);
+            assertEquals(2, leased.size());
+            assertEquals(2, frontier.leasedCount());
+
+            frontier.complete(List.of("http://a.com/done"));
+            assertEquals(List.of(), frontier.lease(10, 0));
+
+            // Waits for the expiry instead of returning empty after the whole wait
+            assertEquals(List.of("http://b.com/lost"), frontier.lease(10, 5 * LEASE_TIMEOUT_MS));
+            assertEquals(1, frontier.reissuedCount());
+            assertEquals(1, frontier.leasedCount());
+        }
+    }
+
+    @Test
+    void recoversQueuedAndLeasedUrlsAfterACheckpoint() throws Exception {
+        try (CrawlFrontier frontier = new CrawlFrontier(directory, 0, LEASE_TIMEOUT_MS, 1000)) {
+            frontier.add("http://a.com/queued", 1);
+            frontier.add("http://b.com/leased", 2);
+            frontier.add("http://c.com/done", 3);
+            frontier.lease(2, 0);
+            frontier.complete(List.of("http://c.com/done"));
+            frontier.checkpoint();
+        }
+
+        try (CrawlFrontier frontier = new CrawlFrontier(directory, 0, LEASE_TIMEOUT_MS, 1000)) {
+            assertEquals(2, frontier.size());
+            assertEquals(Set.of("http://a.com/queued", "http://b.com/leased"), new HashSet<>(frontier.lease(10, 0)));
+        }
+    }
+
+    @Test
+    void spillsDiscoveredUrlsBeyondTheMemoryBoundAndRefillsFromTheLog() throws Exception {
+        int urls = 50;
+        try (CrawlFrontier frontier = new CrawlFrontier(directory, 0, LEASE_TIMEOUT_MS, 10)) {
+            for (int i = 0; i < urls; i++) frontier.add("http://host" + i + ".com/", 1);
+            assertEquals(urls, frontier.size());
+
+            Set<String> leased = new HashSet<>();
+            for (int round = 0; round < urls && leased.size() < urls; round++) {
+                leased.addAll(frontier.lease(urls, 0));
+            }
+            assertEquals(urls, leased.size());
+            assertEquals(0, frontier.size());
+        }
+    }
+
+    @Test
+    void extractsTheHostOfAUrl() {
+        assertEquals("example.com", CrawlFrontier.hostOf("https://user@Example.com:8080/path?q#f"));
+        assertEquals("example.com", CrawlFrontier.hostOf("http://example.com"));
+        assertEquals("[::1]", CrawlFrontier.hostOf("http://[::1]:80/"));
+    }
+}
@@ -0,0 +1,95 @@
+package webServer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+
+/**
+ * Contention benchmark for {@link InvertedIndex}: measures search throughput with an increasing
+ * number of search threads while ingest threads keep adding pages, as Downloaders do.
+ *
+ * <p>Run with {@code java -cp <test classpath> webServer.IndexContentionBenchmark [seconds] [writers]}.
+ * Search throughput should grow with the number of search threads up to the number of cores,
+ * since searches take no locks and ingest only locks per-term stripes.
+ */
+public class IndexContentionBenchmark {
+
+    private static final int VOCABULARY = 20_000;
+    private static final int WORDS_PER_PAGE = 300;
+    private static final int PRELOADED_PAGES = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        DB db = DBMaker.memoryDB().make();
+        InvertedIndex index = new InvertedIndex(db, Files.createTempDirectory("index-benchmark"));
+        Random seed = new Random(42);
+        for (int i = 0; i < PRELOADED_PAGES; i++) {
+            index.addDocument("https://preload/" + i, randomPage(seed));
+        }
+
+        System.out.printf("cores=%d writers=%d duration=%ds%n", cores, writers, seconds);
+        System.out.printf("%-10s %15s %15s%n", "searchers", "searches/s", "pages/s");
+
+        for (int searchers = 1; searchers <= cores; searchers *= 2) {
+            AtomicBoolean running = new AtomicBoolean(true);
+            LongAdder searches = new LongAdder();
+            LongAdder pages = new LongAdder();
+            List<Thread> threads = new ArrayList<>();
+
+            for (int w = 0; w < writers; w++) {
+                final int writerId = w;
+                final int round = searchers;
+                threads.add(new Thread(() -> {
+                    Random random = new Random(writerId);
+                    int n = 0;
+                    while (running.get()) {
+                        index.addDocument("https://w" + writerId + "/r" + round + "/" + n++, randomPage(random));
+                        pages.increment();
+                    }
+                }));
+            }
+            for (int r = 0; r < searchers; r++) {
+                final int readerId = r;
+                threads.add(new Thread(() -> {
+                    Random random = new Random(1000 + readerId);
+                    while (running.get()) {
+                        List<String> terms = List.of(word(random), word(random));
+                        index.rank(terms, 10, url -> 0);
+                        searches.increment();
+                    }
+                }));
+            }
+
+            threads.forEach(Thread::start);
+            Thread.sleep(seconds * 1000L);
+            running.set(false);
+            for (Thread t : threads) t.join();
+
+            System.out.printf("%-10d %15d %15d%n", searchers, searches.sum() / seconds, pages.sum() / seconds);
+        }
+
+        db.close();
+    }
+
+    private static List<String> randomPage(Random random) {
+        List<String> words = new ArrayList<>(WORDS_PER_PAGE);
+        for (int i = 0; i < WORDS_PER_PAGE; i++) words.add(word(random));
+        return words;
+    }
+
+    /**
+     * Picks a word with a skewed (roughly Zipfian) distribution, like natural text.
+     */
+    private static String word(Random random) {
+        double u = random.nextDouble();
+        return "w" + (int) (VOCABULARY * u * u * u);
+    }
+}
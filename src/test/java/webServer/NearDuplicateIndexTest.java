@@ -0,0 +1,85 @@
+package webServer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link NearDuplicateIndex}: band lookup of fingerprints within the maximum distance.
+ */
+class NearDuplicateIndexTest {
+
+    private static final long FINGERPRINT = 0x9E3779B97F4A7C15L;
+
+    @Test
+    void findsFingerprintsAtTheMaximumDistanceWhereverTheBitsDiffer() {
+        // One differing bit in each of three bands, then three in a single band
+        assertDuplicate(FINGERPRINT ^ (1L | 1L << 20 | 1L << 40));
+        assertDuplicate(FINGERPRINT ^ (1L << 60 | 1L << 61 | 1L << 63));
+    }
+
+    @Test
+    void ignoresFingerprintsBeyondTheMaximumDistance() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+        index.put("http://a.com/", FINGERPRINT);
+
+        // One differing bit in every band: no band matches
+        assertNull(index.addIfUnique("http://b.com/", FINGERPRINT ^ (1L | 1L << 16 | 1L << 32 | 1L << 48)));
+        // Four differing bits in one band: the other bands match, but the distance is too large
+        assertNull(index.addIfUnique("http://c.com/", FINGERPRINT ^ 0xFL));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void aPageIsNotADuplicateOfItself() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+        index.put("http://a.com/", FINGERPRINT);
+
+        assertNull(index.addIfUnique("http://a.com/", FINGERPRINT ^ 1L));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void replacingAFingerprintRemovesTheOldOne() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+        index.put("http://a.com/", FINGERPRINT);
+        index.put("http://a.com/", ~FINGERPRINT);
+
+        assertNull(index.addIfUnique("http://b.com/", FINGERPRINT));
+        assertEquals("http://a.com/", index.addIfUnique("http://c.com/", ~FINGERPRINT));
+    }
+
+    @Test
+    void supportsOtherDistances() {
+        NearDuplicateIndex exact = new NearDuplicateIndex(0);
+        exact.put("http://a.com/", FINGERPRINT);
+        assertEquals("http://a.com/", exact.addIfUnique("http://b.com/", FINGERPRINT));
+        assertNull(exact.addIfUnique("http://c.com/", FINGERPRINT ^ 1L));
+
+        NearDuplicateIndex loose = new NearDuplicateIndex(7);
+        loose.put("http://a.com/", FINGERPRINT);
+        assertEquals("http://a.com/", loose.addIfUnique("http://b.com/", FINGERPRINT ^ 0x7FL));
+
+        assertThrows(IllegalArgumentException.class, () -> new NearDuplicateIndex(16));
+    }
+
+    @Test
+    void clearRemovesEveryPage() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+        index.put("http://a.com/", FINGERPRINT);
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertNull(index.addIfUnique("http://b.com/", FINGERPRINT));
+    }
+
+    private static void assertDuplicate(long fingerprint) {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+        index.put("http://a.com/", FINGERPRINT);
+
+        assertEquals(NearDuplicateIndex.DEFAULT_MAX_DISTANCE, SimHash.distance(FINGERPRINT, fingerprint));
+        assertEquals("http://a.com/", index.addIfUnique("http://b.com/", fingerprint));
+        assertEquals(1, index.size());
+    }
+}
@@ -0,0 +1,125 @@
+package webServer;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the {@link PostingList} encoding (varints of the ID deltas) and set operations.
+ */
+class PostingListTest {
+
+    @Test
+    void roundTripsIdsAndFrequencies() {
+        int[] docIds = {0, 1, 127, 128, 16_383, 16_384, 2_097_152, Integer.MAX_VALUE};
+        int[] freqs = {1, 300, 2, 1, 70_000, 5, 1, 9};
+
+        byte[] encoded = PostingList.encode(docIds, freqs);
+
+        assertArrayEquals(docIds, PostingList.decode(encoded));
+        assertArrayEquals(freqs, PostingList.decodeFrequencies(encoded));
+        assertEquals(docIds.length, PostingList.size(encoded));
+    }
+
+    @Test
+    void encodesSmallDeltasInSingleBytes() {
+        int[] docIds = new int[100];
+        int[] freqs = new int[100];
+        for (int i = 0; i < docIds.length; i++) {
+            docIds[i] = 1_000_000 + i;
+            freqs[i] = 1;
+        }
+
+        // Count, last ID and first delta take several bytes; each later delta and frequency take one
+        byte[] encoded = PostingList.encode(docIds, freqs);
+        assertEquals(1 + 3 + 3 + 1 + 99 * 2, encoded.length);
+    }
+
+    @Test
+    void emptyAndNullListsDecodeToNothing() {
+        byte[] empty = PostingList.encode(new int[0], new int[0]);
+
+        assertArrayEquals(new int[0], PostingList.decode(empty));
+        assertArrayEquals(new int[0], PostingList.decode(null));
+        assertEquals(0, PostingList.size(empty));
+        assertEquals(0, PostingList.size(null));
+    }
+
+    @Test
+    void addAppendsNewerIdsAndInsertsOlderOnes() {
+        byte[] encoded = PostingList.add(null, 10, 1);
+        encoded = PostingList.add(encoded, 20, 2);
+        encoded = PostingList.add(encoded, 5, 3);
+        encoded = PostingList.add(encoded, 15, 4);
+
+        assertArrayEquals(new int[]{5, 10, 15, 20}, PostingList.decode(encoded));
+        assertArrayEquals(new int[]{3, 1, 4, 2}, PostingList.decodeFrequencies(encoded));
+    }
+
+    @Test
+    void addReplacesTheFrequencyOfAnExistingId() {
+        byte[] encoded = PostingList.encode(new int[]{1, 2, 3}, new int[]{1, 1, 1});
+
+        assertSame(encoded, PostingList.add(encoded, 2, 1));
+        byte[] updated = PostingList.add(encoded, 2, 7);
+        assertArrayEquals(new int[]{1, 2, 3}, PostingList.decode(updated));
+        assertArrayEquals(new int[]{1, 7, 1}, PostingList.decodeFrequencies(updated));
+    }
+
+    @Test
+    void addAllMergesOverlappingRanges() {
+        byte[] encoded = PostingList.encode(new int[]{2, 4, 6}, new int[]{1, 1, 1});
+
+        byte[] appended = PostingList.addAll(encoded, new int[]{7, 9}, new int[]{2, 3});
+        assertArrayEquals(new int[]{2, 4, 6, 7, 9}, PostingList.decode(appended));
+        assertArrayEquals(new int[]{1, 1, 1, 2, 3}, PostingList.decodeFrequencies(appended));
+
+        byte[] merged = PostingList.addAll(encoded, new int[]{1, 4, 8}, new int[]{5, 6, 7});
+        assertArrayEquals(new int[]{1, 2, 4, 6, 8}, PostingList.decode(merged));
+        assertArrayEquals(new int[]{5, 1, 6, 1, 7}, PostingList.decodeFrequencies(merged));
+
+        assertSame(encoded, PostingList.addAll(encoded, new int[0], new int[0]));
+    }
+
+    @Test
+    void mergePrefersTheNewerFrequencies() {
+        byte[] older = PostingList.encode(new int[]{1, 3, 5}, new int[]{1, 1, 1});
+        byte[] newer = PostingList.encode(new int[]{3, 4}, new int[]{9, 2});
+
+        byte[] merged = PostingList.merge(older, newer);
+
+        assertArrayEquals(new int[]{1, 3, 4, 5}, PostingList.decode(merged));
+        assertArrayEquals(new int[]{1, 9, 2, 1}, PostingList.decodeFrequencies(merged));
+        assertSame(older, PostingList.merge(older, null));
+        assertSame(newer, PostingList.merge(null, newer));
+        assertNull(PostingList.merge(null, null));
+    }
+
+    @Test
+    void intersectsListsOfSimilarSize() {
+        int[] a = {1, 3, 5, 7, 9};
+        int[] b = {2, 3, 4, 7, 10};
+
+        assertArrayEquals(new int[]{3, 7}, PostingList.intersect(a, b));
+        assertArrayEquals(new int[]{3, 7}, PostingList.intersect(b, a));
+    }
+
+    @Test
+    void intersectsByGallopingThroughALargerList() {
+        int[] large = new int[1000];
+        for (int i = 0; i < large.length; i++) large[i] = i * 2;
+        int[] small = {-1, 0, 3, 500, 1998, 1999, 5000};
+
+        assertArrayEquals(new int[]{0, 500, 1998}, PostingList.intersect(small, large));
+        assertArrayEquals(new int[]{0, 500, 1998}, PostingList.intersect(large, small));
+    }
+
+    @Test
+    void intersectionWithAnEmptyOrDisjointListIsEmpty() {
+        assertArrayEquals(new int[0], PostingList.intersect(new int[0], new int[]{1, 2}));
+        assertArrayEquals(new int[0], PostingList.intersect(new int[]{1, 2}, new int[0]));
+        assertArrayEquals(new int[0], PostingList.intersect(new int[]{1, 2}, new int[]{3, 4}));
+    }
+}
@@ -0,0 +1,88 @@
+package webServer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link RetransmissionLog}: acknowledgements, release and the capacity bound.
+ */
+class RetransmissionLogTest {
+
+    @Test
+    void returnsRetainedMessagesBySequenceNumber() throws Exception {
+        RetransmissionLog<String> log = new RetransmissionLog<>(4);
+        log.append(0, "a");
+        log.append(1, "b");
+
+        assertEquals("a", log.get(0));
+        assertEquals("b", log.get(1));
+        assertNull(log.get(2));
+        assertEquals(2, log.size());
+    }
+
+    @Test
+    void rejectsSequenceNumbersOutOfOrder() {
+        RetransmissionLog<String> log = new RetransmissionLog<>(4);
+        log.append(0, "a");
+
+        assertThrows(IllegalArgumentException.class, () -> log.append(2, "c"));
+        assertThrows(IllegalArgumentException.class, () -> new RetransmissionLog<String>(0));
+    }
+
+    @Test
+    void releasesMessagesOnceEveryReceiverAcknowledgedThem() throws Exception {
+        RetransmissionLog<String> log = new RetransmissionLog<>(8);
+        log.register("barrel1");
+        log.register("barrel2");
+        for (int i = 0; i < 5; i++) log.append(i, "m" + i);
+
+        log.acknowledge("barrel1", 4);
+        assertEquals(0, log.first());
+
+        log.acknowledge("barrel2", 2);
+        assertEquals(2, log.first());
+        assertEquals(3, log.size());
+        MessageTooOldException e = assertThrows(MessageTooOldException.class, () -> log.get(1));
+        assertEquals(2, e.getOldestAvailable());
+        assertEquals("m2", log.get(2));
+    }
+
+    @Test
+    void acknowledgementsBeyondTheLastMessageReleaseOnlyWhatWasSent() {
+        RetransmissionLog<String> log = new RetransmissionLog<>(4);
+        log.append(0, "a");
+
+        log.acknowledge("barrel1", 10);
+
+        assertEquals(1, log.first());
+        assertEquals(0, log.size());
+    }
+
+    @Test
+    void dropsTheOldestMessageWhenFull() throws Exception {
+        RetransmissionLog<String> log = new RetransmissionLog<>(3);
+        log.register("barrel1");
+        for (int i = 0; i < 5; i++) log.append(i, "m" + i);
+
+        assertEquals(2, log.first());
+        assertEquals(3, log.size());
+        assertEquals(2, log.dropped());
+        assertEquals("m4", log.get(4));
+        assertThrows(MessageTooOldException.class, () -> log.get(0));
+    }
+
+    @Test
+    void aReceiverRegisteredLaterOnlyHoldsBackNewerMessages() {
+        RetransmissionLog<String> log = new RetransmissionLog<>(8);
+        log.register("barrel1");
+        for (int i = 0; i < 4; i++) log.append(i, "m" + i);
+        log.acknowledge("barrel1", 2);
+
+        log.register("barrel2");
+        log.acknowledge("barrel1", 4);
+
+        assertEquals(2, log.first());
+    }
+}
@@ -0,0 +1,61 @@
+package webServer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link SearchResultPage} pagination when more documents match than search ranks.
+ */
+class SearchResultPageTest {
+
+    // Deepest ranked result a Barrel returns, see Barrel.searchPage
+    private static final int RESULT_WINDOW = 10_000;
+    private static final int PAGE_SIZE = 10;
+    private static final int TOTAL_HITS = 50_000;
+
+    @Test
+    void lastPageOfTheResultWindowHasNoNext() {
+        SearchResultPage page = new SearchResultPage(results(PAGE_SIZE), TOTAL_HITS, RESULT_WINDOW, 9990, PAGE_SIZE);
+
+        assertFalse(page.hasNext());
+        assertEquals(TOTAL_HITS, page.getTotalHits());
+        assertEquals(RESULT_WINDOW, page.getAvailableHits());
+    }
+
+    @Test
+    void pageAtTheEndOfTheResultWindowHasNoNext() {
+        SearchResultPage page = new SearchResultPage(List.of(), TOTAL_HITS, RESULT_WINDOW, RESULT_WINDOW, PAGE_SIZE);
+
+        assertFalse(page.hasNext());
+        assertFalse(SearchResultPage.empty(RESULT_WINDOW, PAGE_SIZE).hasNext());
+    }
+
+    @Test
+    void pagesInsideTheResultWindowHaveANext() {
+        SearchResultPage page = new SearchResultPage(results(PAGE_SIZE), TOTAL_HITS, RESULT_WINDOW, 9980, PAGE_SIZE);
+
+        assertTrue(page.hasNext());
+    }
+
+    @Test
+    void availableHitsNeverExceedTheTotal() {
+        SearchResultPage page = new SearchResultPage(results(5), 15, RESULT_WINDOW, 10, PAGE_SIZE);
+
+        assertEquals(15, page.getAvailableHits());
+        assertFalse(page.hasNext());
+        assertTrue(new SearchResultPage(results(PAGE_SIZE), 15, 0, PAGE_SIZE).hasNext());
+    }
+
+    private static List<SearchResult> results(int count) {
+        List<SearchResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(new SearchResult("Page " + i, "http://example.com/" + i, "", count - i));
+        }
+        return results;
+    }
+}
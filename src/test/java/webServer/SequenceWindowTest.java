@@ -0,0 +1,106 @@
+package webServer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link SequenceWindow}: watermark shifts, duplicates and numbers beyond the window.
+ */
+class SequenceWindowTest {
+
+    @Test
+    void advancesTheWatermarkOverContiguousNumbers() {
+        SequenceWindow window = new SequenceWindow();
+
+        assertTrue(window.add(0));
+        assertTrue(window.add(1));
+        assertEquals(2, window.expected());
+        assertTrue(window.contains(0));
+        assertFalse(window.contains(2));
+    }
+
+    @Test
+    void fillingAGapShiftsOverTheNumbersReceivedAboveIt() {
+        SequenceWindow window = new SequenceWindow();
+        window.add(0);
+        window.add(2);
+        window.add(3);
+        window.add(5);
+
+        assertEquals(1, window.expected());
+        assertEquals(List.of(1, 4), window.missingBelow(6));
+
+        window.add(1);
+        assertEquals(4, window.expected());
+        assertEquals(List.of(4), window.missingBelow(6));
+        assertTrue(window.contains(5));
+    }
+
+    @Test
+    void rejectsDuplicatesBelowAndAboveTheWatermark() {
+        SequenceWindow window = new SequenceWindow(10);
+        window.add(12);
+
+        assertTrue(window.contains(3));
+        assertFalse(window.add(3));
+        assertFalse(window.add(12));
+        assertEquals(10, window.expected());
+    }
+
+    @Test
+    void numberBeyondTheWindowGivesUpTheOldestGaps() {
+        SequenceWindow window = new SequenceWindow();
+        window.add(5);
+        int far = SequenceWindow.MAX_WINDOW + 10;
+
+        assertTrue(window.add(far));
+
+        // The window now ends at far, so everything below far - MAX_WINDOW + 1 counts as received
+        assertEquals(far - SequenceWindow.MAX_WINDOW + 1, window.expected());
+        assertTrue(window.contains(0));
+        assertTrue(window.contains(far));
+        assertFalse(window.contains(far - 1));
+    }
+
+    @Test
+    void missingNumbersAreBoundedByTheWindow() {
+        SequenceWindow window = new SequenceWindow();
+
+        assertEquals(SequenceWindow.MAX_WINDOW, window.missingBelow(Integer.MAX_VALUE).size());
+        assertEquals(List.of(), window.missingBelow(0));
+    }
+
+    @Test
+    void skipToGivesUpOnLowerNumbers() {
+        SequenceWindow window = new SequenceWindow();
+        window.add(7);
+
+        assertTrue(window.skipTo(5));
+        assertEquals(5, window.expected());
+        assertFalse(window.skipTo(3));
+        assertTrue(window.contains(7));
+
+        // Skipping up to a number already received also shifts over it
+        assertTrue(window.skipTo(7));
+        assertEquals(8, window.expected());
+    }
+
+    @Test
+    void copyIsIndependent() {
+        SequenceWindow window = new SequenceWindow();
+        window.add(2);
+        SequenceWindow copy = window.copy();
+
+        window.add(0);
+        window.add(1);
+
+        assertEquals(3, window.expected());
+        assertEquals(0, copy.expected());
+        assertTrue(copy.contains(2));
+        assertFalse(copy.contains(1));
+    }
+}
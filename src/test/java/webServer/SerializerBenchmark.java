@@ -0,0 +1,83 @@
+package webServer;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+
+/**
+ * Compares the Barrel's compact MapDB serializers ({@link StoredDocumentSerializer},
+ * {@link UrlSetSerializer}) against {@code Serializer.JAVA}: put and get throughput of stored
+ * pages and adjacency sets, and the size of the resulting database file.
+ *
+ * <p>Run with {@code java -cp <test classpath> webServer.SerializerBenchmark [pages]}.
+ */
+public class SerializerBenchmark {
+
+    private static final int LINKS_PER_PAGE = 12;
+    private static final int SITES = 200;
+
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        System.out.printf("pages=%d links/page=%d%n", pages, LINKS_PER_PAGE);
+        System.out.printf("%-10s %12s %12s %12s %12s%n", "format", "put/s", "get/s", "file MiB", "bytes/page");
+
+        run("java", pages, Serializer.JAVA, Serializer.JAVA);
+        run("compact", pages, new StoredDocumentSerializer(), new UrlSetSerializer());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void run(String name, int pages, Serializer documentSerializer, Serializer urlSetSerializer) throws Exception {
+        File file = Files.createTempDirectory("serializer-benchmark").resolve(name + "_MapDB.db").toFile();
+        DB db = DBMaker.fileDB(file).fileMmapEnableIfSupported().transactionEnable().make();
+        ConcurrentMap<String, StoredDocument> documents =
+                db.hashMap("documents", Serializer.STRING, documentSerializer).createOrOpen();
+        ConcurrentMap<String, Set<String>> adjacency =
+                db.hashMap("adjacency", Serializer.STRING, urlSetSerializer).createOrOpen();
+
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            String url = url(random, i);
+            documents.put(url, document(random, url));
+            Set<String> inlinks = new HashSet<>();
+            for (int l = 0; l < LINKS_PER_PAGE; l++) inlinks.add(url(random, random.nextInt(pages)));
+            adjacency.put(url, inlinks);
+        }
+        db.commit();
+        double putSeconds = (System.nanoTime() - start) / 1e9;
+
+        random = new Random(42);
+        long checksum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            String url = url(random, i);
+            document(random, url);
+            for (int l = 0; l < LINKS_PER_PAGE; l++) random.nextInt(pages);
+            checksum += documents.get(url).getLength() + adjacency.get(url).size();
+        }
+        double getSeconds = (System.nanoTime() - start) / 1e9;
+
+        db.close();
+        long bytes = file.length();
+        System.out.printf("%-10s %12.0f %12.0f %12.1f %12d   (checksum %d)%n", name, pages / putSeconds, pages / getSeconds,
+                bytes / (1024.0 * 1024.0), bytes / pages, checksum);
+        file.delete();
+    }
+
+    private static String url(Random random, int page) {
+        return "https://www.site" + (page % SITES) + ".example.org/articles/2024/" + page + "/page-" + (page * 31 % 997) + ".html";
+    }
+
+    private static StoredDocument document(Random random, String url) {
+        StringBuilder snippet = new StringBuilder();
+        for (int w = 0; w < 40; w++) snippet.append("word").append(random.nextInt(5000)).append(' ');
+        return new StoredDocument("Title of " + url.substring(12, 40), url, snippet.toString(), 300 + random.nextInt(2000), random.nextLong());
+    }
+}
@@ -0,0 +1,69 @@
+package webServer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link SimHash} fingerprints.
+ */
+class SimHashTest {
+
+    private static final int PAGE_WORDS = 500;
+
+    @Test
+    void ignoresCaseAndPunctuation() {
+        List<String> words = page(1);
+        List<String> noisy = new ArrayList<>();
+        for (String word : words) noisy.add(word.toUpperCase(Locale.ROOT) + ",");
+
+        assertEquals(SimHash.fingerprint(words), SimHash.fingerprint(noisy));
+    }
+
+    @Test
+    void smallEditsGiveCloseFingerprints() {
+        List<String> words = page(0);
+        List<String> edited = new ArrayList<>(words);
+        edited.set(100, "edited");
+        edited.remove(300);
+
+        int distance = SimHash.distance(SimHash.fingerprint(words), SimHash.fingerprint(edited));
+        assertTrue(distance <= NearDuplicateIndex.DEFAULT_MAX_DISTANCE, "distance " + distance);
+    }
+
+    @Test
+    void differentPagesGiveDistantFingerprints() {
+        int distance = SimHash.distance(SimHash.fingerprint(page(0)), SimHash.fingerprint(page(1)));
+
+        assertTrue(distance > 16, "distance " + distance);
+    }
+
+    @Test
+    void shortPagesHaveNoFingerprint() {
+        List<String> words = page(0).subList(0, SimHash.MIN_WORDS - 1);
+
+        assertEquals(SimHash.NONE, SimHash.fingerprint(words));
+        assertNotEquals(SimHash.NONE, SimHash.fingerprint(page(0)));
+    }
+
+    @Test
+    void distanceCountsDifferingBits() {
+        assertEquals(0, SimHash.distance(42L, 42L));
+        assertEquals(3, SimHash.distance(0b1011L, 0b0110L));
+        assertEquals(Long.SIZE, SimHash.distance(0L, -1L));
+    }
+
+    // Words drawn from a vocabulary of 2000, the same for a given seed
+    private static List<String> page(long seed) {
+        Random random = new Random(seed);
+        List<String> words = new ArrayList<>(PAGE_WORDS);
+        for (int i = 0; i < PAGE_WORDS; i++) words.add("word" + random.nextInt(2000));
+        return words;
+    }
+}
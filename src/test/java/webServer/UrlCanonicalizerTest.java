@@ -0,0 +1,88 @@
+package webServer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the {@link UrlCanonicalizer} rules.
+ */
+class UrlCanonicalizerTest {
+
+    @Test
+    void lowercasesSchemeAndHostAndDropsUserInfo() {
+        assertEquals("https://example.com/Path", UrlCanonicalizer.canonicalize("HTTPS://user:pw@Example.COM./Path"));
+    }
+
+    @Test
+    void addsAMissingScheme() {
+        assertEquals("http://example.com/", UrlCanonicalizer.canonicalize("example.com"));
+        assertEquals("http://example.com:8080/a", UrlCanonicalizer.canonicalize("example.com:8080/a"));
+    }
+
+    @Test
+    void removesOnlyTheDefaultPort() {
+        assertEquals("http://example.com/", UrlCanonicalizer.canonicalize("http://example.com:80/"));
+        assertEquals("https://example.com/", UrlCanonicalizer.canonicalize("https://example.com:443/"));
+        assertEquals("http://example.com:443/", UrlCanonicalizer.canonicalize("http://example.com:443/"));
+        assertEquals("https://example.com:8443/", UrlCanonicalizer.canonicalize("https://example.com:8443"));
+    }
+
+    @Test
+    void resolvesDotSegmentsAndCollapsesSlashes() {
+        assertEquals("http://example.com/a/c", UrlCanonicalizer.canonicalize("http://example.com/a/./b/../c/"));
+        assertEquals("http://example.com/a/b", UrlCanonicalizer.canonicalize("http://example.com//a///b"));
+        assertEquals("http://example.com/", UrlCanonicalizer.canonicalize("http://example.com/../.."));
+        assertEquals("http://example.com/", UrlCanonicalizer.canonicalize("http://example.com"));
+    }
+
+    @Test
+    void normalisesPercentEscapes() {
+        // %7E is an unreserved character, %2f is not and is only uppercased; the space is escaped
+        assertEquals("http://example.com/~user/a%2Fb/c%20d",
+                UrlCanonicalizer.canonicalize("http://example.com/%7Euser/a%2fb/c d"));
+    }
+
+    @Test
+    void removesTrackingAndEmptyParametersAndSortsTheRest() {
+        assertEquals("http://example.com/p?a=1&b=2&id",
+                UrlCanonicalizer.canonicalize("http://example.com/p?utm_source=x&b=2&&gclid=abc&id&a=1&UTM_Medium=y"));
+        assertEquals("http://example.com/p", UrlCanonicalizer.canonicalize("http://example.com/p?fbclid=1&utm_campaign=2"));
+    }
+
+    @Test
+    void keepsTheOrderOfRepeatedParameters() {
+        assertEquals("http://example.com/?a=2&a=1&b=0", UrlCanonicalizer.canonicalize("http://example.com/?b=0&a=2&a=1"));
+    }
+
+    @Test
+    void removesTheFragment() {
+        assertEquals("http://example.com/page", UrlCanonicalizer.canonicalize("http://example.com/page#section"));
+    }
+
+    @Test
+    void convertsInternationalisedHostsToAscii() {
+        assertEquals("http://xn--bcher-kva.example/", UrlCanonicalizer.canonicalize("http://Bücher.example/"));
+        assertEquals("http://xn--bcher-kva.example:8080/", UrlCanonicalizer.canonicalize("http://bücher.example:8080"));
+    }
+
+    @Test
+    void rejectsUrlsThatAreNotHttp() {
+        assertNull(UrlCanonicalizer.canonicalize(null));
+        assertNull(UrlCanonicalizer.canonicalize("  "));
+        assertNull(UrlCanonicalizer.canonicalize("mailto:someone@example.com"));
+        assertNull(UrlCanonicalizer.canonicalize("javascript:void(0)"));
+        assertNull(UrlCanonicalizer.canonicalize("ftp://example.com/file"));
+        assertNull(UrlCanonicalizer.canonicalize("http:///path"));
+    }
+
+    @Test
+    void canonicalizeAllDropsInvalidUrlsAndVariants() {
+        List<String> canonical = UrlCanonicalizer.canonicalizeAll(List.of(
+                "http://example.com/a?utm_source=x", "mailto:x@example.com", "HTTP://EXAMPLE.COM:80/a", "example.com/b"));
+
+        assertEquals(List.of("http://example.com/a", "http://example.com/b"), canonical);
+    }
+}